@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+import com.sun.xml.internal.ws.api.BindingID;
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.WSBinding;
+import com.sun.xml.internal.ws.api.message.Headers;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.Messages;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.pipe.Codec;
+import com.sun.xml.internal.ws.api.pipe.ContentType;
+import com.sun.xml.internal.ws.api.streaming.XMLStreamWriterFactory;
+import com.sun.xml.internal.ws.binding.BindingImpl;
+import com.sun.xml.internal.ws.encoding.fastinfoset.FastInfosetStreamSOAPCodec;
+import com.sun.xml.internal.ws.message.ByteArrayAttachment;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.ws.WebServiceFeature;
+import javax.xml.ws.soap.MTOMFeature;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures the encode and decode throughput, latency and allocation of the
+ * SOAP and XML/HTTP codecs, over a few payload shapes.
+ *
+ * <p>
+ * Run it with "ant bench". The codecs, shapes and timings can be narrowed
+ * with the bench.* properties of build.xml, for example
+ * "ant bench -Dbench.codecs=soap11,mtom -Dbench.shapes=small".
+ *
+ * <p>
+ * Each case is warmed up, then measured for a number of timed iterations
+ * in the same VM. The allocation figure comes from the per-thread counter
+ * of HotSpot's {@link com.sun.management.ThreadMXBean}, so it is 0 on VMs
+ * that don't have it.
+ */
+public final class CodecBenchmark {
+
+    enum Shape {
+        /** A document/literal request with a few simple parameters. */
+        small,
+        /** Elements nested 64 deep. */
+        deep,
+        /** An array of 1000 simple elements. */
+        wide,
+        /** 256KB of base64 text. */
+        base64,
+        /** A small payload with 32 headers. */
+        headers
+    }
+
+    private static final String NS = "urn:bench";
+
+    private final String codecName;
+    private final Codec codec;
+    private final Message message;
+
+    private final byte[] encoded;
+    private final String contentType;
+
+    CodecBenchmark(String codecName, Shape shape) throws Exception {
+        this.codecName = codecName;
+        SOAPVersion version = codecName.endsWith("12") ? SOAPVersion.SOAP_12 : SOAPVersion.SOAP_11;
+        this.codec = createCodec(codecName, version);
+        this.message = createMessage(shape, codecName.equals("xmlhttp") ? null : version);
+        if (codecName.equals("swa")) {
+            byte[] data = new byte[16*1024];
+            Arrays.fill(data, (byte)'a');
+            message.getAttachments().add(new ByteArrayAttachment("att0@bench", data, "application/octet-stream"));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Packet p = new Packet(message);
+        ContentType ct = codec.getStaticContentType(p);
+        codec.encode(p, baos);
+        this.encoded = baos.toByteArray();
+        this.contentType = ct.getContentType();
+    }
+
+    private static Codec createCodec(String name, SOAPVersion version) {
+        if (name.equals("soap11") || name.equals("soap12"))
+            return StreamSOAPCodec.create(version);
+        if (name.equals("mtom")) {
+            WSBinding binding = BindingImpl.create(BindingID.SOAP11_HTTP_MTOM, new WebServiceFeature[] {new MTOMFeature()});
+            return new MtomCodec(version, StreamSOAPCodec.create(version), binding, binding.getFeature(MTOMFeature.class));
+        }
+        if (name.equals("swa"))
+            return new SwACodec(version, BindingImpl.create(BindingID.SOAP11_HTTP), StreamSOAPCodec.create(version));
+        if (name.equals("fi11") || name.equals("fi12"))
+            return FastInfosetStreamSOAPCodec.create(StreamSOAPCodec.create(version), version);
+        if (name.equals("xmlhttp"))
+            return new XMLHTTPBindingCodec(BindingImpl.create(BindingID.XML_HTTP));
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+
+    /**
+     * Creates a DOM based message, which can be written any number of times.
+     */
+    private static Message createMessage(Shape shape, SOAPVersion version) throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document doc = dbf.newDocumentBuilder().newDocument();
+        Element root = doc.createElementNS(NS, "b:request");
+        doc.appendChild(root);
+        switch (shape) {
+        case small:
+        case headers:
+            text(root, "name", "Duke");
+            text(root, "count", "42");
+            text(root, "when", "2010-01-01T00:00:00Z");
+            break;
+        case deep:
+            Element e = root;
+            for (int i = 0; i < 64; i++)
+                e = (Element) e.appendChild(doc.createElementNS(NS, "b:level"));
+            e.setTextContent("leaf");
+            break;
+        case wide:
+            for (int i = 0; i < 1000; i++)
+                text(root, "item", Integer.toString(i));
+            break;
+        case base64:
+            char[] chars = new char[256*1024];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".charAt(i & 63);
+            text(root, "data", new String(chars));
+            break;
+        }
+
+        Message m = (version == null)
+                ? Messages.createUsingPayload(root, SOAPVersion.SOAP_11)
+                : Messages.createUsingPayload(root, version);
+        if (shape == Shape.headers) {
+            for (int i = 0; i < 32; i++)
+                m.getHeaders().add(Headers.create(new QName(NS, "header" + i), "value" + i));
+        }
+        return m;
+    }
+
+    private static void text(Element parent, String name, String value) {
+        Element e = parent.getOwnerDocument().createElementNS(NS, "b:" + name);
+        e.setTextContent(value);
+        parent.appendChild(e);
+    }
+
+    /**
+     * One operation: get the Content-Type and encode the message to a
+     * reused buffer, as the HTTP transport does.
+     */
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(1 << 20);
+
+    void encode() throws Exception {
+        sink.reset();
+        Packet p = new Packet(message);
+        codec.getStaticContentType(p);
+        codec.encode(p, sink);
+    }
+
+    /**
+     * One operation: decode the encoded message, and read all of it.
+     */
+    void decode() throws Exception {
+        Packet p = new Packet();
+        codec.decode(new ByteArrayInputStream(encoded), contentType, p);
+        XMLStreamWriter w = XMLStreamWriterFactory.create(NULL);
+        p.getMessage().writeTo(w);
+        w.flush();
+        XMLStreamWriterFactory.recycle(w);
+    }
+
+    private static final OutputStream NULL = new OutputStream() {
+        public void write(int b) {}
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    int encodedSize() {
+        return encoded.length;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] codecs = System.getProperty("bench.codecs", "soap11,soap12,mtom,swa,fi11,fi12,xmlhttp").split(",");
+        String shapes = System.getProperty("bench.shapes", "");
+        int warmup = Integer.getInteger("bench.warmup", 3);
+        int iterations = Integer.getInteger("bench.iterations", 5);
+        long millis = Long.getLong("bench.time", 1000);
+
+        System.out.println(String.format(Locale.ROOT, "%-8s %-8s %-6s %9s %12s %10s %10s %12s",
+                "codec", "shape", "op", "bytes", "ops/s", "us/op", "p99 us", "alloc B/op"));
+        for (String c : codecs) {
+            for (Shape s : Shape.values()) {
+                if (shapes.length() > 0 && !Arrays.asList(shapes.split(",")).contains(s.name()))
+                    continue;
+                CodecBenchmark b = new CodecBenchmark(c.trim(), s);
+                for (boolean encode : new boolean[] {true, false}) {
+                    Result r = b.run(encode, warmup, iterations, millis);
+                    System.out.println(String.format(Locale.ROOT, "%-8s %-8s %-6s %9d %12.0f %10.2f %10.2f %12d",
+                            b.codecName, s, encode ? "encode" : "decode", b.encodedSize(),
+                            r.opsPerSecond, r.meanMicros, r.p99Micros, r.allocatedPerOp));
+                }
+            }
+        }
+    }
+
+    static final class Result {
+        double opsPerSecond;
+        double meanMicros;
+        double p99Micros;
+        long allocatedPerOp;
+    }
+
+    private Result run(boolean encode, int warmup, int iterations, long millis) throws Exception {
+        for (int i = 0; i < warmup; i++)
+            iteration(encode, millis, null);
+
+        long[] samples = new long[1 << 20];
+        long ops = 0, nanos = 0, allocated = 0;
+        int n = 0;
+        for (int i = 0; i < iterations; i++) {
+            long a0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            int k = iteration(encode, millis, samples);
+            nanos += System.nanoTime() - t0;
+            allocated += allocatedBytes() - a0;
+            ops += k;
+            n = Math.min(k, samples.length);
+        }
+
+        // the percentile is taken from the last iteration
+        Arrays.sort(samples, 0, n);
+        Result r = new Result();
+        r.opsPerSecond = ops * 1e9 / nanos;
+        r.meanMicros = nanos / 1e3 / ops;
+        r.p99Micros = (n == 0) ? 0 : samples[(int) (n * 0.99)] / 1e3;
+        r.allocatedPerOp = allocated / ops;
+        return r;
+    }
+
+    /**
+     * Runs operations for the given time, recording their durations if
+     * samples is not null.
+     *
+     * @return the number of operations
+     */
+    private int iteration(boolean encode, long millis, long[] samples) throws Exception {
+        long end = System.nanoTime() + millis * 1000000L;
+        int k = 0;
+        long t = System.nanoTime();
+        while (t < end) {
+            if (encode)
+                encode();
+            else
+                decode();
+            long t1 = System.nanoTime();
+            if (samples != null && k < samples.length)
+                samples[k] = t1 - t;
+            t = t1;
+            k++;
+        }
+        return k;
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.handler;
+
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.PropertySet;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures {@link MessageContext} property access, i.e. the {@link Packet}
+ * {@link PropertySet} lookups and the walk of its satellites, as handlers
+ * and tubes do it.
+ *
+ * <p>
+ * Run it with "ant bench"; it takes the bench.warmup, bench.iterations and
+ * bench.time properties like {@link com.sun.xml.internal.ws.encoding.CodecBenchmark}.
+ */
+public final class PropertySetBenchmark {
+
+    /**
+     * A satellite like the ones the HTTP transports add.
+     */
+    public static final class HttpProperties extends PropertySet {
+        private static final PropertyMap model = parse(HttpProperties.class);
+
+        @Property(MessageContext.HTTP_REQUEST_HEADERS)
+        public Map<String, List<String>> requestHeaders = Collections.emptyMap();
+
+        @Property(MessageContext.HTTP_RESPONSE_CODE)
+        public Integer responseCode = 200;
+
+        @Property(MessageContext.HTTP_REQUEST_METHOD)
+        public String getRequestMethod() {
+            return "POST";
+        }
+
+        protected PropertyMap getPropertyMap() {
+            return model;
+        }
+    }
+
+    /**
+     * Another satellite, asked for by class.
+     */
+    public static final class OtherProperties extends PropertySet {
+        private static final PropertyMap model = parse(OtherProperties.class);
+
+        @Property("com.sun.xml.internal.ws.bench.other")
+        public String other;
+
+        protected PropertyMap getPropertyMap() {
+            return model;
+        }
+    }
+
+    interface Op {
+        Object run();
+    }
+
+    public static void main(String[] args) {
+        int warmup = Integer.getInteger("bench.warmup", 3);
+        int iterations = Integer.getInteger("bench.iterations", 5);
+        long millis = Long.getLong("bench.time", 1000);
+
+        final Packet packet = new Packet();
+        packet.addSatellite(new OtherProperties());
+        packet.addSatellite(new HttpProperties());
+        packet.endpointAddress = null;
+        final MessageContext context = new MessageContextImpl(packet);
+
+        Object[][] ops = {
+            {"Packet.get(ENDPOINT_ADDRESS)", new Op() { public Object run() {
+                return packet.get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY); } }},
+            {"Packet.put(SOAPACTION_URI)", new Op() { public Object run() {
+                return packet.put(BindingProvider.SOAPACTION_URI_PROPERTY, "urn:action"); } }},
+            {"Packet.supports(HTTP_REQUEST_HEADERS)", new Op() { public Object run() {
+                return packet.supports(MessageContext.HTTP_REQUEST_HEADERS); } }},
+            {"Packet.getSatellite(HttpProperties)", new Op() { public Object run() {
+                return packet.getSatellite(HttpProperties.class); } }},
+            {"MessageContext.get(HTTP_REQUEST_METHOD)", new Op() { public Object run() {
+                return context.get(MessageContext.HTTP_REQUEST_METHOD); } }},
+            {"MessageContext.get(WSDL_OPERATION)", new Op() { public Object run() {
+                return context.get(MessageContext.WSDL_OPERATION); } }},
+            {"MessageContext.put(HTTP_RESPONSE_CODE)", new Op() { public Object run() {
+                return context.put(MessageContext.HTTP_RESPONSE_CODE, 200); } }},
+        };
+
+        System.out.println(String.format(Locale.ROOT, "%-42s %10s", "operation", "ns/op"));
+        for (Object[] op : ops) {
+            for (int i = 0; i < warmup; i++)
+                run((Op) op[1], millis);
+            double ns = 0;
+            for (int i = 0; i < iterations; i++)
+                ns += run((Op) op[1], millis);
+            System.out.println(String.format(Locale.ROOT, "%-42s %10.1f", op[0], ns / iterations));
+        }
+    }
+
+    static volatile Object sink;
+
+    /**
+     * @return nanoseconds per operation
+     */
+    private static double run(Op op, long millis) {
+        long end = System.nanoTime() + millis * 1000000L;
+        long ops = 0;
+        long t0 = System.nanoTime(), t;
+        do {
+            for (int i = 0; i < 1000; i++)
+                sink = op.run();
+            ops += 1000;
+            t = System.nanoTime();
+        } while (t < end);
+        return (double) (t - t0) / ops;
+    }
+}
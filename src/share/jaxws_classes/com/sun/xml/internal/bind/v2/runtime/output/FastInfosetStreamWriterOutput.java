@@ -87,7 +87,9 @@ public final class FastInfosetStreamWriterOutput extends XMLStreamWriterOutput {
         int indexOffset;
 
         /**
-         * The the maximum known value of an index
+         * The the maximum known value of an index. It bounds the indexes of
+         * all the tables, local names included, as an index of the previous
+         * document must not look valid after the offset is moved past it.
          */
         int maxIndex;
 
@@ -111,7 +113,7 @@ public final class FastInfosetStreamWriterOutput extends XMLStreamWriterOutput {
             localNameIndexes = new int[context.getNumberOfLocalNames()];
 
             indexOffset = 1;
-            maxIndex = initialIndexOffset + elementIndexes.length + attributeIndexes.length;
+            maxIndex = initialIndexOffset + elementIndexes.length + attributeIndexes.length + localNameIndexes.length;
         }
 
         /**
@@ -134,7 +136,7 @@ public final class FastInfosetStreamWriterOutput extends XMLStreamWriterOutput {
                 // Increment offset to new position
                 indexOffset += maxIndex;
                 // Reset the maximum known value of an index
-                maxIndex = intialIndexOffset + elementIndexes.length + attributeIndexes.length;
+                maxIndex = intialIndexOffset + elementIndexes.length + attributeIndexes.length + localNameIndexes.length;
                 // Check if there is enough free space
                 // If overflow
                 if ((indexOffset + maxIndex) < 0) {
@@ -142,7 +144,7 @@ public final class FastInfosetStreamWriterOutput extends XMLStreamWriterOutput {
                 }
             } else {
                 // Reset the maximum known value of an index
-                maxIndex = intialIndexOffset + elementIndexes.length + attributeIndexes.length;
+                maxIndex = intialIndexOffset + elementIndexes.length + attributeIndexes.length + localNameIndexes.length;
                 // Check if there is enough free space
                 // If overflow
                 if ((indexOffset + maxIndex) < 0) {
@@ -347,6 +349,18 @@ public final class FastInfosetStreamWriterOutput extends XMLStreamWriterOutput {
         final int localNameIndex = tables.localNameIndexes[name.localNameIndex] - tables.indexOffset;
 
         if (localNameIndex < 0) {
+            // a local name of an external vocabulary is indexed from the start of the document
+            final int readOnlyIndex = fiout.getReadOnlyLocalNameIndex(name.localName);
+            if (readOnlyIndex >= 0) {
+                tables.localNameIndexes[name.localNameIndex] = readOnlyIndex + tables.indexOffset;
+                fiout.writeLowLevelStartNameLiteral(
+                        type,
+                        prefix,
+                        readOnlyIndex,
+                        namespaceURI);
+                return;
+            }
+
             tables.localNameIndexes[name.localNameIndex] = fiout.getNextLocalNameIndex() + tables.indexOffset;
 
             fiout.writeLowLevelStartNameLiteral(
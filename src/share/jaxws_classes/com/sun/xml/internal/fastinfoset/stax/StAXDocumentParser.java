@@ -825,7 +825,7 @@ public class StAXDocumentParser extends Decoder
         }
 
         try {
-            int bytesToCopy = Math.min(_charBufferLength, length);
+            int bytesToCopy = Math.max(0, Math.min(_charBufferLength - sourceStart, length));
             System.arraycopy(_characters, _charactersOffset + sourceStart,
                     target, targetStart, bytesToCopy);
             return bytesToCopy;
@@ -677,6 +677,15 @@ public class StAXDocumentSerializer extends Encoder
         return _v.localName.getNextIndex();
     }
 
+    /**
+     * Get the index of a local name of the initial or external vocabulary.
+     *
+     * @return the index, or -1 if the local name is not in such a vocabulary.
+     */
+    public final int getReadOnlyLocalNameIndex(String localName) {
+        return (_v != null) ? _v.localName.getReadOnlyIndex(localName) : -1;
+    }
+
     public final void writeLowLevelTerminationAndMark() throws IOException {
         encodeTermination();
         mark();
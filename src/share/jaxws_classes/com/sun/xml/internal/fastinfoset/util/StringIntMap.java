@@ -144,6 +144,16 @@ public class StringIntMap extends KeyIntMap {
         return get(key, hashHash(key.hashCode()));
     }
 
+    /**
+     * Get the index of a key in the read only map only.
+     *
+     * @return the index, or NOT_PRESENT if there is no read only map or the
+     *         key is not in it.
+     */
+    public final int getReadOnlyIndex(String key) {
+        return (_readOnlyMap != null) ? _readOnlyMap.get(key) : NOT_PRESENT;
+    }
+
     public final int getTotalCharacterCount() {
         return _totalCharacterCount;
     }
@@ -98,6 +98,41 @@ public class ElementImpl
             new QName(uri, getLocalPart(qualifiedName), getPrefix(qualifiedName));
     }
 
+    /**
+     * Creates the children of this element when they're first accessed,
+     * or null if they are created already.
+     */
+    private Runnable lazyChildren;
+
+    /**
+     * Defers the creation of the children of this element until the
+     * DOM accesses them. The element must be empty.
+     *
+     * @param lazyChildren
+     *      appends the children to this element when it runs.
+     */
+    public void setLazyChildren(Runnable lazyChildren) {
+        this.lazyChildren = lazyChildren;
+        needsSyncChildren(true);
+    }
+
+    /**
+     * Returns true if the children of this element are still to be
+     * created by {@link #setLazyChildren(Runnable)}.
+     */
+    public boolean hasLazyChildren() {
+        return lazyChildren != null;
+    }
+
+    protected void synchronizeChildren() {
+        needsSyncChildren(false);
+        Runnable r = lazyChildren;
+        if (r != null) {
+            lazyChildren = null;
+            r.run();
+        }
+    }
+
     public void ensureNamespaceIsDeclared(String prefix, String uri) {
         String alreadyDeclaredUri = getNamespaceURI(prefix);
         if (alreadyDeclaredUri == null || !alreadyDeclaredUri.equals(uri)) {
@@ -51,6 +51,9 @@ public class MIMEConfig {
     // Do not store to disk
     boolean onlyMemory;
 
+    // Drops the content of parts that are not asked for before they are parsed
+    boolean skipUnrequestedParts;
+
     // temp Dir to store large files
     File tempDir;
     String prefix;
@@ -80,6 +83,24 @@ public class MIMEConfig {
         this.parseEagerly = parseEagerly;
     }
 
+    boolean isSkipUnrequestedParts() {
+        return skipUnrequestedParts;
+    }
+
+    /**
+     * If set, the content of a part that is reached by the parser before
+     * it is asked for, by {@link MIMEMessage#getPart(String)} or
+     * {@link MIMEMessage#getPart(int)}, is skipped instead of being kept
+     * in memory or on the disk. Only its headers are kept. This lets a
+     * message with large attachments that are never read, or are read in
+     * the order they are sent, be parsed without storing them.
+     *
+     * {@link MIMEMessage#getAttachments()} still keeps all the parts.
+     */
+    public void setSkipUnrequestedParts(boolean skipUnrequestedParts) {
+        this.skipUnrequestedParts = skipUnrequestedParts;
+    }
+
     int getChunkSize() {
         return chunkSize;
     }
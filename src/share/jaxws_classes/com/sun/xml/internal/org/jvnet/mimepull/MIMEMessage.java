@@ -51,6 +51,7 @@ public class MIMEMessage {
     private boolean parsed;     // true when entire message is parsed
     private MIMEPart currentPart;
     private int currentIndex;
+    private boolean skipUnrequestedParts;
 
     /**
      * @see MIMEMessage(InputStream, String, MIMEConfig)
@@ -75,6 +76,7 @@ public class MIMEMessage {
 
         partsList = new ArrayList<MIMEPart>();
         partsMap = new HashMap<String, MIMEPart>();
+        skipUnrequestedParts = config.isSkipUnrequestedParts();
         if (config.isParseEagerly()) {
             parseAll();
         }
@@ -163,6 +165,10 @@ public class MIMEMessage {
      * Parses the whole MIME message eagerly
      */
     public void parseAll() {
+        // all the parts are wanted
+        synchronized(this) {
+            skipUnrequestedParts = false;
+        }
         while(makeProgress()) {
             // Nothing to do
         }
@@ -204,6 +210,7 @@ public class MIMEMessage {
                 MIMEPart mapPart = getDecodedCidPart(cid);
                 if (listPart == null && mapPart == null) {
                     currentPart = getPart(cid);
+                    currentPart.skipped = skipUnrequestedParts;
                     partsList.add(currentIndex, currentPart);
                 } else if (listPart == null) {
                     currentPart = mapPart;
@@ -221,8 +228,10 @@ public class MIMEMessage {
             case CONTENT :
                 LOGGER.finer("MIMEEvent="+MIMEEvent.EVENT_TYPE.CONTENT);
                 MIMEEvent.Content content = (MIMEEvent.Content)event;
-                ByteBuffer buf = content.getData();
-                currentPart.addBody(buf);
+                if (!currentPart.skipped) {
+                    ByteBuffer buf = content.getData();
+                    currentPart.addBody(buf);
+                }
                 break;
 
             case END_PART :
@@ -46,6 +46,7 @@ public class MIMEPart {
     private volatile String contentId;
     private String contentType;
     volatile boolean parsed;    // part is parsed or not
+    volatile boolean skipped;   // content is dropped, see MIMEConfig#setSkipUnrequestedParts
     final MIMEMessage msg;
     private final DataHead dataHead;
 
@@ -69,6 +70,7 @@ public class MIMEPart {
      * @return data for the part's content
      */
     public InputStream read() {
+        checkSkipped();
         return dataHead.read();
     }
 
@@ -95,10 +97,19 @@ public class MIMEPart {
      * @return data for the part's content
      */
     public InputStream readOnce() {
+        checkSkipped();
         return dataHead.readOnce();
     }
 
+    private void checkSkipped() {
+        if (skipped) {
+            throw new MIMEParsingException("The content of the attachment part with Content-ID = "+contentId
+                    +" is skipped, since it was not asked for before it was parsed");
+        }
+    }
+
     public void moveTo(File f) {
+        checkSkipped();
         dataHead.moveTo(f);
     }
 
@@ -64,6 +64,11 @@ public class MutableXMLStreamBuffer extends XMLStreamBuffer {
      */
     public static final int DEFAULT_ARRAY_SIZE = 512;
 
+    /**
+     * The default array size for the array used for character content.
+     */
+    public static final int DEFAULT_CHARACTERS_ARRAY_SIZE = 4096;
+
     /**
      * Create a new MutableXMLStreamBuffer using the
      * {@link MutableXMLStreamBuffer#DEFAULT_ARRAY_SIZE}.
@@ -90,9 +95,30 @@ public class MutableXMLStreamBuffer extends XMLStreamBuffer {
      * If the <code>size</code> argument is less than <code>0</code>.
      */
     public MutableXMLStreamBuffer(int size) {
+        this(size, DEFAULT_CHARACTERS_ARRAY_SIZE);
+    }
+
+    /**
+     * Create a new MutableXMLStreamBuffer, e.g. a small one for a few
+     * elements.
+     *
+     * @param size
+     * The size of the arrays used in the internal representation
+     * of the XML infoset.
+     * @param charactersSize
+     * The size of the array used for the character content of the
+     * XML infoset. Must be at least <code>512</code>.
+     * @throws IllegalArgumentException
+     * If the <code>charactersSize</code> argument is less than <code>512</code>.
+     */
+    public MutableXMLStreamBuffer(int size, int charactersSize) {
+        if (charactersSize < 512) {
+            // smaller character content is stored inline, it must fit in a new array
+            throw new IllegalArgumentException("charactersSize="+charactersSize);
+        }
         _structure = new FragmentedArray<byte[]>(new byte[size]);
         _structureStrings = new FragmentedArray<String[]>(new String[size]);
-        _contentCharactersBuffer = new FragmentedArray<char[]>(new char[4096]);
+        _contentCharactersBuffer = new FragmentedArray<char[]>(new char[charactersSize]);
         _contentObjects = new FragmentedArray<Object[]>(new Object[size]);
 
         // Set the first element of structure array to indicate an empty buffer
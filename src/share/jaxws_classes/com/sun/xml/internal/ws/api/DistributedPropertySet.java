@@ -25,7 +25,6 @@
 
 package com.sun.xml.internal.ws.api;
 
-import com.sun.istack.internal.FinalArrayList;
 import com.sun.istack.internal.NotNull;
 import com.sun.istack.internal.Nullable;
 import com.sun.xml.internal.ws.api.message.Packet;
@@ -33,6 +32,8 @@ import com.sun.xml.internal.ws.client.RequestContext;
 import com.sun.xml.internal.ws.client.ResponseContext;
 
 import javax.xml.ws.WebServiceContext;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -75,35 +76,88 @@ import java.util.Set;
 public abstract class DistributedPropertySet extends PropertySet {
     /**
      * All {@link PropertySet}s that are bundled into this {@link PropertySet}.
+     *
+     * <p>
+     * The array is never modified, a new one replaces it instead. So it can
+     * be shared by {@link #copySatelliteInto(DistributedPropertySet)}, which
+     * happens for every response {@link Packet}, while most of them never
+     * change their satellites.
      */
-    private final FinalArrayList<PropertySet> satellites = new FinalArrayList<PropertySet>();
+    private PropertySet[] satellites = NO_SATELLITES;
+
+    private static final PropertySet[] NO_SATELLITES = new PropertySet[0];
+
+    /**
+     * {@link #getSatellite(Class)} results found in {@link #satellites}
+     * before any nested {@link DistributedPropertySet}, keyed by the requested
+     * class. So they stay valid until {@link #satellites} changes. A few
+     * satellite classes are asked for over and over per request, this spares
+     * the walk of the list. Created lazily.
+     */
+    private @Nullable Map<Class<?>, PropertySet> satelliteByClass;
 
     public void addSatellite(@NotNull PropertySet satellite) {
-        satellites.add(satellite);
+        PropertySet[] s = new PropertySet[satellites.length+1];
+        System.arraycopy(satellites, 0, s, 0, satellites.length);
+        s[satellites.length] = satellite;
+        satellites = s;
+        satelliteByClass = null;
     }
 
     public void removeSatellite(@NotNull PropertySet satellite) {
-        satellites.remove(satellite);
+        for (int i = 0; i < satellites.length; i++) {
+            if (satellite.equals(satellites[i])) {
+                PropertySet[] s = new PropertySet[satellites.length-1];
+                System.arraycopy(satellites, 0, s, 0, i);
+                System.arraycopy(satellites, i+1, s, i, s.length-i);
+                satellites = s;
+                satelliteByClass = null;
+                return;
+            }
+        }
     }
 
     public void copySatelliteInto(@NotNull DistributedPropertySet r) {
-        r.satellites.addAll(this.satellites);
+        if (satellites.length == 0)
+            return;
+        if (r.satellites.length == 0) {
+            r.satellites = satellites;
+        } else {
+            PropertySet[] s = new PropertySet[r.satellites.length+satellites.length];
+            System.arraycopy(r.satellites, 0, s, 0, r.satellites.length);
+            System.arraycopy(satellites, 0, s, r.satellites.length, satellites.length);
+            r.satellites = s;
+        }
+        r.satelliteByClass = null;
     }
 
     public @Nullable <T extends PropertySet> T getSatellite(Class<T> satelliteClass) {
+        if (satelliteByClass != null) {
+            PropertySet cached = satelliteByClass.get(satelliteClass);
+            if (cached != null) {
+                return satelliteClass.cast(cached);
+            }
+        }
+        boolean nested = false;
         for (PropertySet child : satellites) {
             if (satelliteClass.isInstance(child)) {
+                if (!nested) {
+                    if (satelliteByClass == null)
+                        satelliteByClass = new HashMap<Class<?>, PropertySet>();
+                    satelliteByClass.put(satelliteClass, child);
+                }
                 return satelliteClass.cast(child);
             }
 
             if (DistributedPropertySet.class.isInstance(child)) {
+                // the child's satellites may change, so later results aren't cached
+                nested = true;
                 T satellite = DistributedPropertySet.class.cast(child).getSatellite(satelliteClass);
                 if (satellite != null) {
                     return satellite;
                 }
             }
         }
-
         return null;
     }
 
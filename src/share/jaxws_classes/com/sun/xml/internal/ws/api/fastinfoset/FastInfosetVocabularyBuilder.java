@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.api.fastinfoset;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.bind.api.JAXBRIContext;
+import com.sun.xml.internal.bind.v2.runtime.JAXBContextImpl;
+import com.sun.xml.internal.bind.v2.runtime.NameList;
+import com.sun.xml.internal.org.jvnet.fastinfoset.ExternalVocabulary;
+import com.sun.xml.internal.org.jvnet.fastinfoset.Vocabulary;
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.model.SEIModel;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLBoundFault;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLBoundOperation;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLDescriptorKind;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLFault;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLPart;
+import com.sun.xml.internal.ws.api.model.wsdl.WSDLPort;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds a Fast Infoset {@link ExternalVocabulary} from the names that
+ * the messages of a port are made of: the SOAP envelope, the elements
+ * of the WSDL and the element and attribute names of the JAXB schema.
+ *
+ * <p>
+ * Fast Infoset refers to an entry of a vocabulary by its index, so a
+ * client and a service must use exactly the same vocabulary. The tables
+ * are therefore sorted, whatever order the names were added in, and the
+ * default URI of the vocabulary is a digest of its content. Two
+ * vocabularies built from the same WSDL and schema are identical, and a
+ * different one is rejected by the parser instead of being misread.
+ *
+ * <pre>
+ * ExternalVocabulary v = new FastInfosetVocabularyBuilder()
+ *     .add(SOAPVersion.SOAP_11)
+ *     .add(seiModel)
+ *     .build();
+ * </pre>
+ *
+ * @see FastInfosetVocabularyFeature
+ */
+public final class FastInfosetVocabularyBuilder {
+    /**
+     * Prefix of the URI of a vocabulary that is not given one. The URI is
+     * written in every document, so it is kept short.
+     */
+    public static final String URI_PREFIX = "urn:jaxws:fi:";
+
+    /**
+     * Prefix of the SOAP envelope as written by the runtime.
+     */
+    private static final String SOAP_PREFIX = "S";
+
+    /**
+     * Prefixes the JAXB RI and common toolkits generate.
+     */
+    private static final String[] COMMON_PREFIXES = {
+        "S", "soap", "soapenv", "env", "xsi", "xs", "wsa",
+        "ns1", "ns2", "ns3", "ns4", "ns5", "ns6", "ns7", "ns8", "ns9"
+    };
+
+    private static final Comparator<QName> QNAME_ORDER = new Comparator<QName>() {
+        public int compare(QName a, QName b) {
+            int r = a.getNamespaceURI().compareTo(b.getNamespaceURI());
+            if (r == 0)
+                r = a.getLocalPart().compareTo(b.getLocalPart());
+            if (r == 0)
+                r = a.getPrefix().compareTo(b.getPrefix());
+            return r;
+        }
+    };
+
+    private final Set<String> prefixes = new TreeSet<String>();
+    private final Set<String> namespaceNames = new TreeSet<String>();
+    private final Set<String> localNames = new TreeSet<String>();
+    private final Set<QName> elements = new TreeSet<QName>(QNAME_ORDER);
+    private final Set<QName> attributes = new TreeSet<QName>(QNAME_ORDER);
+
+    public FastInfosetVocabularyBuilder() {
+        for (String p : COMMON_PREFIXES)
+            prefixes.add(p);
+    }
+
+    /**
+     * Adds the names of the SOAP envelope and fault of the given version.
+     */
+    public FastInfosetVocabularyBuilder add(@NotNull SOAPVersion version) {
+        String ns = version.nsUri;
+        for (String n : new String[] {"Envelope", "Header", "Body", "Fault"})
+            addElement(new QName(ns, n, SOAP_PREFIX));
+        addAttribute(new QName(ns, "mustUnderstand", SOAP_PREFIX));
+        addAttribute(new QName(ns, "encodingStyle", SOAP_PREFIX));
+        if (version == SOAPVersion.SOAP_11) {
+            addAttribute(new QName(ns, "actor", SOAP_PREFIX));
+            for (String n : new String[] {"faultcode", "faultstring", "faultactor", "detail"})
+                addElement(new QName("", n));
+        } else {
+            addAttribute(new QName(ns, "role", SOAP_PREFIX));
+            addAttribute(new QName(ns, "relay", SOAP_PREFIX));
+            for (String n : new String[] {"Code", "Value", "Subcode", "Reason", "Text", "Node", "Role", "Detail"})
+                addElement(new QName(ns, n, SOAP_PREFIX));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the names of the payload, header and fault detail elements
+     * that the WSDL binding of the port declares.
+     */
+    public FastInfosetVocabularyBuilder add(@NotNull WSDLPort port) {
+        for (WSDLBoundOperation op : port.getBinding().getBindingOperations()) {
+            addName(op.getReqPayloadName());
+            for (WSDLPart part : op.getInParts().values())
+                addPart(part);
+            for (WSDLPart part : op.getOutParts().values())
+                addPart(part);
+            for (WSDLBoundFault bf : op.getFaults()) {
+                WSDLFault f = bf.getFault();
+                if (f != null && f.getMessage() != null) {
+                    for (WSDLPart part : f.getMessage().parts())
+                        addPart(part);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the names of the WSDL port of the model, and all the element
+     * and attribute names of its JAXB schema.
+     */
+    @SuppressWarnings("deprecation")    // the model has no other way to its JAXB context
+    public FastInfosetVocabularyBuilder add(@NotNull SEIModel model) {
+        add(model.getPort());
+        return add(model.getJAXBContext());
+    }
+
+    /**
+     * Adds all the namespace names and local names that the given context
+     * may marshal.
+     */
+    public FastInfosetVocabularyBuilder add(@NotNull JAXBRIContext context) {
+        if (context instanceof JAXBContextImpl) {
+            NameList names = ((JAXBContextImpl) context).nameList;
+            for (String ns : names.namespaceURIs)
+                addNamespaceName(ns);
+            for (String n : names.localNames)
+                addLocalName(n);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an element name. The prefix of the name, if any, is part of the
+     * entry, so it is only used for elements written with that prefix.
+     */
+    public FastInfosetVocabularyBuilder addElement(@NotNull QName name) {
+        addName(name);
+        elements.add(name);
+        return this;
+    }
+
+    /**
+     * Adds an attribute name, see {@link #addElement(QName)}.
+     */
+    public FastInfosetVocabularyBuilder addAttribute(@NotNull QName name) {
+        addName(name);
+        attributes.add(name);
+        return this;
+    }
+
+    public FastInfosetVocabularyBuilder addPrefix(@NotNull String prefix) {
+        if (prefix.length() > 0 && !prefix.equals(XMLConstants.XML_NS_PREFIX))
+            prefixes.add(prefix);
+        return this;
+    }
+
+    public FastInfosetVocabularyBuilder addNamespaceName(@NotNull String ns) {
+        if (ns.length() > 0 && !ns.equals(XMLConstants.XML_NS_URI))
+            namespaceNames.add(ns);
+        return this;
+    }
+
+    public FastInfosetVocabularyBuilder addLocalName(@NotNull String localName) {
+        if (localName.length() > 0)
+            localNames.add(localName);
+        return this;
+    }
+
+    /**
+     * Builds the vocabulary with a URI derived from its content.
+     */
+    public ExternalVocabulary build() {
+        Vocabulary v = createVocabulary();
+        return new ExternalVocabulary(URI_PREFIX + digest(v), v);
+    }
+
+    /**
+     * Builds the vocabulary with the given URI.
+     */
+    public ExternalVocabulary build(@NotNull String uri) {
+        return new ExternalVocabulary(uri, createVocabulary());
+    }
+
+    @SuppressWarnings("unchecked")      // the sets of Vocabulary are raw
+    private Vocabulary createVocabulary() {
+        Vocabulary v = new Vocabulary();
+        v.prefixes.addAll(prefixes);
+        v.namespaceNames.addAll(namespaceNames);
+        v.localNames.addAll(localNames);
+        v.elements.addAll(elements);
+        v.attributes.addAll(attributes);
+        return v;
+    }
+
+    private void addName(QName name) {
+        if (name == null)
+            return;
+        addPrefix(name.getPrefix());
+        addNamespaceName(name.getNamespaceURI());
+        addLocalName(name.getLocalPart());
+    }
+
+    private void addPart(WSDLPart part) {
+        if (part.getDescriptor() != null && part.getDescriptor().type() == WSDLDescriptorKind.ELEMENT)
+            addName(part.getDescriptor().name());
+    }
+
+    private static String digest(Vocabulary v) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            update(md, 'p', v.prefixes);
+            update(md, 'n', v.namespaceNames);
+            update(md, 'l', v.localNames);
+            update(md, 'e', v.elements);
+            update(md, 'a', v.attributes);
+            // the first 80 bits of the digest are plenty to tell vocabularies apart
+            byte[] digest = md.digest();
+            StringBuilder sb = new StringBuilder(20);
+            for (int i = 0; i < 10; i++) {
+                byte b = digest[i];
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void update(MessageDigest md, char table, Set<?> entries) throws UnsupportedEncodingException {
+        for (Object o : entries) {
+            String s;
+            if (o instanceof QName) {
+                QName n = (QName) o;
+                s = n.getPrefix() + ' ' + n.getNamespaceURI() + ' ' + n.getLocalPart();
+            } else {
+                s = (String) o;
+            }
+            md.update((table + s + '\n').getBytes("UTF-8"));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.api.fastinfoset;
+
+import com.sun.xml.internal.org.jvnet.fastinfoset.ExternalVocabulary;
+
+import javax.xml.ws.WebServiceFeature;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+/**
+ * Primes the Fast Infoset vocabulary of a Web service with external
+ * vocabularies, so that the first messages exchanged are already encoded
+ * with indexes instead of literal names.
+ * <p>
+ * A Fast Infoset document refers to an external vocabulary by its URI.
+ * All the given vocabularies are accepted when decoding a message. A
+ * client encodes its requests with the first one. A service encodes a
+ * response with the vocabulary that the request referred to, or with none
+ * if the request didn't refer to one. Both sides therefore have to be
+ * configured with a vocabulary of the same URI, typically built from the
+ * same WSDL by {@link FastInfosetVocabularyBuilder}.
+ * <p>
+ * This feature only has an effect when Fast Infoset is used to encode
+ * SOAP messages, see {@link FastInfosetFeature}.
+ */
+@ManagedData
+public class FastInfosetVocabularyFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link FastInfosetVocabularyFeature}
+     */
+    public static final String ID = "http://java.sun.com/xml/ns/jaxws/fastinfoset/vocabulary";
+
+    private final List<ExternalVocabulary> vocabularies;
+
+    /**
+     * Create a {@link FastInfosetVocabularyFeature}. The instance created will be enabled.
+     *
+     * @param vocabularies
+     *      the vocabularies that may be referred to, the first of them
+     *      is used to encode requests.
+     */
+    public FastInfosetVocabularyFeature(ExternalVocabulary... vocabularies) {
+        if (vocabularies.length == 0)
+            throw new IllegalArgumentException("no vocabulary");
+        this.vocabularies = Collections.unmodifiableList(Arrays.asList(vocabularies.clone()));
+        this.enabled = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @ManagedAttribute
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Gets the vocabulary that is used to encode requests.
+     */
+    public ExternalVocabulary getVocabulary() {
+        return vocabularies.get(0);
+    }
+
+    /**
+     * Gets all the vocabularies that may be referred to.
+     */
+    public List<ExternalVocabulary> getVocabularies() {
+        return vocabularies;
+    }
+}
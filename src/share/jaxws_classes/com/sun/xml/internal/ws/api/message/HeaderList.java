@@ -49,6 +49,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.ws.WebServiceException;
 import javax.xml.ws.soap.AddressingFeature;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -138,6 +139,30 @@ public final class HeaderList extends ArrayList<Header> {
     private String messageId;
     private String relatesTo;
 
+    /**
+     * Lists shorter than this are searched linearly, as building
+     * the {@link #nameTable} wouldn't pay for itself.
+     */
+    private static final int INDEX_THRESHOLD = 8;
+    /**
+     * Open addressing hash table from the header name to the index
+     * of the first header of that name, plus one. 0 is an empty slot.
+     * The length is a power of two, at least twice the size of the list.
+     * <p>
+     * Lazily built by the first lookup on a long enough list, kept up to
+     * date by {@link #add(Header)}, and dropped by any other modification,
+     * which is detected through {@link #modCount}.
+     */
+    private transient int[] nameTable;
+    /**
+     * For each header, the index of the next header of the same name, or -1.
+     */
+    private transient int[] nextOfName;
+    /**
+     * {@link #modCount} when {@link #nameTable} was last updated.
+     */
+    private transient int indexedModCount;
+
     /**
      * Creates an empty {@link HeaderList}.
      */
@@ -158,6 +183,11 @@ public final class HeaderList extends ArrayList<Header> {
         this.replyTo = that.replyTo;
         this.faultTo = that.faultTo;
         this.messageId = that.messageId;
+        if (that.isIndexed()) {
+            this.nameTable = that.nameTable.clone();
+            this.nextOfName = that.nextOfName.clone();
+            this.indexedModCount = this.modCount;
+        }
     }
 
     /**
@@ -190,6 +220,139 @@ public final class HeaderList extends ArrayList<Header> {
         return super.get(index);
     }
 
+    /**
+     * Replaces the {@link Header} at the specified index.
+     */
+    @Override
+    public Header set(int index, Header header) {
+        nameTable = null;
+        return super.set(index, header);
+    }
+
+    /**
+     * Gets the index of the first {@link Header} of the specified name.
+     *
+     * <p>
+     * This lets a {@link Pipe} that accesses a header more than once
+     * look it up only once, and then use {@link #get(int)},
+     * {@link #understood(int)} and {@link #isUnderstood(int)}.
+     * The index stays valid until the list is modified.
+     *
+     * <p>
+     * This method does not mark the header as understood.
+     *
+     * @return -1 if not found.
+     */
+    public int getIndex(@NotNull String nsUri, @NotNull String localName) {
+        return indexOf(nsUri, localName, 0);
+    }
+
+    /**
+     * @see #getIndex(String, String)
+     */
+    public int getIndex(@NotNull QName name) {
+        return indexOf(name.getNamespaceURI(), name.getLocalPart(), 0);
+    }
+
+    /**
+     * Gets the index of the first {@link Header} of the specified name
+     * at or after the given index.
+     *
+     * @return -1 if not found.
+     */
+    private int indexOf(String nsUri, String localName, int from) {
+        int len = size();
+        if (from >= len) {
+            return -1;
+        }
+        if (len >= INDEX_THRESHOLD && (isIndexed() || buildIndex())) {
+            int i = firstIndexOf(nsUri, localName);
+            while (i >= 0 && i < from) {
+                i = nextOfName[i];
+            }
+            return i;
+        }
+        for (int i = from; i < len; i++) {
+            Header h = get(i);
+            if (h.getLocalPart().equals(localName) && h.getNamespaceURI().equals(nsUri)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isIndexed() {
+        return nameTable != null && indexedModCount == modCount;
+    }
+
+    private static int hash(String nsUri, String localName) {
+        int h = nsUri.hashCode() * 31 + localName.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Looks up {@link #nameTable}.
+     */
+    private int firstIndexOf(String nsUri, String localName) {
+        int mask = nameTable.length - 1;
+        for (int slot = hash(nsUri, localName) & mask; ; slot = (slot + 1) & mask) {
+            int i = nameTable[slot] - 1;
+            if (i < 0) {
+                return -1;
+            }
+            Header h = get(i);
+            if (h.getLocalPart().equals(localName) && h.getNamespaceURI().equals(nsUri)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * (Re)builds {@link #nameTable} and {@link #nextOfName} for the whole list.
+     *
+     * @return always true.
+     */
+    private boolean buildIndex() {
+        int len = size();
+        int cap = Integer.highestOneBit(Math.max(len, 4) * 2 - 1) << 1;
+        nameTable = new int[cap];
+        if (nextOfName == null || nextOfName.length < len) {
+            nextOfName = new int[Math.max(len, 16)];
+        }
+        for (int i = 0; i < len; i++) {
+            addToIndex(i);
+        }
+        indexedModCount = modCount;
+        return true;
+    }
+
+    /**
+     * Adds the header at the given index, which must be greater than the
+     * index of any header already in the index, to {@link #nameTable}.
+     */
+    private void addToIndex(int index) {
+        Header h = get(index);
+        String nsUri = h.getNamespaceURI();
+        String localName = h.getLocalPart();
+        nextOfName[index] = -1;
+        int mask = nameTable.length - 1;
+        for (int slot = hash(nsUri, localName) & mask; ; slot = (slot + 1) & mask) {
+            int i = nameTable[slot] - 1;
+            if (i < 0) {
+                nameTable[slot] = index + 1;
+                return;
+            }
+            Header first = get(i);
+            if (first.getLocalPart().equals(localName) && first.getNamespaceURI().equals(nsUri)) {
+                while (nextOfName[i] >= 0) {
+                    i = nextOfName[i];
+                }
+                nextOfName[i] = index;
+                return;
+            }
+        }
+    }
+
     /**
      * Marks the {@link Header} at the specified index as
      * <a href="#MU">"understood"</a>.
@@ -266,17 +429,14 @@ public final class HeaderList extends ArrayList<Header> {
     public
     @Nullable
     Header get(@NotNull String nsUri, @NotNull String localName, boolean markAsUnderstood) {
-        int len = size();
-        for (int i = 0; i < len; i++) {
-            Header h = get(i);
-            if (h.getLocalPart().equals(localName) && h.getNamespaceURI().equals(nsUri)) {
-                if (markAsUnderstood) {
-                    understood(i);
-                }
-                return h;
-            }
+        int i = indexOf(nsUri, localName, 0);
+        if (i < 0) {
+            return null;
         }
-        return null;
+        if (markAsUnderstood) {
+            understood(i);
+        }
+        return get(i);
     }
 
     /**
@@ -364,12 +524,12 @@ public final class HeaderList extends ArrayList<Header> {
             }
 
             private void fetch() {
-                while (idx < size()) {
-                    Header h = get(idx++);
-                    if (h.getLocalPart().equals(localName) && h.getNamespaceURI().equals(nsUri)) {
-                        next = h;
-                        break;
-                    }
+                int i = indexOf(nsUri, localName, idx);
+                if (i < 0) {
+                    idx = size();
+                } else {
+                    next = get(i);
+                    idx = i + 1;
                 }
             }
 
@@ -834,7 +994,22 @@ public final class HeaderList extends ArrayList<Header> {
      */
     @Override
     public boolean add(Header header) {
-        return super.add(header);
+        boolean indexed = isIndexed();
+        super.add(header);
+        if (indexed) {
+            int index = size() - 1;
+            if (index * 2 >= nameTable.length) {
+                // rebuilt bigger by the next lookup
+                nameTable = null;
+            } else {
+                if (index >= nextOfName.length) {
+                    nextOfName = Arrays.copyOf(nextOfName, nextOfName.length * 2);
+                }
+                addToIndex(index);
+                indexedModCount = modCount;
+            }
+        }
+        return true;
     }
 
     /**
@@ -848,14 +1023,8 @@ public final class HeaderList extends ArrayList<Header> {
     public
     @Nullable
     Header remove(@NotNull String nsUri, @NotNull String localName) {
-        int len = size();
-        for (int i = 0; i < len; i++) {
-            Header h = get(i);
-            if (h.getLocalPart().equals(localName) && h.getNamespaceURI().equals(nsUri)) {
-                return remove(i);
-            }
-        }
-        return null;
+        int i = indexOf(nsUri, localName, 0);
+        return i < 0 ? null : remove(i);
     }
 
     /**
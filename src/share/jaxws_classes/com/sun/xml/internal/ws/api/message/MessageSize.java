@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.api.message;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.PropertySet;
+import com.sun.xml.internal.ws.api.pipe.Codec;
+import com.sun.xml.internal.ws.developer.MessageAccountingFeature;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Sizes of the inbound and outbound {@link Message}s of an exchange,
+ * as counted on the wire by the transport and the {@link Codec}s.
+ *
+ * <p>
+ * When {@link MessageAccountingFeature} is enabled, the HTTP transport
+ * adds this satellite to the {@link Packet} it decodes or encodes first,
+ * and it is carried over to the other {@link Packet} of the exchange.
+ * "Inbound" is the request on the server side and the response on the
+ * client side.
+ *
+ * <p>
+ * The inbound counts grow as the inbound message is read, so they are
+ * final only once the message has been consumed.
+ *
+ * @see MessageAccountingFeature
+ */
+public final class MessageSize extends PropertySet {
+
+    public static final String INBOUND_BYTES = "com.sun.xml.internal.ws.api.message.MessageSize.inboundBytes";
+    public static final String OUTBOUND_BYTES = "com.sun.xml.internal.ws.api.message.MessageSize.outboundBytes";
+    public static final String INBOUND_HEADERS = "com.sun.xml.internal.ws.api.message.MessageSize.inboundHeaders";
+    public static final String OUTBOUND_HEADERS = "com.sun.xml.internal.ws.api.message.MessageSize.outboundHeaders";
+    public static final String INBOUND_ATTACHMENTS = "com.sun.xml.internal.ws.api.message.MessageSize.inboundAttachments";
+    public static final String OUTBOUND_ATTACHMENTS = "com.sun.xml.internal.ws.api.message.MessageSize.outboundAttachments";
+    public static final String INBOUND_ATTACHMENT_BYTES = "com.sun.xml.internal.ws.api.message.MessageSize.inboundAttachmentBytes";
+    public static final String OUTBOUND_ATTACHMENT_BYTES = "com.sun.xml.internal.ws.api.message.MessageSize.outboundAttachmentBytes";
+
+    private static final PropertyMap model;
+    static {
+        model = parse(MessageSize.class);
+    }
+
+    private long inboundBytes;
+    private long outboundBytes;
+    private int inboundHeaders;
+    private int outboundHeaders;
+    private int outboundAttachments;
+    private long outboundAttachmentBytes;
+
+    /**
+     * "\r\n--boundary" of a multipart inbound message, or null.
+     */
+    private byte[] inboundDelimiter;
+    /**
+     * Number of bytes of {@link #inboundDelimiter} matched so far.
+     */
+    private int matched;
+    private int inboundDelimiters;
+    /**
+     * {@link #inboundBytes} at the end of the delimiter after the first part.
+     */
+    private long firstPartEnd = -1;
+
+    /**
+     * Returns a stream that counts the bytes read from the given one.
+     */
+    public @NotNull InputStream countInbound(@NotNull InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int ch = super.read();
+                if (ch >= 0) {
+                    inboundBytes++;
+                    if (inboundDelimiter != null)
+                        scan(ch);
+                }
+                return ch;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    if (inboundDelimiter != null) {
+                        for (int i = 0; i < n; i++) {
+                            inboundBytes++;
+                            scan(b[off+i] & 0xFF);
+                        }
+                    } else {
+                        inboundBytes += n;
+                    }
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                if (inboundDelimiter == null) {
+                    long skipped = super.skip(n);
+                    inboundBytes += skipped;
+                    return skipped;
+                }
+                // the bytes have to go through the delimiter scan
+                int r = read(new byte[(int) Math.min(n, 4096)]);
+                return r < 0 ? 0 : r;
+            }
+        };
+    }
+
+    /**
+     * Returns a stream that counts the bytes written to the given one.
+     */
+    public @NotNull OutputStream countOutbound(@NotNull OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                outboundBytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                outboundBytes += len;
+            }
+        };
+    }
+
+    /**
+     * Called by a multipart {@link Codec} before it reads the inbound
+     * message, so that its parts are counted as they go through
+     * {@link #countInbound(InputStream)}.
+     */
+    public void setInboundBoundary(@NotNull String boundary) {
+        byte[] b = new byte[boundary.length()+4];
+        b[0] = '\r';
+        b[1] = '\n';
+        b[2] = '-';
+        b[3] = '-';
+        for (int i = 0; i < boundary.length(); i++)
+            b[i+4] = (byte) boundary.charAt(i);
+        inboundDelimiter = b;
+        // the first delimiter may not be preceded by CRLF
+        matched = inboundBytes == 0 ? 2 : 0;
+    }
+
+    private void scan(int ch) {
+        byte[] d = inboundDelimiter;
+        if (ch == (d[matched] & 0xFF)) {
+            if (++matched == d.length) {
+                if (++inboundDelimiters == 2)
+                    firstPartEnd = inboundBytes;
+                matched = 0;
+            }
+        } else {
+            // the delimiter starts with the only CR in it
+            matched = ch == '\r' ? 1 : 0;
+        }
+    }
+
+    /**
+     * Records the shape of the inbound message, once it is decoded.
+     */
+    public void setInboundMessage(@Nullable Message msg) {
+        inboundHeaders = msg != null && msg.hasHeaders() ? msg.getHeaders().size() : 0;
+    }
+
+    /**
+     * Records the shape of the outbound message, before it is encoded.
+     */
+    public void setOutboundMessage(@Nullable Message msg) {
+        outboundHeaders = msg != null && msg.hasHeaders() ? msg.getHeaders().size() : 0;
+    }
+
+    /**
+     * Called by a multipart {@link Codec} after it wrote the attachments
+     * of the outbound message.
+     *
+     * @param bytes
+     *      the bytes of the attachment parts, including their MIME headers.
+     */
+    public void setOutboundAttachments(int count, long bytes) {
+        outboundAttachments = count;
+        outboundAttachmentBytes = bytes;
+    }
+
+    /**
+     * Bytes of the inbound message read so far, including the MIME parts.
+     */
+    @Property(INBOUND_BYTES)
+    public long getInboundBytes() {
+        return inboundBytes;
+    }
+
+    /**
+     * Bytes of the outbound message written so far, including the MIME parts.
+     */
+    @Property(OUTBOUND_BYTES)
+    public long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    @Property(INBOUND_HEADERS)
+    public int getInboundHeaders() {
+        return inboundHeaders;
+    }
+
+    @Property(OUTBOUND_HEADERS)
+    public int getOutboundHeaders() {
+        return outboundHeaders;
+    }
+
+    /**
+     * Number of attachment parts of the inbound message read so far,
+     * that is all the MIME parts but the first one.
+     */
+    @Property(INBOUND_ATTACHMENTS)
+    public int getInboundAttachments() {
+        // the closing delimiter doesn't start a part
+        return Math.max(inboundDelimiters-2, 0);
+    }
+
+    @Property(OUTBOUND_ATTACHMENTS)
+    public int getOutboundAttachments() {
+        return outboundAttachments;
+    }
+
+    /**
+     * Bytes of the attachment parts of the inbound message read so far.
+     */
+    @Property(INBOUND_ATTACHMENT_BYTES)
+    public long getInboundAttachmentBytes() {
+        return getInboundAttachments() == 0 ? 0 : inboundBytes-firstPartEnd;
+    }
+
+    @Property(OUTBOUND_ATTACHMENT_BYTES)
+    public long getOutboundAttachmentBytes() {
+        return outboundAttachmentBytes;
+    }
+
+    @Override
+    protected PropertyMap getPropertyMap() {
+        return model;
+    }
+}
@@ -41,6 +41,10 @@ import com.sun.xml.internal.ws.api.pipe.helper.PipeAdapter;
 import com.sun.xml.internal.ws.api.server.Container;
 import com.sun.xml.internal.ws.binding.BindingImpl;
 import com.sun.xml.internal.ws.client.ClientSchemaValidationTube;
+import com.sun.xml.internal.ws.client.RequestCoalescingTube;
+import com.sun.xml.internal.ws.client.ResponseCacheTube;
+import com.sun.xml.internal.ws.developer.RequestCoalescingFeature;
+import com.sun.xml.internal.ws.developer.ResponseCachingFeature;
 import com.sun.xml.internal.ws.developer.SchemaValidationFeature;
 import com.sun.xml.internal.ws.developer.WSBindingProvider;
 import com.sun.xml.internal.ws.handler.ClientLogicalHandlerTube;
@@ -287,6 +291,30 @@ public class ClientTubeAssemblerContext {
             return next;
     }
 
+    /**
+     * Creates a {@link Tube} that answers requests of cacheable operations
+     * from the {@link ResponseCachingFeature}'s cache.
+     */
+    public Tube createResponseCacheTube(Tube next) {
+        ResponseCachingFeature feature = binding.getFeature(ResponseCachingFeature.class);
+        if (feature != null && feature.isEnabled() && !feature.getOperations().isEmpty())
+            return new ResponseCacheTube(feature, next);
+        else
+            return next;
+    }
+
+    /**
+     * Creates a {@link Tube} that lets concurrent identical requests of the
+     * {@link RequestCoalescingFeature}'s operations share one exchange.
+     */
+    public Tube createRequestCoalescingTube(Tube next) {
+        RequestCoalescingFeature feature = binding.getFeature(RequestCoalescingFeature.class);
+        if (feature != null && feature.isEnabled() && !feature.getOperations().isEmpty())
+            return new RequestCoalescingTube(feature, next);
+        else
+            return next;
+    }
+
     /**
      * Creates a transport pipe (for client), which becomes the terminal pipe.
      */
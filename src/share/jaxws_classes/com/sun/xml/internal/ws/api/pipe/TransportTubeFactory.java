@@ -29,7 +29,9 @@ import com.sun.istack.internal.NotNull;
 import com.sun.istack.internal.Nullable;
 import com.sun.xml.internal.ws.api.EndpointAddress;
 import com.sun.xml.internal.ws.api.pipe.helper.PipeAdapter;
+import com.sun.xml.internal.ws.developer.LoadBalancingFeature;
 import com.sun.xml.internal.ws.transport.http.client.HttpTransportPipe;
+import com.sun.xml.internal.ws.transport.http.client.LoadBalancingTransportTube;
 import com.sun.xml.internal.ws.util.ServiceFinder;
 import com.sun.xml.internal.ws.util.pipe.StandaloneTubeAssembler;
 
@@ -126,8 +128,12 @@ public abstract class TransportTubeFactory {
         // default built-in transports
         String scheme = context.getAddress().getURI().getScheme();
         if (scheme != null) {
-            if(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+            if(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https")) {
+                LoadBalancingFeature lb = context.getBinding().getFeature(LoadBalancingFeature.class);
+                if (lb != null && lb.isEnabled())
+                    return new LoadBalancingTransportTube(context.getCodec(), context.getBinding(), lb);
                 return new HttpTransportPipe(context.getCodec(), context.getBinding());
+            }
         }
 
         throw new WebServiceException("Unsupported endpoint address: "+context.getAddress());    // TODO: i18n
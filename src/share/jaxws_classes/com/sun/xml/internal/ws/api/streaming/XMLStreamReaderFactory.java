@@ -27,6 +27,7 @@ package com.sun.xml.internal.ws.api.streaming;
 
 import com.sun.istack.internal.NotNull;
 import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.streaming.Utf8XMLStreamReader;
 import com.sun.xml.internal.ws.streaming.XMLReaderException;
 import org.xml.sax.InputSource;
 
@@ -81,6 +82,10 @@ public abstract class XMLStreamReaderFactory {
         if(f==null)
             f = new Default();
 
+        // parse UTF-8 SOAP messages with the specialised parser, the others as before
+        if(getProperty(XMLStreamReaderFactory.class.getName()+".utf8"))
+            f = new Utf8(f);
+
         theInstance = f;
         LOGGER.fine("XMLStreamReaderFactory instance is = "+theInstance);
     }
@@ -183,7 +188,11 @@ public abstract class XMLStreamReaderFactory {
 
     public abstract XMLStreamReader doCreate(String systemId, InputStream in, boolean rejectDTDs);
 
-    private XMLStreamReader doCreate(String systemId, InputStream in, @NotNull String encoding, boolean rejectDTDs) {
+    /**
+     * Creates a reader for a document whose encoding is known, e.g. from the
+     * transport. By default, the document is decoded by a {@link Reader}.
+     */
+    public XMLStreamReader doCreate(String systemId, InputStream in, @NotNull String encoding, boolean rejectDTDs) {
         Reader reader;
         try {
             reader = new InputStreamReader(in, encoding);
@@ -333,6 +342,80 @@ public abstract class XMLStreamReaderFactory {
         }
     }
 
+    /**
+     * {@link XMLStreamReaderFactory} implementation for SOAP messages.
+     *
+     * <p>
+     * UTF-8 documents without a DTD, i.e. nearly all SOAP messages, are parsed
+     * by a {@link Utf8XMLStreamReader} that is reused by the same thread.
+     * Other documents are parsed by another {@link XMLStreamReaderFactory}, and
+     * so are the documents that may have a DTD, e.g. WSDLs.
+     *
+     * <p>
+     * This implementation is used when the system property
+     * <tt>com.sun.xml.internal.ws.api.streaming.XMLStreamReaderFactory.utf8</tt> is true,
+     * or can be {@link XMLStreamReaderFactory#set(XMLStreamReaderFactory) set}.
+     */
+    public static final class Utf8 extends XMLStreamReaderFactory {
+        private final XMLStreamReaderFactory fallback;
+
+        private final ThreadLocal<Utf8XMLStreamReader> pool = new ThreadLocal<Utf8XMLStreamReader>();
+
+        public Utf8() {
+            this(new Default());
+        }
+
+        /**
+         * @param fallback
+         *      creates the readers of the other documents.
+         */
+        public Utf8(@NotNull XMLStreamReaderFactory fallback) {
+            this.fallback = fallback;
+        }
+
+        public XMLStreamReader doCreate(String systemId, InputStream in, boolean rejectDTDs) {
+            if (!rejectDTDs)
+                return fallback.doCreate(systemId, in, rejectDTDs);
+            return createUtf8(systemId, in, true);
+        }
+
+        @Override
+        public XMLStreamReader doCreate(String systemId, InputStream in, @NotNull String encoding, boolean rejectDTDs) {
+            if (!rejectDTDs || !(encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("UTF8")))
+                return fallback.doCreate(systemId, in, encoding, rejectDTDs);
+            return createUtf8(systemId, in, false);
+        }
+
+        public XMLStreamReader doCreate(String systemId, Reader in, boolean rejectDTDs) {
+            return fallback.doCreate(systemId, in, rejectDTDs);
+        }
+
+        public void doRecycle(XMLStreamReader r) {
+            if (r instanceof Utf8XMLStreamReader)
+                pool.set((Utf8XMLStreamReader) r);
+            else
+                fallback.doRecycle(r);
+        }
+
+        private XMLStreamReader createUtf8(String systemId, InputStream in, boolean checkEncoding) {
+            Utf8XMLStreamReader xsr = pool.get();
+            if (xsr == null)
+                xsr = new Utf8XMLStreamReader();
+            else
+                pool.set(null);
+            try {
+                if (xsr.setInput(in, systemId, checkEncoding))
+                    return xsr;
+            } catch (XMLStreamException e) {
+                throw new XMLReaderException("stax.cantCreate",e);
+            }
+            // not UTF-8 after all
+            InputStream document = xsr.getUnreadInput();
+            pool.set(xsr);
+            return fallback.doCreate(systemId, document, true);
+        }
+    }
+
     /**
      * Default {@link XMLStreamReaderFactory} implementation
      * that can work with any {@link XMLInputFactory}.
@@ -39,6 +39,9 @@ import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -78,7 +81,7 @@ public abstract class XMLStreamWriterFactory {
         // this system property can be used to disable the pooling altogether,
         // in case someone hits an issue with pooling in the production system.
         if(!Boolean.getBoolean(XMLStreamWriterFactory.class.getName()+".noPool"))
-            f = Zephyr.newInstance(xof);
+            f = Zephyr.newInstance(xof, WriterPool.newInstance(System.getProperty(XMLStreamWriterFactory.class.getName()+".pool")));
         if(f==null) {
             // is this Woodstox?
             if(xof.getClass().getName().equals("com.ctc.wstx.stax.WstxOutputFactory"))
@@ -202,28 +205,168 @@ public abstract class XMLStreamWriterFactory {
         return create(out,encoding);
     }
 
+    /**
+     * Keeps the {@link XMLStreamWriter}s that a factory can reuse.
+     *
+     * <p>
+     * The default keeps one writer per thread, which suits a bounded pool of
+     * request processing threads. When there are many short-lived threads,
+     * e.g. a thread per request, a {@link #shared(int) shared} pool keeps
+     * fewer writers and reuses them more.
+     *
+     * <p>
+     * Implementations must be thread-safe.
+     */
+    public static abstract class WriterPool {
+        /**
+         * Takes a writer out of the pool.
+         *
+         * @return
+         *      null if there is none.
+         */
+        public abstract @Nullable XMLStreamWriter take();
+
+        /**
+         * Gives back a writer that is no longer used. The pool may drop it.
+         */
+        public abstract void offer(@NotNull XMLStreamWriter w);
+
+        /**
+         * Keeps one writer per thread.
+         */
+        public static WriterPool perThread() {
+            return new WriterPool() {
+                private final ThreadLocal<XMLStreamWriter> pool = new ThreadLocal<XMLStreamWriter>();
+
+                public XMLStreamWriter take() {
+                    XMLStreamWriter w = pool.get();
+                    if (w != null)
+                        pool.set(null);
+                    return w;
+                }
+
+                public void offer(XMLStreamWriter w) {
+                    pool.set(w);
+                }
+            };
+        }
+
+        /**
+         * Keeps up to {@code capacity} writers for all threads.
+         */
+        public static WriterPool shared(final int capacity) {
+            return new WriterPool() {
+                private final Queue<XMLStreamWriter> pool = new ConcurrentLinkedQueue<XMLStreamWriter>();
+                private final AtomicInteger size = new AtomicInteger();
+
+                public XMLStreamWriter take() {
+                    XMLStreamWriter w = pool.poll();
+                    if (w != null)
+                        size.decrementAndGet();
+                    return w;
+                }
+
+                public void offer(XMLStreamWriter w) {
+                    if (size.incrementAndGet() > capacity) {
+                        size.decrementAndGet();
+                        return;
+                    }
+                    pool.offer(w);
+                }
+            };
+        }
+
+        /**
+         * Creates the pool named by the system property
+         * <tt>com.sun.xml.internal.ws.api.streaming.XMLStreamWriterFactory.pool</tt>:
+         * "shared" for a {@link #shared(int) shared} pool, optionally followed by
+         * its capacity like "shared:64", or the default {@link #perThread() per thread} pool.
+         */
+        static WriterPool newInstance(@Nullable String policy) {
+            if (policy != null && policy.startsWith("shared")) {
+                int capacity = Runtime.getRuntime().availableProcessors()*4;
+                int colon = policy.indexOf(':');
+                if (colon != -1) {
+                    try {
+                        capacity = Integer.parseInt(policy.substring(colon+1).trim());
+                    } catch (NumberFormatException e) {
+                        LOGGER.warning("Invalid writer pool capacity, using "+capacity+": "+policy);
+                    }
+                }
+                return shared(capacity);
+            }
+            return perThread();
+        }
+    }
+
     /**
      * Default {@link XMLStreamWriterFactory} implementation
      * that can work with any {@link XMLOutputFactory}.
      *
      * <p>
-     * {@link XMLOutputFactory} is not required to be thread-safe, so the
-     * create method on this implementation is synchronized.
+     * {@link XMLOutputFactory} is not required to be thread-safe, so each
+     * instance is used by one thread at a time. Instead of one synchronized
+     * {@link XMLOutputFactory}, this implementation uses a few of them,
+     * each of them locked separately, and a thread always uses the same one.
+     * The number of these doesn't depend on the number of threads.
+     *
+     * <p>
+     * The writers of an arbitrary StAX implementation can't be reset, so they
+     * are not recycled.
      */
     public static final class Default extends XMLStreamWriterFactory {
-        private final XMLOutputFactory xof;
+        private final XMLOutputFactory[] stripes;
 
         public Default(XMLOutputFactory xof) {
-            this.xof = xof;
+            this(xof, Runtime.getRuntime().availableProcessors()*2);
+        }
+
+        /**
+         * @param concurrency
+         *      the number of threads that may create writers at the same time.
+         */
+        public Default(XMLOutputFactory xof, int concurrency) {
+            int n = 1;
+            while (n < concurrency && n < 64)
+                n <<= 1;
+            XMLOutputFactory[] s = new XMLOutputFactory[n];
+            s[0] = xof;
+            for (int i = 1; i < n; i++) {
+                s[i] = newFactory(xof);
+                if (s[i] == null) {
+                    // can't make more of them, share the given one
+                    s = new XMLOutputFactory[] { xof };
+                    break;
+                }
+            }
+            stripes = s;
+        }
+
+        /**
+         * Creates another {@link XMLOutputFactory} like the given one.
+         */
+        private static @Nullable XMLOutputFactory newFactory(XMLOutputFactory xof) {
+            try {
+                XMLOutputFactory f = xof.getClass().newInstance();
+                f.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES,
+                        xof.getProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES));
+                return f;
+            } catch (Exception e) {
+                return null;
+            }
         }
 
         public XMLStreamWriter doCreate(OutputStream out) {
             return doCreate(out,"UTF-8");
         }
 
-        public synchronized XMLStreamWriter doCreate(OutputStream out, String encoding) {
+        public XMLStreamWriter doCreate(OutputStream out, String encoding) {
+            long id = Thread.currentThread().getId();
+            XMLOutputFactory xof = stripes[(int) (id ^ (id >>> 32)) & (stripes.length-1)];
             try {
-                return xof.createXMLStreamWriter(out,encoding);
+                synchronized (xof) {
+                    return xof.createXMLStreamWriter(out,encoding);
+                }
             } catch (XMLStreamException e) {
                 throw new XMLReaderException("stax.cantCreate",e);
             }
@@ -238,23 +381,28 @@ public abstract class XMLStreamWriterFactory {
      * {@link XMLStreamWriterFactory} implementation for Sun's StaX implementation.
      *
      * <p>
-     * This implementation supports instance reuse.
+     * This implementation supports instance reuse, the {@link WriterPool}
+     * decides how the instances are kept.
      */
     public static final class Zephyr extends XMLStreamWriterFactory {
         private final XMLOutputFactory xof;
-        private final ThreadLocal<XMLStreamWriter> pool = new ThreadLocal<XMLStreamWriter>();
+        private final WriterPool pool;
         private final Method resetMethod;
         private final Method setOutputMethod;
         private final Class zephyrClass;
 
         public static XMLStreamWriterFactory newInstance(XMLOutputFactory xof) {
+            return newInstance(xof, WriterPool.perThread());
+        }
+
+        public static XMLStreamWriterFactory newInstance(XMLOutputFactory xof, @NotNull WriterPool pool) {
             try {
                 Class<?> clazz = xof.createXMLStreamWriter(new StringWriter()).getClass();
 
                 if(!clazz.getName().startsWith("com.sun.xml.internal.stream."))
                 return null;    // nope
 
-                return new Zephyr(xof,clazz);
+                return new Zephyr(xof,clazz,pool);
             } catch (XMLStreamException e) {
                 return null;    // impossible
             } catch (NoSuchMethodException e) {
@@ -262,8 +410,9 @@ public abstract class XMLStreamWriterFactory {
             }
         }
 
-        private Zephyr(XMLOutputFactory xof, Class clazz) throws NoSuchMethodException {
+        private Zephyr(XMLOutputFactory xof, Class clazz, WriterPool pool) throws NoSuchMethodException {
             this.xof = xof;
+            this.pool = pool;
 
             zephyrClass = clazz;
             setOutputMethod = clazz.getMethod("setOutput", StreamResult.class, String.class);
@@ -274,10 +423,7 @@ public abstract class XMLStreamWriterFactory {
          * Fetchs an instance from the pool if available, otherwise null.
          */
         private @Nullable XMLStreamWriter fetch() {
-            XMLStreamWriter sr = pool.get();
-            if(sr==null)    return null;
-            pool.set(null);
-            return sr;
+            return pool.take();
         }
 
         public XMLStreamWriter doCreate(OutputStream out) {
@@ -315,7 +461,7 @@ public abstract class XMLStreamWriterFactory {
                 } catch (XMLStreamException e) {
                     throw new WebServiceException(e);
                 }
-                pool.set(r);
+                pool.offer(r);
             }
             if(r instanceof RecycleAware)
                 ((RecycleAware)r).onRecycled();
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.pipe.Fiber;
+import com.sun.xml.internal.ws.developer.RequestCoalescingFeature;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requests that are in flight, and the suspended {@link Fiber}s of the
+ * identical requests waiting for their responses.
+ *
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see RequestCoalescingFeature
+ * @see RequestCoalescingTube
+ */
+public final class InflightRequests {
+
+    private final ConcurrentMap<RequestKey, Flight> flights = new ConcurrentHashMap<RequestKey, Flight>();
+
+    private final AtomicLong exchanges = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Number of distinct requests currently in flight.
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * Number of requests that went over the wire.
+     */
+    public long getExchangeCount() {
+        return exchanges.get();
+    }
+
+    /**
+     * Number of requests that were answered with the response of another request.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Joins the flight of an identical request, if there is one.
+     *
+     * @return
+     *      non-null if the caller's request has to go over the wire. It must then
+     *      {@link Flight#land(Packet) land} or {@link Flight#crash(Throwable) crash}
+     *      the returned flight. Otherwise the flight of the identical request
+     *      will resume the current fiber, and the caller must suspend it.
+     */
+    /*package*/ @Nullable Flight join(@NotNull RequestKey key, @NotNull Packet request) {
+        Flight mine = new Flight(key);
+        while (true) {
+            Flight other = flights.putIfAbsent(key, mine);
+            if (other == null) {
+                exchanges.incrementAndGet();
+                mine.requestProperties = new HashSet<String>(request.invocationProperties.keySet());
+                return mine;
+            }
+            if (other.addWaiter(Fiber.current(), request)) {
+                coalesced.incrementAndGet();
+                return null;
+            }
+            // that one has just landed, try again
+            flights.remove(key, other);
+        }
+    }
+
+    /**
+     * One exchange with the server that is shared by identical requests.
+     */
+    /*package*/ final class Flight {
+        private final RequestKey key;
+        /**
+         * Names of the invocation properties of the request that went over
+         * the wire, before it did. The others were set by the exchange.
+         */
+        private Set<String> requestProperties;
+        // guarded by this
+        private final List<Fiber> fibers = new ArrayList<Fiber>();
+        private final List<Packet> requests = new ArrayList<Packet>();
+        private boolean landed;
+
+        Flight(RequestKey key) {
+            this.key = key;
+        }
+
+        synchronized boolean addWaiter(Fiber fiber, Packet request) {
+            if (landed)
+                return false;
+            fibers.add(fiber);
+            requests.add(request);
+            return true;
+        }
+
+        /**
+         * Resumes every waiting fiber with its own copy of the response.
+         *
+         * <p>
+         * Each copy also gets the satellites of the response, like the HTTP
+         * response properties, and the invocation properties that the
+         * exchange set, so the response contexts are the same as the one of
+         * the request that went over the wire.
+         */
+        void land(@NotNull Packet response) {
+            flights.remove(key, this);
+            synchronized (this) {
+                landed = true;
+            }
+            Message msg = response.getMessage();
+            for (int i = 0; i < fibers.size(); i++) {
+                Message copy = (msg == null) ? null : msg.copy();
+                Packet reply = requests.get(i).createClientResponse(copy);
+                // the waiter's own satellites come first, so they still win
+                response.copySatelliteInto(reply);
+                for (Map.Entry<String,Object> e : response.invocationProperties.entrySet()) {
+                    if (!requestProperties.contains(e.getKey()) && !reply.invocationProperties.containsKey(e.getKey()))
+                        reply.invocationProperties.put(e.getKey(), e.getValue());
+                }
+                fibers.get(i).resume(reply);
+            }
+        }
+
+        /**
+         * Fails every waiting fiber with the same error.
+         */
+        void crash(@NotNull Throwable error) {
+            flights.remove(key, this);
+            synchronized (this) {
+                landed = true;
+            }
+            for (Fiber fiber : fibers) {
+                fiber.resume(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.pipe.Fiber;
+import com.sun.xml.internal.ws.api.pipe.NextAction;
+import com.sun.xml.internal.ws.api.pipe.Tube;
+import com.sun.xml.internal.ws.api.pipe.TubeCloner;
+import com.sun.xml.internal.ws.api.pipe.helper.AbstractFilterTubeImpl;
+import com.sun.xml.internal.ws.api.pipe.helper.AbstractTubeImpl;
+import com.sun.xml.internal.ws.developer.RequestCoalescingFeature;
+
+import java.security.MessageDigest;
+
+/**
+ * {@link Tube} that lets concurrent identical requests share one exchange.
+ *
+ * <p>
+ * The first of the identical requests goes down the tubeline as usual.
+ * The others suspend their {@link Fiber} without blocking a thread, and are
+ * resumed with a {@link com.sun.xml.internal.ws.api.message.Message#copy() copy}
+ * of the response (or with the error) once the first one comes back. The
+ * satellites of the response and the invocation properties set by the
+ * exchange are passed on too, so all the callers see the same response context.
+ *
+ * @see RequestCoalescingFeature
+ */
+public class RequestCoalescingTube extends AbstractFilterTubeImpl {
+
+    private final RequestCoalescingFeature feature;
+    private final InflightRequests inflight;
+    private final MessageDigest md;
+
+    /**
+     * Flight of the request in progress, if this tube sent it over the wire
+     * on behalf of identical requests.
+     */
+    private InflightRequests.Flight flight;
+
+    public RequestCoalescingTube(RequestCoalescingFeature feature, Tube next) {
+        super(next);
+        this.feature = feature;
+        this.inflight = feature.getInflightRequests();
+        this.md = RequestKey.createDigest();
+    }
+
+    protected RequestCoalescingTube(RequestCoalescingTube that, TubeCloner cloner) {
+        super(that, cloner);
+        this.feature = that.feature;
+        this.inflight = that.inflight;
+        this.md = RequestKey.createDigest();
+    }
+
+    public AbstractTubeImpl copy(TubeCloner cloner) {
+        return new RequestCoalescingTube(this, cloner);
+    }
+
+    @Override
+    public @NotNull NextAction processRequest(Packet request) {
+        flight = null;
+        RequestKey key = RequestKey.create(request, feature.getOperations(), md);
+        if (key == null)
+            return super.processRequest(request);
+        flight = inflight.join(key, request);
+        if (flight == null) {
+            // an identical request is in flight, and will resume us with its response
+            return doSuspend();
+        }
+        return super.processRequest(request);
+    }
+
+    @Override
+    public @NotNull NextAction processResponse(Packet response) {
+        InflightRequests.Flight f = flight;
+        if (f != null) {
+            flight = null;
+            f.land(response);
+        }
+        return super.processResponse(response);
+    }
+
+    @Override
+    public @NotNull NextAction processException(Throwable t) {
+        InflightRequests.Flight f = flight;
+        if (f != null) {
+            flight = null;
+            f.crash(t);
+        }
+        return super.processException(t);
+    }
+}
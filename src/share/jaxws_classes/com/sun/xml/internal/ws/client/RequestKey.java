@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.EndpointAddress;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.Packet;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.WebServiceException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Identifies a request by its operation, destination and a canonical
+ * digest of its payload, so that identical requests can share a response.
+ *
+ * @see ResponseCacheTube
+ * @see RequestCoalescingTube
+ */
+/*package*/ final class RequestKey {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final QName operation;
+    private final EndpointAddress address;
+    private final byte[] digest;
+    private final int hash;
+
+    private RequestKey(@NotNull QName operation, @Nullable EndpointAddress address, @NotNull byte[] digest) {
+        this.operation = operation;
+        this.address = address;
+        this.digest = digest;
+        int h = operation.hashCode();
+        h = 31 * h + (address == null ? 0 : address.toString().hashCode());
+        this.hash = 31 * h + Arrays.hashCode(digest);
+    }
+
+    /**
+     * Computes the key of a request.
+     *
+     * @param operations
+     *      operations whose requests may share a response.
+     * @param md
+     *      used to digest the payload. Not thread-safe, so each tube brings its own.
+     * @return
+     *      null if the request is not for one of the given operations, or
+     *      if it can't share a response, e.g. because it has attachments.
+     */
+    static @Nullable RequestKey create(@NotNull Packet request, @NotNull Set<QName> operations, @NotNull MessageDigest md) {
+        Message msg = request.getMessage();
+        if (msg == null || !msg.hasPayload() || !msg.getAttachments().isEmpty())
+            return null;
+        QName op = request.getWSDLOperation();
+        if (op == null || !operations.contains(op))
+            return null;
+        try {
+            return new RequestKey(op, request.endpointAddress, digest(msg.copy(), md));
+        } catch (XMLStreamException e) {
+            throw new WebServiceException(e);
+        }
+    }
+
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new WebServiceException(e);
+        }
+    }
+
+    /**
+     * Computes a digest of the payload infoset that doesn't depend on
+     * namespace prefixes, namespace declarations or attribute order.
+     */
+    private static byte[] digest(Message msg, MessageDigest md) throws XMLStreamException {
+        md.reset();
+        XMLStreamReader r = msg.readPayload();
+        int depth = 0;
+        boolean inText = false;
+        do {
+            int event = r.getEventType();
+            boolean text = event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE;
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                md.update((byte) '<');
+                update(md, r.getNamespaceURI());
+                update(md, r.getLocalName());
+                int len = r.getAttributeCount();
+                if (len > 0) {
+                    String[] atts = new String[len];
+                    for (int i = 0; i < len; i++) {
+                        String ns = r.getAttributeNamespace(i);
+                        atts[i] = '{' + (ns == null ? "" : ns) + '}' + r.getAttributeLocalName(i)
+                                + '\u0000' + r.getAttributeValue(i);
+                    }
+                    Arrays.sort(atts);
+                    for (String att : atts) {
+                        md.update((byte) '@');
+                        update(md, att);
+                    }
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                md.update((byte) '>');
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                // the parser may split a text node into several events
+                if (!inText)
+                    md.update((byte) '#');
+                md.update(r.getText().getBytes(UTF8));
+                break;
+            default:
+                // comments and processing instructions don't matter
+            }
+            if (inText && !text)
+                md.update((byte) 0);
+            inText = text;
+            if (depth == 0)
+                break;
+            r.next();
+        } while (true);
+        msg.consume();
+        return md.digest();
+    }
+
+    private static void update(MessageDigest md, String s) {
+        if (s != null)
+            md.update(s.getBytes(UTF8));
+        md.update((byte) 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RequestKey))
+            return false;
+        RequestKey that = (RequestKey) o;
+        return hash == that.hash
+                && operation.equals(that.operation)
+                && Arrays.equals(digest, that.digest)
+                && (address == null ? that.address == null
+                    : that.address != null && address.toString().equals(that.address.toString()));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.internal.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.Messages;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.pipe.NextAction;
+import com.sun.xml.internal.ws.api.pipe.Tube;
+import com.sun.xml.internal.ws.api.pipe.TubeCloner;
+import com.sun.xml.internal.ws.api.pipe.helper.AbstractFilterTubeImpl;
+import com.sun.xml.internal.ws.api.pipe.helper.AbstractTubeImpl;
+import com.sun.xml.internal.ws.developer.ResponseCachingFeature;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.ws.WebServiceException;
+import java.security.MessageDigest;
+
+/**
+ * {@link Tube} that answers requests for cacheable operations from a
+ * {@link ResponseCache}, and fills the cache with their responses.
+ *
+ * <p>
+ * A cache hit returns a new {@link Message} over the cached envelope
+ * right away, so the rest of the tubeline, the transport and the
+ * decoding of the response are skipped.
+ *
+ * @see ResponseCachingFeature
+ */
+public class ResponseCacheTube extends AbstractFilterTubeImpl {
+
+    private final ResponseCachingFeature feature;
+    private final ResponseCache cache;
+    private final MessageDigest md;
+
+    /**
+     * Key of the request in progress, or null if its response isn't cached.
+     */
+    private RequestKey pending;
+
+    public ResponseCacheTube(ResponseCachingFeature feature, Tube next) {
+        super(next);
+        this.feature = feature;
+        this.cache = feature.getCache();
+        this.md = RequestKey.createDigest();
+    }
+
+    protected ResponseCacheTube(ResponseCacheTube that, TubeCloner cloner) {
+        super(that, cloner);
+        this.feature = that.feature;
+        this.cache = that.cache;
+        this.md = RequestKey.createDigest();
+    }
+
+    public AbstractTubeImpl copy(TubeCloner cloner) {
+        return new ResponseCacheTube(this, cloner);
+    }
+
+    @Override
+    public @NotNull NextAction processRequest(Packet request) {
+        pending = null;
+        RequestKey key = RequestKey.create(request, feature.getOperations(), md);
+        if (key == null)
+            return super.processRequest(request);
+        XMLStreamBuffer envelope = cache.get(key);
+        if (envelope != null) {
+            return doReturnWith(request.createClientResponse(Messages.create(envelope)));
+        }
+        pending = key;
+        return super.processRequest(request);
+    }
+
+    @Override
+    public @NotNull NextAction processResponse(Packet response) {
+        RequestKey key = pending;
+        pending = null;
+        Message msg = response.getMessage();
+        if (key != null && msg != null && !msg.isFault() && msg.getAttachments().isEmpty()) {
+            MutableXMLStreamBuffer envelope = new MutableXMLStreamBuffer();
+            try {
+                XMLStreamWriter w = envelope.createFromXMLStreamWriter();
+                msg.writeTo(w);
+                w.flush();
+            } catch (XMLStreamException e) {
+                throw new WebServiceException(e);
+            }
+            cache.put(key, envelope);
+            // the original message has been consumed
+            response.setMessage(Messages.create(envelope));
+        }
+        return super.processResponse(response);
+    }
+
+    @Override
+    public @NotNull NextAction processException(Throwable t) {
+        pending = null;
+        return super.processException(t);
+    }
+}
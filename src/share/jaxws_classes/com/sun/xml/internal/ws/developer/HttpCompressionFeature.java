@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.transport.http.client.RequestCompressor;
+
+import javax.xml.ws.WebServiceFeature;
+import java.util.zip.Deflater;
+
+/**
+ * {@link WebServiceFeature} that gzips HTTP requests of a proxy that are
+ * large enough to make it worthwhile.
+ *
+ * <p>
+ * A request is compressed when its encoded size is at least the configured
+ * threshold and the endpoint hasn't rejected compressed requests before.
+ * When the server responds with 415 (Unsupported Media Type) to a compressed
+ * request, the request is sent again uncompressed and the endpoint address
+ * is remembered so that it is no longer sent compressed requests.
+ *
+ * <p>
+ * The feature also sends {@code Accept-Encoding: gzip} so that the server
+ * may compress the responses. Compression ratio and CPU time are reported
+ * by {@link #getCompressor()}, and are shared by all the proxies created
+ * with the same feature instance.
+ *
+ * <p>
+ * Requests that already have a {@code Content-Encoding} header, set by the
+ * application with {@link javax.xml.ws.handler.MessageContext#HTTP_REQUEST_HEADERS},
+ * are left alone.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ */
+public final class HttpCompressionFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link HttpCompressionFeature} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/http-compression";
+
+    /**
+     * Default size, in bytes, below which requests are not compressed.
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private final RequestCompressor compressor;
+
+    /**
+     * Compresses requests of at least {@link #DEFAULT_THRESHOLD} bytes
+     * with the default compression level.
+     */
+    public HttpCompressionFeature() {
+        this(DEFAULT_THRESHOLD, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param threshold
+     *      size in bytes from which a request is compressed.
+     * @param level
+     *      {@link Deflater} compression level, 0-9 or
+     *      {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public HttpCompressionFeature(int threshold, int level) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold="+threshold);
+        }
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("level="+level);
+        }
+        this.enabled = true;
+        this.compressor = new RequestCompressor(threshold, level);
+    }
+
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Gets the compressor, and its statistics, shared by all the transport
+     * tubes of the proxies created with this feature.
+     */
+    public @NotNull RequestCompressor getCompressor() {
+        return compressor;
+    }
+}
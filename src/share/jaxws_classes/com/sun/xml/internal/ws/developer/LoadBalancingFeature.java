@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.EndpointAddress;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.transport.http.client.EndpointAddressBalancer;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.WebServiceFeature;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spreads the requests of a proxy over several {@link EndpointAddress}es
+ * of replicas of the same service, and optionally hedges idempotent
+ * requests against a slow replica.
+ *
+ * <p>
+ * Every request is sent to the address chosen by the configured
+ * {@link Policy}. If a hedge percentile is configured, a request for an
+ * idempotent operation that hasn't been answered within that latency
+ * percentile of the chosen address is sent once more to another address.
+ * Whichever answers first wins, the other exchange is cancelled.
+ *
+ * <pre>
+ * LoadBalancingFeature feature = new LoadBalancingFeature(addresses,
+ *         LoadBalancingFeature.Policy.EWMA_LATENCY, 0.95, idempotentOperations);
+ * proxy = HelloService().getHelloPort(feature);
+ * ...
+ * Map&lt;EndpointAddress, EndpointAddressBalancer.Statistics> stats = feature.getStatistics();
+ * </pre>
+ *
+ * <p>
+ * The request context's {@link javax.xml.ws.BindingProvider#ENDPOINT_ADDRESS_PROPERTY}
+ * only selects the HTTP transport; the actual destination is always one of the
+ * addresses given to this feature. An application may mark an individual
+ * request as idempotent by setting {@link #IDEMPOTENT_PROPERTY} to
+ * {@link Boolean#TRUE} in the request context.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ *
+ * @see com.sun.xml.internal.ws.transport.http.client.LoadBalancingTransportTube
+ */
+public final class LoadBalancingFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link LoadBalancingFeature} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/load-balancing";
+
+    /**
+     * Request context property that marks a single request as idempotent
+     * (and thus safe to hedge), regardless of its operation.
+     */
+    public static final String IDEMPOTENT_PROPERTY = "com.sun.xml.internal.ws.client.idempotent";
+
+    /**
+     * How an address is chosen for a request.
+     */
+    public enum Policy {
+        /**
+         * Picks the address with the fewest requests in flight.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Picks the address with the lowest exponentially weighted moving
+         * average of its response latency, weighted by its requests in flight.
+         */
+        EWMA_LATENCY
+    }
+
+    private final EndpointAddressBalancer balancer;
+    private final double hedgePercentile;
+    private final Set<QName> idempotentOperations;
+
+    /**
+     * Balances requests without hedging.
+     */
+    public LoadBalancingFeature(@NotNull List<EndpointAddress> addresses, @NotNull Policy policy) {
+        this(addresses, policy, 0, Collections.<QName>emptySet());
+    }
+
+    /**
+     * @param addresses
+     *      addresses of the replicas, at least one.
+     * @param policy
+     *      how an address is chosen for a request.
+     * @param hedgePercentile
+     *      latency percentile of the chosen address, between 0 and 1
+     *      (exclusive), after which an idempotent request is hedged.
+     *      0 disables hedging.
+     * @param idempotentOperations
+     *      WSDL operations that are safe to send more than once.
+     */
+    public LoadBalancingFeature(@NotNull List<EndpointAddress> addresses, @NotNull Policy policy,
+                                double hedgePercentile, @NotNull Set<QName> idempotentOperations) {
+        if (addresses.isEmpty())
+            throw new WebServiceException("LoadBalancingFeature needs at least one endpoint address");  // TODO: i18n
+        if (hedgePercentile < 0 || hedgePercentile >= 1)
+            throw new IllegalArgumentException("hedgePercentile must be in [0,1): " + hedgePercentile);
+        this.enabled = true;
+        this.balancer = new EndpointAddressBalancer(addresses, policy);
+        this.hedgePercentile = hedgePercentile;
+        this.idempotentOperations = Collections.unmodifiableSet(new HashSet<QName>(idempotentOperations));
+    }
+
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Gets the balancer that is shared by all the transport tubes of the proxy.
+     */
+    public @NotNull EndpointAddressBalancer getBalancer() {
+        return balancer;
+    }
+
+    public @NotNull Policy getPolicy() {
+        return balancer.getPolicy();
+    }
+
+    /**
+     * @return
+     *      latency percentile after which idempotent requests are hedged,
+     *      or 0 if hedging is disabled.
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public @NotNull Set<QName> getIdempotentOperations() {
+        return idempotentOperations;
+    }
+
+    /**
+     * Checks if the request may be sent more than once.
+     */
+    public boolean isIdempotent(@NotNull Packet request) {
+        Object marker = request.invocationProperties.get(IDEMPOTENT_PROPERTY);
+        if (marker != null)
+            return Boolean.TRUE.equals(marker);
+        if (idempotentOperations.isEmpty())
+            return false;
+        QName op = request.getWSDLOperation();
+        return op != null && idempotentOperations.contains(op);
+    }
+
+    /**
+     * Gets a live view of the latency statistics of every address.
+     */
+    public @NotNull Map<EndpointAddress, EndpointAddressBalancer.Statistics> getStatistics() {
+        return balancer.getStatistics();
+    }
+}
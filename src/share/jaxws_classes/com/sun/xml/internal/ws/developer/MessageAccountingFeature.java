@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.FeatureConstructor;
+import com.sun.xml.internal.ws.api.message.MessageSize;
+import com.sun.xml.internal.ws.server.MessageSizeStatistics;
+
+import javax.xml.ws.WebServiceFeature;
+
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+/**
+ * {@link WebServiceFeature} that counts the size and shape of the messages
+ * sent and received over HTTP.
+ *
+ * <p>
+ * Each exchange carries a {@link MessageSize} satellite with the bytes,
+ * SOAP headers and attachments of its inbound and outbound messages.
+ * On an endpoint, the exchanges are also totalled per WSDL operation in
+ * {@link #getStatistics()}, which is shown by the endpoint monitoring.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ *
+ * @see MessageAccounting
+ */
+@ManagedData
+public final class MessageAccountingFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link MessageAccounting} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/message-accounting";
+
+    private final MessageSizeStatistics statistics = new MessageSizeStatistics();
+
+    public MessageAccountingFeature() {
+        this(true);
+    }
+
+    @FeatureConstructor({"enabled"})
+    public MessageAccountingFeature(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @ManagedAttribute
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Gets the per-operation totals of the endpoint this feature is enabled on.
+     */
+    public @NotNull MessageSizeStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import javax.xml.ws.spi.WebServiceFeatureAnnotation;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Bounds the size and shape of the messages received by an endpoint,
+ * or by a client for the responses. A negative limit means no limit.
+ *
+ * <pre>
+ * for e.g.:
+ *
+ * &#64;WebService
+ * &#64;MessageLimits(maxMessageSize=1048576, maxDepth=64)
+ * public class StockQuoteImpl {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @see MessageLimitsFeature
+ */
+@Retention(RUNTIME)
+@Target({TYPE, ElementType.METHOD, ElementType.FIELD})
+@Documented
+@WebServiceFeatureAnnotation(id = MessageLimitsFeature.ID, bean = MessageLimitsFeature.class)
+public @interface MessageLimits {
+
+    /**
+     * Specifies if this feature is enabled or disabled.
+     */
+    boolean enabled() default true;
+
+    /**
+     * Largest number of bytes in a message.
+     */
+    long maxMessageSize() default -1;
+
+    /**
+     * Deepest nesting of elements, the SOAP envelope being at depth 1.
+     */
+    int maxDepth() default -1;
+
+    /**
+     * Largest number of elements in a message.
+     */
+    int maxElements() default -1;
+
+    /**
+     * Largest number of attributes and namespace declarations on one element.
+     */
+    int maxAttributes() default -1;
+
+    /**
+     * Largest number of characters in one text node.
+     */
+    int maxTextLength() default -1;
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.xml.internal.ws.api.FeatureConstructor;
+
+import javax.xml.ws.WebServiceFeature;
+
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+/**
+ * {@link WebServiceFeature} that bounds the size and shape of the messages
+ * a binding decodes.
+ *
+ * <p>
+ * The limits are checked while the message is read, so that an oversized
+ * or deeply nested message is rejected with a SOAP fault before it is
+ * buffered or unmarshalled. A negative limit means no limit. When the
+ * feature is not enabled, messages are read without any check.
+ *
+ * <p>
+ * The byte limit applies to the whole message, attachments included. The
+ * other limits apply to the XML infoset of the SOAP envelope.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ *
+ * @see MessageLimits
+ */
+@ManagedData
+public final class MessageLimitsFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link MessageLimits} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/message-limits";
+
+    /**
+     * Value of a limit that is not checked.
+     */
+    public static final int UNLIMITED = -1;
+
+    private final long maxMessageSize;
+    private final int maxDepth;
+    private final int maxElements;
+    private final int maxAttributes;
+    private final int maxTextLength;
+
+    public MessageLimitsFeature() {
+        this(true, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @param enabled
+     *      true to enable the feature
+     * @param maxMessageSize
+     *      largest number of bytes in a message
+     * @param maxDepth
+     *      deepest nesting of elements, the SOAP envelope being at depth 1
+     * @param maxElements
+     *      largest number of elements in a message
+     * @param maxAttributes
+     *      largest number of attributes and namespace declarations on one element
+     * @param maxTextLength
+     *      largest number of characters in one text node
+     */
+    @FeatureConstructor({"enabled", "maxMessageSize", "maxDepth", "maxElements", "maxAttributes", "maxTextLength"})
+    public MessageLimitsFeature(boolean enabled, long maxMessageSize, int maxDepth,
+                                int maxElements, int maxAttributes, int maxTextLength) {
+        this.enabled = enabled;
+        this.maxMessageSize = maxMessageSize;
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.maxAttributes = maxAttributes;
+        this.maxTextLength = maxTextLength;
+    }
+
+    @ManagedAttribute
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Largest number of bytes in a message, or {@link #UNLIMITED}.
+     */
+    @ManagedAttribute
+    public long getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * Deepest nesting of elements, or {@link #UNLIMITED}.
+     * The SOAP envelope is at depth 1.
+     */
+    @ManagedAttribute
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Largest number of elements in a message, or {@link #UNLIMITED}.
+     */
+    @ManagedAttribute
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    /**
+     * Largest number of attributes and namespace declarations on one
+     * element, or {@link #UNLIMITED}.
+     */
+    @ManagedAttribute
+    public int getMaxAttributes() {
+        return maxAttributes;
+    }
+
+    /**
+     * Largest number of characters in one text node, or {@link #UNLIMITED}.
+     */
+    @ManagedAttribute
+    public int getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    /**
+     * True if any of the infoset limits, that is all but
+     * {@link #getMaxMessageSize()}, is set.
+     */
+    public boolean hasInfosetLimits() {
+        return maxDepth >= 0 || maxElements >= 0 || maxAttributes >= 0 || maxTextLength >= 0;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.xml.internal.ws.api.FeatureConstructor;
+
+import javax.xml.ws.WebServiceFeature;
+
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+/**
+ * {@link WebServiceFeature} that lets a routing intermediary forward the
+ * SOAP Body of a message as the bytes it received.
+ *
+ * <p>
+ * A plain XML SOAP message in UTF-8 is read in memory, and the codec records
+ * where the content of its Body is. If nothing reads the payload before the
+ * message is written again, the Body content is copied verbatim instead of
+ * being parsed and serialized. Headers can still be read and changed, they
+ * are written as usual.
+ *
+ * <p>
+ * Messages larger than {@link #getMaxMessageSize()}, MIME multipart and
+ * Fast Infoset messages are decoded as usual.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ */
+@ManagedData
+public final class PayloadPassThroughFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link PayloadPassThroughFeature} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/payload-pass-through";
+
+    /**
+     * Default value of {@link #getMaxMessageSize()}.
+     */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 1024*1024;
+
+    private final int maxMessageSize;
+
+    public PayloadPassThroughFeature() {
+        this(true, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * @param enabled
+     *      true to enable the feature
+     * @param maxMessageSize
+     *      size in bytes of the largest message that is kept in memory
+     *      for the pass-through.
+     */
+    @FeatureConstructor({"enabled", "maxMessageSize"})
+    public PayloadPassThroughFeature(boolean enabled, int maxMessageSize) {
+        if (maxMessageSize <= 0)
+            throw new IllegalArgumentException("maxMessageSize must be positive: " + maxMessageSize);
+        this.enabled = enabled;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @ManagedAttribute
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * Size in bytes of the largest message that is kept in memory for the
+     * pass-through. Larger messages are streamed as usual.
+     */
+    @ManagedAttribute
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.client.InflightRequests;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.WebServiceFeature;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link WebServiceFeature} that makes concurrent identical requests of a
+ * proxy share one exchange with the server ("single flight").
+ *
+ * <p>
+ * While a request for one of the configured operations is in flight, any
+ * other request with the same endpoint address, operation and payload
+ * doesn't go over the wire. Its {@link com.sun.xml.internal.ws.api.pipe.Fiber}
+ * is suspended instead, and resumed with its own copy of the response of
+ * the request in flight. Only idempotent operations should be configured.
+ *
+ * <p>
+ * Requests are coalesced across all the proxies created with the same
+ * feature instance.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ *
+ * @see com.sun.xml.internal.ws.client.RequestCoalescingTube
+ */
+public final class RequestCoalescingFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link RequestCoalescingFeature} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/request-coalescing";
+
+    private final Set<QName> operations;
+
+    private final InflightRequests inflight = new InflightRequests();
+
+    /**
+     * @param operations
+     *      idempotent WSDL operations whose concurrent requests are coalesced.
+     */
+    public RequestCoalescingFeature(@NotNull Set<QName> operations) {
+        this.enabled = true;
+        this.operations = Collections.unmodifiableSet(new HashSet<QName>(operations));
+    }
+
+    public String getID() {
+        return ID;
+    }
+
+    public @NotNull Set<QName> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Gets the requests in flight, shared by all the tubes of the proxies
+     * created with this feature.
+     */
+    public @NotNull InflightRequests getInflightRequests() {
+        return inflight;
+    }
+}
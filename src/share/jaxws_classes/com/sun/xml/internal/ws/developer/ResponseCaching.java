@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import javax.xml.ws.spi.WebServiceFeatureAnnotation;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Caches the responses of idempotent, read-only operations on the client side.
+ * To use this feature, annotate the web service reference with this annotation.
+ *
+ * <pre>
+ * for e.g.:
+ *
+ * &#64;WebServiceRef(StockService.class)
+ * &#64;ResponseCaching(operations={"{http://example.com/stock}getQuote"}, timeToLive=5000)
+ * StockQuote port;
+ * </pre>
+ *
+ * @see ResponseCachingFeature
+ */
+@Retention(RUNTIME)
+@Target({TYPE, ElementType.METHOD, ElementType.FIELD})
+@Documented
+@WebServiceFeatureAnnotation(id = ResponseCachingFeature.ID, bean = ResponseCachingFeature.class)
+public @interface ResponseCaching {
+
+    /**
+     * Specifies if this feature is enabled or disabled.
+     */
+    boolean enabled() default true;
+
+    /**
+     * WSDL operations whose responses are cached, in the <tt>{namespace}localPart</tt>
+     * form of {@link javax.xml.namespace.QName#toString()}.
+     */
+    String[] operations() default {};
+
+    /**
+     * Maximum number of cached responses. The least recently used one
+     * is evicted when the cache is full.
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Time in milliseconds after which a cached response is no longer used.
+     */
+    long timeToLive() default 60000;
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.developer;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.FeatureConstructor;
+import com.sun.xml.internal.ws.client.ResponseCache;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.WebServiceFeature;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+/**
+ * {@link WebServiceFeature} that caches the responses of idempotent,
+ * read-only operations on the client side.
+ *
+ * <p>
+ * A request to one of the configured operations is looked up by its
+ * operation, endpoint address and a canonical digest of its payload. A hit
+ * is answered from the cache without going over the wire; a successful,
+ * non-fault response without attachments is stored as an immutable
+ * {@link com.sun.xml.internal.stream.buffer.XMLStreamBuffer}.
+ *
+ * <p>
+ * The cache is owned by this feature, so it is shared by all the
+ * {@link com.sun.xml.internal.ws.api.pipe.Tube}lines of a proxy,
+ * and by all the proxies created with the same feature instance.
+ *
+ * <p>
+ * <b>THIS feature IS EXPERIMENTAL AND IS SUBJECT TO CHANGE WITHOUT NOTICE IN FUTURE.</b>
+ *
+ * @see ResponseCaching
+ */
+@ManagedData
+public final class ResponseCachingFeature extends WebServiceFeature {
+    /**
+     * Constant value identifying the {@link ResponseCaching} feature.
+     */
+    public static final String ID = "http://jax-ws.java.net/features/response-caching";
+
+    private final Set<QName> operations;
+    private final ResponseCache cache;
+
+    /**
+     * @param operations
+     *      WSDL operations whose responses are cached.
+     * @param maxEntries
+     *      maximum number of cached responses.
+     * @param timeToLive
+     *      time in milliseconds after which a cached response is no longer used.
+     */
+    public ResponseCachingFeature(@NotNull Set<QName> operations, int maxEntries, long timeToLive) {
+        this(true, operations, maxEntries, timeToLive);
+    }
+
+    @FeatureConstructor({"enabled", "operations", "maxEntries", "timeToLive"})
+    public ResponseCachingFeature(boolean enabled, String[] operations, int maxEntries, long timeToLive) {
+        this(enabled, toQNames(operations), maxEntries, timeToLive);
+    }
+
+    private ResponseCachingFeature(boolean enabled, Set<QName> operations, int maxEntries, long timeToLive) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.enabled = enabled;
+        this.operations = Collections.unmodifiableSet(new HashSet<QName>(operations));
+        this.cache = new ResponseCache(maxEntries, timeToLive);
+    }
+
+    private static Set<QName> toQNames(String[] operations) {
+        Set<QName> r = new HashSet<QName>();
+        for (String op : operations)
+            r.add(QName.valueOf(op));
+        return r;
+    }
+
+    @ManagedAttribute
+    public String getID() {
+        return ID;
+    }
+
+    /**
+     * WSDL operations whose responses are cached.
+     */
+    public @NotNull Set<QName> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Gets the cache shared by all the proxies created with this feature,
+     * for its hit/miss statistics or to {@link ResponseCache#clear() clear} it.
+     */
+    public @NotNull ResponseCache getCache() {
+        return cache;
+    }
+}
@@ -74,4 +74,12 @@ public @interface StreamingAttachment {
      */
     long memoryThreshold() default 1048576L;
 
+    /**
+     * The content of an attachment part is skipped, instead of being stored,
+     * if it isn't asked for before the MIME message is parsed up to it.
+     * For example, the attachments of an MTOM message that are referenced
+     * from the SOAP body are kept and the others are skipped.
+     */
+    boolean skipUnrequestedParts() default false;
+
 }
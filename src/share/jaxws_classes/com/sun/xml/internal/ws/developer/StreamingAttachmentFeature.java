@@ -64,16 +64,22 @@ public final class StreamingAttachmentFeature extends WebServiceFeature {
     private String dir;
     private boolean parseEagerly;
     private long memoryThreshold;
+    private boolean skipUnrequestedParts;
 
     public StreamingAttachmentFeature() {
     }
 
-    @FeatureConstructor({"dir","parseEagerly","memoryThreshold"})
     public StreamingAttachmentFeature(@Nullable String dir, boolean parseEagerly, long memoryThreshold) {
+        this(dir, parseEagerly, memoryThreshold, false);
+    }
+
+    @FeatureConstructor({"dir","parseEagerly","memoryThreshold","skipUnrequestedParts"})
+    public StreamingAttachmentFeature(@Nullable String dir, boolean parseEagerly, long memoryThreshold, boolean skipUnrequestedParts) {
         this.enabled = true;
         this.dir = dir;
         this.parseEagerly = parseEagerly;
         this.memoryThreshold = memoryThreshold;
+        this.skipUnrequestedParts = skipUnrequestedParts;
     }
 
     @ManagedAttribute
@@ -94,6 +100,7 @@ public final class StreamingAttachmentFeature extends WebServiceFeature {
             config.setDir(dir);
             config.setParseEagerly(parseEagerly);
             config.setMemoryThreshold(memoryThreshold);
+            config.setSkipUnrequestedParts(skipUnrequestedParts);
             config.validate();
         }
         return config;
@@ -121,4 +128,12 @@ public final class StreamingAttachmentFeature extends WebServiceFeature {
         this.memoryThreshold = memoryThreshold;
     }
 
+    /**
+     * Attachments are only kept if they are asked for, by Content-ID,
+     * before the parser reaches them. The others are skipped on the wire.
+     */
+    public void setSkipUnrequestedParts(boolean skipUnrequestedParts) {
+        this.skipUnrequestedParts = skipUnrequestedParts;
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.message.Attachment;
+import com.sun.xml.internal.ws.message.DataHandlerAttachment;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the data of attachments into a MIME multipart stream.
+ *
+ * <p>
+ * The bytes of a file-backed attachment, i.e. whose {@link DataSource} is a
+ * {@link FileDataSource}, are moved with {@link FileChannel#transferTo} when
+ * the stream gives access to a channel: a {@link FileOutputStream}, or a
+ * transport stream that implements {@link WritableByteChannel} itself. Such
+ * a stream must not buffer what is written with {@link OutputStream#write},
+ * as the channel writes would overtake it. The OS can then send the file
+ * without copying it through the Java heap.
+ *
+ * <p>
+ * All other attachments are copied with {@link DataHandler#writeTo(OutputStream)}.
+ * That includes the attachments of a parsed message (mimepull MIMEParts),
+ * whose data is kept in memory chunks or in a temporary file that isn't
+ * exposed.
+ */
+final class AttachmentTransfer {
+    private AttachmentTransfer() {}
+
+    static void writeTo(@NotNull Attachment att, @NotNull OutputStream out) throws IOException {
+        if (att instanceof DataHandlerAttachment) {
+            writeTo(att.asDataHandler(), out);
+        } else {
+            att.writeTo(out);
+        }
+    }
+
+    static void writeTo(@NotNull DataHandler dh, @NotNull OutputStream out) throws IOException {
+        File file = getFile(dh);
+        if (file != null) {
+            WritableByteChannel target = getChannel(out);
+            if (target != null) {
+                transfer(file, target);
+                return;
+            }
+        }
+        dh.writeTo(out);
+    }
+
+    private static File getFile(DataHandler dh) {
+        DataSource ds = dh.getDataSource();
+        return (ds instanceof FileDataSource) ? ((FileDataSource) ds).getFile() : null;
+    }
+
+    private static WritableByteChannel getChannel(OutputStream out) {
+        if (out instanceof WritableByteChannel) {
+            return (WritableByteChannel) out;
+        }
+        if (out.getClass() == FileOutputStream.class) {
+            // subclasses may intercept write() to do something else
+            return ((FileOutputStream) out).getChannel();
+        }
+        return null;
+    }
+
+    private static void transfer(File file, WritableByteChannel target) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel source = in.getChannel();
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                long n = source.transferTo(position, size - position, target);
+                if (n <= 0) {
+                    // the file shrunk under us, or the target doesn't make progress
+                    if (source.size() <= position) {
+                        break;
+                    }
+                    throw new IOException("Couldn't transfer "+file+" at position "+position);
+                }
+                position += n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
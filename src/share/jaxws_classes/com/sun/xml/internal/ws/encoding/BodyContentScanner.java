@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+/**
+ * Finds the content of the SOAP Body in the bytes of a UTF-8 envelope,
+ * for {@link com.sun.xml.internal.ws.developer.PayloadPassThroughFeature}.
+ *
+ * <p>
+ * This isn't a parser: the envelope is also parsed by StAX, which checks
+ * that it is well-formed. The scanner only skips comments, CDATA sections,
+ * processing instructions and quoted attribute values, so that the tags it
+ * counts are real tags. It gives up on anything it doesn't expect, like a
+ * DOCTYPE or another encoding, and the message is then decoded as usual.
+ */
+final class BodyContentScanner {
+
+    private BodyContentScanner() {}
+
+    /**
+     * Returns the start and the end offsets of the content of the
+     * &lt;Body> element, or null if it can't be found.
+     */
+    static int[] find(byte[] b, int len) {
+        int i = 0;
+        if (len >= 3 && (b[0]&0xFF) == 0xEF && (b[1]&0xFF) == 0xBB && (b[2]&0xFF) == 0xBF)
+            i = 3;  // UTF-8 byte order mark
+        final int prolog = i;
+        int depth = 0;
+        int bodyStart = -1;
+        while (i < len) {
+            if (b[i] != '<') {
+                i++;
+                continue;
+            }
+            if (i+1 >= len)
+                return null;
+            byte n = b[i+1];
+            if (n == 0) {
+                return null;    // UTF-16 or UTF-32
+            } else if (n == '?') {
+                int end = indexOf(b, len, i+2, '?', '>');
+                if (end < 0)
+                    return null;
+                if (i == prolog && startsWith(b, len, i, "<?xml") && !isUTF8Declaration(b, i+5, end))
+                    return null;
+                i = end+2;
+            } else if (n == '!') {
+                int end;
+                if (startsWith(b, len, i, "<!--")) {
+                    end = indexOf(b, len, i+4, '-', '-');
+                    if (end < 0 || end+2 >= len || b[end+2] != '>')
+                        return null;
+                    i = end+3;
+                } else if (startsWith(b, len, i, "<![CDATA[")) {
+                    end = indexOf(b, len, i+9, ']', ']');
+                    while (end >= 0 && (end+2 >= len || b[end+2] != '>'))
+                        end = indexOf(b, len, end+1, ']', ']');
+                    if (end < 0)
+                        return null;
+                    i = end+3;
+                } else {
+                    return null;    // DOCTYPE
+                }
+            } else if (n == '/') {
+                int end = tagEnd(b, len, i+2);
+                if (end < 0)
+                    return null;
+                depth--;
+                if (depth == 1 && bodyStart >= 0)
+                    return new int[] {bodyStart, i};
+                i = end+1;
+            } else {
+                int end = tagEnd(b, len, i+1);
+                if (end < 0)
+                    return null;
+                boolean empty = b[end-1] == '/';
+                if (depth == 1 && isBody(b, i+1, end)) {
+                    if (empty)
+                        return new int[] {end+1, end+1};
+                    bodyStart = end+1;
+                }
+                if (!empty)
+                    depth++;
+                i = end+1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the offset of the '&gt;' that closes a tag,
+     * skipping quoted attribute values.
+     */
+    private static int tagEnd(byte[] b, int len, int i) {
+        while (i < len) {
+            byte c = b[i];
+            if (c == '>')
+                return i;
+            if (c == '"' || c == '\'') {
+                do {
+                    i++;
+                } while (i < len && b[i] != c);
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isBody(byte[] b, int nameStart, int end) {
+        int nameEnd = nameStart;
+        while (nameEnd < end && !isSpace(b[nameEnd]) && b[nameEnd] != '/')
+            nameEnd++;
+        int localStart = nameStart;
+        for (int j = nameStart; j < nameEnd; j++) {
+            if (b[j] == ':')
+                localStart = j+1;
+        }
+        return nameEnd-localStart == 4 && b[localStart] == 'B' && b[localStart+1] == 'o'
+                && b[localStart+2] == 'd' && b[localStart+3] == 'y';
+    }
+
+    /**
+     * Checks the encoding declaration of the XML declaration, if any.
+     */
+    private static boolean isUTF8Declaration(byte[] b, int start, int end) {
+        int i = indexOf(b, end, start, "encoding");
+        if (i < 0)
+            return true;
+        i += 8;
+        while (i < end && (isSpace(b[i]) || b[i] == '='))
+            i++;
+        if (i >= end || (b[i] != '"' && b[i] != '\''))
+            return false;
+        byte quote = b[i++];
+        int valueEnd = i;
+        while (valueEnd < end && b[valueEnd] != quote)
+            valueEnd++;
+        return equalsIgnoreCase(b, i, valueEnd, "utf-8") || equalsIgnoreCase(b, i, valueEnd, "utf8");
+    }
+
+    private static boolean equalsIgnoreCase(byte[] b, int start, int end, String lowerCase) {
+        if (end-start != lowerCase.length())
+            return false;
+        for (int j = 0; j < lowerCase.length(); j++) {
+            if (Character.toLowerCase((char)b[start+j]) != lowerCase.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean startsWith(byte[] b, int len, int i, String s) {
+        if (i+s.length() > len)
+            return false;
+        for (int j = 0; j < s.length(); j++) {
+            if (b[i+j] != s.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int len, int i, String s) {
+        for (; i+s.length() <= len; i++) {
+            if (startsWith(b, len, i, s))
+                return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] b, int len, int i, char c1, char c2) {
+        for (; i+1 < len; i++) {
+            if (b[i] == c1 && b[i+1] == c2)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.developer.MessageLimitsFeature;
+import com.sun.xml.internal.ws.protocol.soap.MessageLimitException;
+import com.sun.xml.internal.ws.util.xml.XMLStreamReaderFilter;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * {@link XMLStreamReader} that checks the infoset limits of a
+ * {@link MessageLimitsFeature} as the events are read.
+ *
+ * <p>
+ * The limits are checked when the underlying parser reports an event, so
+ * a violation is detected before the event is buffered or unmarshalled.
+ * A text node is the run of consecutive character events, so that it is
+ * bounded even when the parser reports it in several chunks.
+ *
+ * @see StreamSOAPCodec#setLimits(MessageLimitsFeature)
+ */
+final class LimitedXMLStreamReader extends XMLStreamReaderFilter {
+    private final SOAPVersion soapVersion;
+    private final int maxDepth;
+    private final int maxElements;
+    private final int maxAttributes;
+    private final int maxTextLength;
+
+    private int depth;
+    private int elements;
+    private int textLength;
+
+    LimitedXMLStreamReader(XMLStreamReader core, SOAPVersion soapVersion, MessageLimitsFeature limits) {
+        super(core);
+        this.soapVersion = soapVersion;
+        this.maxDepth = limits.getMaxDepth();
+        this.maxElements = limits.getMaxElements();
+        this.maxAttributes = limits.getMaxAttributes();
+        this.maxTextLength = limits.getMaxTextLength();
+        onEvent(core.getEventType());
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        return onEvent(reader.next());
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        // only white space is skipped, which doesn't need to be counted
+        return onEvent(reader.nextTag());
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+        String text = reader.getElementText();
+        if (maxTextLength >= 0 && text.length() > maxTextLength)
+            throw new MessageLimitException(soapVersion, "text length", maxTextLength);
+        // the reader is now at the end tag
+        onEvent(XMLStreamConstants.END_ELEMENT);
+        return text;
+    }
+
+    private int onEvent(int event) {
+        switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+            textLength = 0;
+            if (++depth > maxDepth && maxDepth >= 0)
+                throw new MessageLimitException(soapVersion, "element depth", maxDepth);
+            if (++elements > maxElements && maxElements >= 0)
+                throw new MessageLimitException(soapVersion, "element count", maxElements);
+            if (maxAttributes >= 0 && reader.getAttributeCount() + reader.getNamespaceCount() > maxAttributes)
+                throw new MessageLimitException(soapVersion, "attribute count", maxAttributes);
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            textLength = 0;
+            depth--;
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            if (maxTextLength >= 0) {
+                textLength += reader.getTextLength();
+                if (textLength > maxTextLength || textLength < 0)
+                    throw new MessageLimitException(soapVersion, "text length", maxTextLength);
+            }
+            break;
+        case XMLStreamConstants.COMMENT:
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            // these don't end the text node
+            break;
+        default:
+            textLength = 0;
+        }
+        return event;
+    }
+}
@@ -29,6 +29,7 @@ import com.sun.xml.internal.ws.api.SOAPVersion;
 import com.sun.xml.internal.ws.api.WSBinding;
 import com.sun.xml.internal.ws.api.message.Attachment;
 import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.MessageSize;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.pipe.Codec;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
@@ -41,7 +42,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.ReadableByteChannel;
-import java.util.UUID;
 
 /**
  * {@link Codec}s that uses the MIME multipart as the underlying format.
@@ -91,7 +91,23 @@ abstract class MimeCodec implements Codec {
 
     public static final String MULTIPART_RELATED_MIME_TYPE = "multipart/related";
 
-    private String boundary;
+    // pre-encoded header lines
+    static final byte[] CRLF = toAscii("\r\n");
+    static final byte[] DASHES = toAscii("--");
+    static final byte[] CONTENT_TYPE = toAscii("Content-Type: ");
+    static final byte[] CONTENT_TRANSFER_ENCODING_BINARY = toAscii("Content-Transfer-Encoding: binary\r\n");
+    private static final byte[] CONTENT_ID = toAscii("Content-Id:");
+
+    private final MimeIdGenerator ids = new MimeIdGenerator();
+    /**
+     * The Content-Type of the multipart message up to the boundary counter.
+     * Computed lazily as {@link #rootCodec} is set by the subclass.
+     */
+    private String contentTypeHead;
+    /**
+     * "--boundary\r\n" of the current message.
+     */
+    private byte[] boundaryLine;
     private String messageContentType;
     private boolean hasAttachments;
     protected Codec rootCodec;
@@ -107,8 +123,6 @@ abstract class MimeCodec implements Codec {
         return MULTIPART_RELATED_MIME_TYPE;
     }
 
-    // TODO: preencode String literals to byte[] so that they don't have to
-    // go through char[]->byte[] conversion at runtime.
     public ContentType encode(Packet packet, OutputStream out) throws IOException {
         Message msg = packet.getMessage();
         if (msg == null) {
@@ -116,33 +130,47 @@ abstract class MimeCodec implements Codec {
         }
 
         if (hasAttachments) {
-            writeln("--"+boundary, out);
+            out.write(boundaryLine);
             ContentType ct = rootCodec.getStaticContentType(packet);
             String ctStr = (ct != null) ? ct.getContentType() : rootCodec.getMimeType();
-            writeln("Content-Type: " + ctStr, out);
+            out.write(CONTENT_TYPE);
+            writeln(ctStr, out);
             writeln(out);
         }
         ContentType primaryCt = rootCodec.encode(packet, out);
 
         if (hasAttachments) {
             writeln(out);
+            MessageSize size = packet.getSatellite(MessageSize.class);
+            long start = (size != null) ? size.getOutboundBytes() : 0;
+            int count = 0;
             // Encode all the attchments
             for (Attachment att : msg.getAttachments()) {
-                writeln("--"+boundary, out);
+                count++;
+                out.write(boundaryLine);
                 //SAAJ's AttachmentPart.getContentId() returns content id already enclosed with
                 //angle brackets. For now put angle bracket only if its not there
                 String cid = att.getContentId();
-                if(cid != null && cid.length() >0 && cid.charAt(0) != '<')
-                    cid = '<' + cid + '>';
-                writeln("Content-Id:" + cid, out);
-                writeln("Content-Type: " + att.getContentType(), out);
-                writeln("Content-Transfer-Encoding: binary", out);
+                out.write(CONTENT_ID);
+                if(cid != null && cid.length() >0 && cid.charAt(0) != '<') {
+                    out.write('<');
+                    writeAsAscii(cid, out);
+                    out.write('>');
+                    writeln(out);
+                } else {
+                    writeln(String.valueOf(cid), out);
+                }
+                out.write(CONTENT_TYPE);
+                writeln(String.valueOf(att.getContentType()), out);
+                out.write(CONTENT_TRANSFER_ENCODING_BINARY);
                 writeln(out);                    // write \r\n
-                att.writeTo(out);
+                AttachmentTransfer.writeTo(att, out);
                 writeln(out);                    // write \r\n
             }
-            writeAsAscii("--"+boundary, out);
-            writeAsAscii("--", out);
+            if (size != null) {
+                size.setOutboundAttachments(count, size.getOutboundBytes() - start);
+            }
+            writeCloseDelimiter(boundaryLine, out);
         }
         // TODO not returing correct multipart/related type(no boundary)
         return hasAttachments ? new ContentTypeImpl(messageContentType, packet.soapAction, null) : primaryCt;
@@ -153,12 +181,15 @@ abstract class MimeCodec implements Codec {
         hasAttachments = !msg.getAttachments().isEmpty();
 
         if (hasAttachments) {
-            boundary = "uuid:" + UUID.randomUUID().toString();
-            String boundaryParameter = "boundary=\"" + boundary + "\"";
-            // TODO use primaryEncoder to get type
-            messageContentType =  MULTIPART_RELATED_MIME_TYPE +
-                    "; type=\"" + rootCodec.getMimeType() + "\"; " +
-                    boundaryParameter;
+            if (contentTypeHead == null) {
+                // TODO use primaryEncoder to get type
+                contentTypeHead = MULTIPART_RELATED_MIME_TYPE +
+                        "; type=\"" + rootCodec.getMimeType() + "\"; " +
+                        "boundary=\"uuid:" + ids.getPrefix();
+            }
+            String suffix = ids.nextSuffix();
+            boundaryLine = toBoundaryLine("uuid:" + ids.getPrefix() + suffix);
+            messageContentType = contentTypeHead + suffix + '"';
             return new ContentTypeImpl(messageContentType, packet.soapAction, null);
         } else {
             return rootCodec.getStaticContentType(packet);
@@ -174,6 +205,13 @@ abstract class MimeCodec implements Codec {
     }
 
     public void decode(InputStream in, String contentType, Packet packet) throws IOException {
+        MessageSize size = packet.getSatellite(MessageSize.class);
+        if (size != null) {
+            String boundary = ParsedContentType.get(contentType).getBoundary();
+            if (boundary != null) {
+                size.setInboundBoundary(boundary);
+            }
+        }
         MimeMultipartParser parser = new MimeMultipartParser(in, contentType, binding.getFeature(StreamingAttachmentFeature.class));
         decode(parser,packet);
     }
@@ -189,6 +227,35 @@ abstract class MimeCodec implements Codec {
 
     public abstract MimeCodec copy();
 
+    /**
+     * Encodes a string of ASCII characters, e.g. a header line, so that it
+     * doesn't have to be converted every time it is written.
+     */
+    static byte[] toAscii(String s) {
+        int len = s.length();
+        byte[] b = new byte[len];
+        for( int i=0; i<len; i++ )
+            b[i] = (byte)s.charAt(i);
+        return b;
+    }
+
+    /**
+     * Returns the ASCII encoded "--boundary\r\n" line that starts each part.
+     */
+    static byte[] toBoundaryLine(String boundary) {
+        return toAscii("--" + boundary + "\r\n");
+    }
+
+    /**
+     * Writes the "--boundary--" line that ends the multipart message.
+     *
+     * @param boundaryLine
+     *      the line returned by {@link #toBoundaryLine(String)}.
+     */
+    static void writeCloseDelimiter(byte[] boundaryLine, OutputStream out) throws IOException {
+        out.write(boundaryLine, 0, boundaryLine.length-2);
+        out.write(DASHES);
+    }
 
     public static void writeln(String s,OutputStream out) throws IOException {
         writeAsAscii(s,out);
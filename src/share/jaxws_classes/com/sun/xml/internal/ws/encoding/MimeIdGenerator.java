@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the MIME boundaries and Content-IDs written by a {@link MimeCodec}.
+ *
+ * <p>
+ * {@link UUID#randomUUID()} takes its bits from a shared {@link java.security.SecureRandom},
+ * which is slow, contended, and may wait for entropy when it is called for
+ * every message. Instead, a random prefix is taken once per generator and
+ * each id is that prefix followed by the next value of a counter, so ids are
+ * still unique across codecs and JVMs.
+ */
+final class MimeIdGenerator {
+    private final String prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    MimeIdGenerator() {
+        prefix = UUID.randomUUID().toString() + '_';
+    }
+
+    /**
+     * The part that all ids of this generator start with.
+     */
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the part of the next id that follows {@link #getPrefix()}.
+     */
+    String nextSuffix() {
+        return Long.toHexString(counter.incrementAndGet());
+    }
+
+    /**
+     * Returns the next id.
+     */
+    String next() {
+        return prefix + nextSuffix();
+    }
+}
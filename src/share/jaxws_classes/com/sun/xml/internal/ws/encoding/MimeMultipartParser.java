@@ -69,20 +69,15 @@ public final class MimeMultipartParser {
     private boolean gotAll;
 
     public MimeMultipartParser(InputStream in, String contentType, StreamingAttachmentFeature feature) {
-        ContentType ct = new ContentType(contentType);
-        String boundary = ct.getParameter("boundary");
+        ParsedContentType ct = ParsedContentType.get(contentType);
+        String boundary = ct.getBoundary();
         if (boundary == null || boundary.equals("")) {
             throw new WebServiceException("MIME boundary parameter not found" + contentType);
         }
         message = (feature != null)
                 ? new MIMEMessage(in, boundary, feature.getConfig())
                 : new MIMEMessage(in, boundary);
-        // Strip <...> from root part's Content-ID
-        String st = ct.getParameter("start");
-        if (st != null && st.length() > 2 && st.charAt(0) == '<' && st.charAt(st.length()-1) == '>') {
-            st = st.substring(1, st.length()-1);
-        }
-        start = st;
+        start = ct.getStart();
     }
 
     /**
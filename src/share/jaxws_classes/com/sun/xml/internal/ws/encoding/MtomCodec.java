@@ -32,6 +32,7 @@ import com.sun.xml.internal.ws.api.SOAPVersion;
 import com.sun.xml.internal.ws.api.WSBinding;
 import com.sun.xml.internal.ws.api.message.Attachment;
 import com.sun.xml.internal.ws.api.message.AttachmentSet;
+import com.sun.xml.internal.ws.api.message.MessageSize;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
 import com.sun.xml.internal.ws.api.pipe.StreamSOAPCodec;
@@ -66,10 +67,10 @@ import java.net.URLDecoder;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Mtom messge Codec. It can be used even for non-soap message's mtom encoding.
@@ -80,20 +81,51 @@ import java.util.UUID;
 public class MtomCodec extends MimeCodec {
     public static final String XOP_XML_MIME_TYPE = "application/xop+xml";
 
+    private static final byte[] CONTENT_ID = toAscii("Content-Id: ");
+    private static final String CID_DOMAIN = "@example.jaxws.sun.com";
+    /**
+     * Upper bound on {@link #contentTypeTails}, to not keep arbitrary
+     * SOAPAction values of a Dispatch client.
+     */
+    private static final int MAX_CACHED_ACTIONS = 32;
+
     private final StreamSOAPCodec codec;
 
     // encoding related parameters
-    private String boundary;
-    private String rootId;
-    private final String soapXopContentType;
-    private String messageContentType;
+    private final MimeIdGenerator ids = new MimeIdGenerator();
+    /**
+     * The Content-Type of the multipart message is
+     * contentTypeHead + id + contentTypeMiddle + id + tail,
+     * where the tail depends on the SOAPAction.
+     */
+    private final String contentTypeHead;
+    private final String contentTypeMiddle;
+    private final String contentTypeTail;
+    private final Map<String,String> contentTypeTails = new HashMap<String,String>();
+    /**
+     * "--boundary\r\n" and the headers of the root part, ASCII encoded.
+     */
+    private byte[] boundaryLine;
+    private byte[] rootPartHeaders;
+    private final byte[] soapXopContentTypeLine;
+    /**
+     * Counter part of the current boundary and root part Content-ID.
+     */
+    private String idSuffix;
     private final MTOMFeature mtomFeature;
 
     MtomCodec(SOAPVersion version, StreamSOAPCodec codec, WSBinding binding, WebServiceFeature mtomFeature){
         super(version, binding);
         this.codec = codec;
+        this.contentTypeHead = MULTIPART_RELATED_MIME_TYPE +
+                ";start=\"<rootpart*" + ids.getPrefix();
+        this.contentTypeMiddle = CID_DOMAIN + ">\"" +
+                ";type=\"" + XOP_XML_MIME_TYPE + "\";" +
+                "boundary=\"uuid:" + ids.getPrefix();
+        this.contentTypeTail = "\";start-info=\"" + version.contentType + "\"";
+        String soapXopContentType = XOP_XML_MIME_TYPE +";charset=utf-8;type=\""+version.contentType+"\"";
+        this.soapXopContentTypeLine = toAscii("Content-Type: " + soapXopContentType + "\r\n");
         createConteTypeHeader();
-        this.soapXopContentType = XOP_XML_MIME_TYPE +";charset=utf-8;type=\""+version.contentType+"\"";
         if(mtomFeature == null)
             this.mtomFeature = new MTOMFeature();
         else
@@ -101,15 +133,24 @@ public class MtomCodec extends MimeCodec {
     }
 
     private void createConteTypeHeader(){
-        String uuid = UUID.randomUUID().toString();
-        boundary = "uuid:" + uuid;
-        rootId = "<rootpart*"+uuid+"@example.jaxws.sun.com>";
-        String boundaryParameter = "boundary=\"" + boundary +"\"";
-        messageContentType = MULTIPART_RELATED_MIME_TYPE +
-                ";start=\""+rootId +"\"" +
-                ";type=\"" + XOP_XML_MIME_TYPE + "\";" +
-                boundaryParameter +
-                ";start-info=\"" + version.contentType + "\"";
+        idSuffix = ids.nextSuffix();
+        boundaryLine = toBoundaryLine("uuid:" + ids.getPrefix() + idSuffix);
+        rootPartHeaders = null;
+    }
+
+    /**
+     * Returns the part of the Content-Type that follows the boundary.
+     */
+    private String getContentTypeTail(String soapAction) {
+        if (soapAction == null)
+            return contentTypeTail;
+        String tail = contentTypeTails.get(soapAction);
+        if (tail == null) {
+            tail = contentTypeTail + ";action=\""+soapAction+"\"";
+            if (contentTypeTails.size() < MAX_CACHED_ACTIONS)
+                contentTypeTails.put(soapAction, tail);
+        }
+        return tail;
     }
 
     /**
@@ -124,28 +165,48 @@ public class MtomCodec extends MimeCodec {
     private ContentType getContentType(Packet packet){
         switch(version){
             case SOAP_11:
-                return new ContentTypeImpl(messageContentType, (packet.soapAction == null)?"":packet.soapAction, null);
+                return new ContentTypeImpl(getMessageContentType(contentTypeTail), (packet.soapAction == null)?"":packet.soapAction, null);
             case SOAP_12:
-                if(packet.soapAction != null){
-                    messageContentType += ";action=\""+packet.soapAction+"\"";
-                }
-                return new ContentTypeImpl(messageContentType, null, null);
+                return new ContentTypeImpl(getMessageContentType(getContentTypeTail(packet.soapAction)), null, null);
         }
         //never happens
         return null;
     }
 
+    private String getMessageContentType(String tail) {
+        return new StringBuilder(contentTypeHead.length() + contentTypeMiddle.length() + tail.length() + 2*idSuffix.length())
+                .append(contentTypeHead).append(idSuffix)
+                .append(contentTypeMiddle).append(idSuffix)
+                .append(tail).toString();
+    }
+
+    /**
+     * Returns the boundary and the headers of the root part, ASCII encoded.
+     */
+    private byte[] getRootPartHeaders() {
+        if (rootPartHeaders == null) {
+            String rootId = "<rootpart*" + ids.getPrefix() + idSuffix + CID_DOMAIN + ">";
+            byte[] id = toAscii(rootId);
+            byte[] b = new byte[boundaryLine.length + CONTENT_ID.length + id.length + CRLF.length
+                    + soapXopContentTypeLine.length + CONTENT_TRANSFER_ENCODING_BINARY.length + CRLF.length];
+            int i = 0;
+            for (byte[] part : new byte[][] {boundaryLine, CONTENT_ID, id, CRLF,
+                    soapXopContentTypeLine, CONTENT_TRANSFER_ENCODING_BINARY, CRLF}) {
+                System.arraycopy(part, 0, b, i, part.length);
+                i += part.length;
+            }
+            rootPartHeaders = b;
+        }
+        return rootPartHeaders;
+    }
+
     public ContentType encode(Packet packet, OutputStream out) throws IOException {
         //get the current boundary thaat will be reaturned from this method
         ContentType contentType = getContentType(packet);
 
         if(packet.getMessage() != null){
             try {
-                writeln("--"+boundary, out);
-                writeln("Content-Id: " + rootId, out);
-                writeln("Content-Type: "+ soapXopContentType,  out);
-                writeln("Content-Transfer-Encoding: binary", out);
-                writeln(out);
+                out.write(getRootPartHeaders());
 
                 //mtom attachments that need to be written after the root part
                 List<ByteArrayBuffer> mtomAttachments = new ArrayList<ByteArrayBuffer>();
@@ -154,16 +215,21 @@ public class MtomCodec extends MimeCodec {
                 XMLStreamWriterFactory.recycle(writer);
                 writeln(out);
 
+                MessageSize size = packet.getSatellite(MessageSize.class);
+                long start = (size != null) ? size.getOutboundBytes() : 0;
+
                 for(ByteArrayBuffer bos : mtomAttachments){
                     bos.write(out);
                 }
 
                 //now write out the attachments in the message
-                writeAttachments(packet.getMessage().getAttachments(),out);
+                int count = mtomAttachments.size() + writeAttachments(packet.getMessage().getAttachments(),out);
+                if (size != null) {
+                    size.setOutboundAttachments(count, size.getOutboundBytes() - start);
+                }
 
                 //write out the end boundary
-                writeAsAscii("--"+boundary, out);
-                writeAsAscii("--", out);
+                writeCloseDelimiter(boundaryLine, out);
 
             } catch (XMLStreamException e) {
                 throw new WebServiceException(e);
@@ -186,9 +252,9 @@ public class MtomCodec extends MimeCodec {
 
         void write(OutputStream os) throws IOException {
             //build attachment frame
-            writeln("--"+boundary, os);
+            os.write(boundaryLine);
             writeMimeHeaders(dh.getContentType(), contentId, os);
-            dh.writeTo(os);
+            AttachmentTransfer.writeTo(dh, os);
             writeln(os);
         }
     }
@@ -197,20 +263,28 @@ public class MtomCodec extends MimeCodec {
         String cid = contentId;
         if(cid != null && cid.length() >0 && cid.charAt(0) != '<')
             cid = '<' + cid + '>';
-        writeln("Content-Id: " + cid, out);
-        writeln("Content-Type: " + contentType, out);
-        writeln("Content-Transfer-Encoding: binary", out);
+        out.write(CONTENT_ID);
+        writeln(String.valueOf(cid), out);
+        out.write(CONTENT_TYPE);
+        writeln(String.valueOf(contentType), out);
+        out.write(CONTENT_TRANSFER_ENCODING_BINARY);
         writeln(out);
     }
 
-    private void writeAttachments(AttachmentSet attachments, OutputStream out) throws IOException {
+    /**
+     * @return the number of attachments written.
+     */
+    private int writeAttachments(AttachmentSet attachments, OutputStream out) throws IOException {
+        int count = 0;
         for(Attachment att : attachments){
             //build attachment frame
-            writeln("--"+boundary, out);
+            out.write(boundaryLine);
             writeMimeHeaders(att.getContentType(), att.getContentId(), out);
-            att.writeTo(out);
+            AttachmentTransfer.writeTo(att, out);
             writeln(out);                    // write \r\n
+            count++;
         }
+        return count;
     }
 
     public ContentType encode(Packet packet, WritableByteChannel buffer) {
@@ -222,9 +296,7 @@ public class MtomCodec extends MimeCodec {
     }
 
     private String encodeCid(){
-        String cid="example.jaxws.sun.com";
-        String name = UUID.randomUUID()+"@";
-        return name + cid;
+        return ids.next() + CID_DOMAIN;
     }
 
     @Override
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.encoding;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+
+import javax.xml.ws.WebServiceException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The parameters of a Content-Type header that the codecs need to decode a
+ * message, parsed once per distinct header value.
+ *
+ * <p>
+ * Peers send the same few Content-Type values over and over, like
+ * "text/xml; charset=utf-8", so the parsed values are cached by the raw
+ * string. A multipart Content-Type has a boundary per message, so it is
+ * parsed every time instead. The cache is bounded, and it starts over
+ * once full, so that odd values can't keep the common ones out of it.
+ */
+final class ParsedContentType {
+    private final @NotNull String contentType;
+    private final @Nullable String charset;
+    private final @Nullable String action;
+    private final @Nullable String boundary;
+    private final @Nullable String start;
+
+    private ParsedContentType(String contentType) {
+        ContentType ct = new ContentType(contentType);
+        this.contentType = contentType;
+        this.charset = ct.getParameter("charset");
+        this.action = StreamSOAP12Codec.fixQuotesAroundSoapAction(ct.getParameter("action"));
+        this.boundary = ct.getParameter("boundary");
+        // Strip <...> from root part's Content-ID
+        String st = ct.getParameter("start");
+        if (st != null && st.length() > 2 && st.charAt(0) == '<' && st.charAt(st.length()-1) == '>') {
+            st = st.substring(1, st.length()-1);
+        }
+        this.start = st;
+    }
+
+    /**
+     * Gets the parsed Content-Type.
+     *
+     * @throws WebServiceException
+     *      if the value is not a valid Content-Type.
+     */
+    static @NotNull ParsedContentType get(@NotNull String contentType) {
+        ParsedContentType ct = CACHE.get(contentType);
+        if (ct == null) {
+            ct = new ParsedContentType(contentType);
+            if (!isOfType(contentType, "multipart/")) {
+                if (CACHE.size() >= MAX_CACHED)
+                    CACHE.clear();
+                CACHE.putIfAbsent(contentType, ct);
+            }
+        }
+        return ct;
+    }
+
+    private static final int MAX_CACHED = 64;
+    private static final ConcurrentMap<String, ParsedContentType> CACHE = new ConcurrentHashMap<String, ParsedContentType>();
+
+    /**
+     * Checks, without parsing, if a Content-Type value is of the given
+     * media type, i.e. starts with it ignoring case.
+     */
+    static boolean isOfType(@NotNull String contentType, @NotNull String mediaType) {
+        return contentType.regionMatches(true, 0, mediaType, 0, mediaType.length());
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * The charset parameter.
+     */
+    @Nullable String getCharset() {
+        return charset;
+    }
+
+    /**
+     * The SOAP 1.2 action parameter, quoted.
+     */
+    @Nullable String getAction() {
+        return action;
+    }
+
+    /**
+     * The multipart boundary parameter.
+     */
+    @Nullable String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * The multipart start parameter, without the enclosing &lt;...&gt;.
+     */
+    @Nullable String getStart() {
+        return start;
+    }
+}
@@ -29,6 +29,7 @@ import com.sun.xml.internal.ws.api.SOAPVersion;
 import com.sun.xml.internal.ws.api.WSBinding;
 import com.sun.xml.internal.ws.api.client.SelectOptimalEncodingFeature;
 import com.sun.xml.internal.ws.api.fastinfoset.FastInfosetFeature;
+import com.sun.xml.internal.ws.api.fastinfoset.FastInfosetVocabularyFeature;
 import com.sun.xml.internal.ws.api.message.Message;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.message.ExceptionHasMessage;
@@ -38,6 +39,8 @@ import com.sun.xml.internal.ws.api.pipe.ContentType;
 import com.sun.xml.internal.ws.api.pipe.StreamSOAPCodec;
 import com.sun.xml.internal.ws.binding.SOAPBindingImpl;
 import com.sun.xml.internal.ws.client.ContentNegotiation;
+import com.sun.xml.internal.ws.developer.MessageLimitsFeature;
+import com.sun.xml.internal.ws.developer.PayloadPassThroughFeature;
 import com.sun.xml.internal.ws.protocol.soap.MessageCreationException;
 import com.sun.xml.internal.ws.resources.StreamingMessages;
 import com.sun.xml.internal.ws.server.UnsupportedMediaException;
@@ -51,7 +54,6 @@ import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.util.StringTokenizer;
 
 /**
  * SOAP binding {@link Codec} that can handle MTOM, SwA, and SOAP messages
@@ -131,6 +133,20 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
 
     private final SOAPBindingImpl binding;
 
+    /**
+     * The XML SOAP codec, if it decodes the messages for
+     * {@link PayloadPassThroughFeature pass-through}. Otherwise null.
+     */
+    private final com.sun.xml.internal.ws.encoding.StreamSOAPCodec passThroughCodec;
+
+    private final int passThroughMaxMessageSize;
+
+    /**
+     * Largest number of bytes in a decoded message, if the
+     * {@link MessageLimitsFeature} is enabled. Otherwise negative.
+     */
+    private final long maxMessageSize;
+
     /**
      * The XML SOAP MIME type
      */
@@ -194,6 +210,24 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
         this.xmlSoapCodec = xmlSoapCodec;
         xmlMimeType = xmlSoapCodec.getMimeType();
 
+        PayloadPassThroughFeature passThrough = binding.getFeature(PayloadPassThroughFeature.class);
+        if (passThrough != null && passThrough.isEnabled() && xmlSoapCodec instanceof com.sun.xml.internal.ws.encoding.StreamSOAPCodec) {
+            passThroughCodec = (com.sun.xml.internal.ws.encoding.StreamSOAPCodec) xmlSoapCodec;
+            passThroughMaxMessageSize = passThrough.getMaxMessageSize();
+        } else {
+            passThroughCodec = null;
+            passThroughMaxMessageSize = 0;
+        }
+
+        MessageLimitsFeature limits = binding.getFeature(MessageLimitsFeature.class);
+        if (limits != null && limits.isEnabled()) {
+            maxMessageSize = limits.getMaxMessageSize();
+            if (limits.hasInfosetLimits() && xmlSoapCodec instanceof com.sun.xml.internal.ws.encoding.StreamSOAPCodec)
+                ((com.sun.xml.internal.ws.encoding.StreamSOAPCodec) xmlSoapCodec).setLimits(limits);
+        } else {
+            maxMessageSize = -1;
+        }
+
         xmlMtomCodec = new MtomCodec(version, xmlSoapCodec, binding, binding.getFeature(MTOMFeature.class));
 
         xmlSwaCodec = new SwACodec(version, binding, xmlSoapCodec);
@@ -204,7 +238,7 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
         WebServiceFeature fi = binding.getFeature(FastInfosetFeature.class);
         isFastInfosetDisabled = (fi != null && !fi.isEnabled());
         if (!isFastInfosetDisabled) {
-            fiSoapCodec = getFICodec(xmlSoapCodec, version);
+            fiSoapCodec = getFICodec(xmlSoapCodec, version, binding.getFeature(FastInfosetVocabularyFeature.class));
             if (fiSoapCodec != null) {
                 fiMimeType = fiSoapCodec.getMimeType();
                 fiSwaCodec = new SwACodec(version, binding, fiSoapCodec);
@@ -330,6 +364,8 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
 
         preDecode(packet);
         try {
+            if (maxMessageSize >= 0)
+                in = new LimitedInputStream(in, binding.getSOAPVersion(), maxMessageSize);
             if(isMultipartRelated(contentType))
                 // parse the multipart portion and then decide whether it's MTOM or SwA
                 super.decode(in, contentType, packet);
@@ -339,7 +375,9 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
 
                 useFastInfosetForEncoding = true;
                 fiSoapCodec.decode(in, contentType, packet);
-            } else
+            } else if (passThroughCodec != null)
+                passThroughCodec.decodePassThrough(in, contentType, packet, passThroughMaxMessageSize);
+            else
                 xmlSoapCodec.decode(in, contentType, packet);
         } catch(RuntimeException we) {
             if (we instanceof ExceptionHasMessage || we instanceof UnsupportedMediaException) {
@@ -424,19 +462,16 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
     }
 
     private boolean compareStrings(String a, String b) {
-        return a.length() >= b.length() &&
-                b.equalsIgnoreCase(
-                a.substring(0,
-                b.length()));
+        return ParsedContentType.isOfType(a, b);
     }
 
     private boolean isFastInfosetAcceptable(String accept) {
         if (accept == null || isFastInfosetDisabled) return false;
 
-        StringTokenizer st = new StringTokenizer(accept, ",");
-        while (st.hasMoreTokens()) {
-            final String token = st.nextToken().trim();
-            if (token.equalsIgnoreCase(fiMimeType)) {
+        for (int i = 0; i < accept.length(); i = nextToken(accept, i)) {
+            int start = skipSpaces(accept, i);
+            if (accept.regionMatches(true, start, fiMimeType, 0, fiMimeType.length())
+                    && skipSpaces(accept, start + fiMimeType.length()) == tokenEnd(accept, start)) {
                 return true;
             }
         }
@@ -450,16 +485,33 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
     private boolean isMtomAcceptable(String accept) {
         if (accept == null || isFastInfosetDisabled) return false;
 
-        StringTokenizer st = new StringTokenizer(accept, ",");
-        while (st.hasMoreTokens()) {
-            final String token = st.nextToken().trim();
-            if (token.toLowerCase().contains(MtomCodec.XOP_XML_MIME_TYPE)) {
-                return true;
+        for (int i = 0; i < accept.length(); i = nextToken(accept, i)) {
+            int end = tokenEnd(accept, i) - MtomCodec.XOP_XML_MIME_TYPE.length();
+            for (int j = i; j <= end; j++) {
+                if (accept.regionMatches(true, j, MtomCodec.XOP_XML_MIME_TYPE, 0, MtomCodec.XOP_XML_MIME_TYPE.length()))
+                    return true;
             }
         }
         return false;
     }
 
+    // The Accept header is scanned in place, it is on every request.
+
+    private static int tokenEnd(String s, int from) {
+        int i = s.indexOf(',', from);
+        return (i < 0) ? s.length() : i;
+    }
+
+    private static int nextToken(String s, int from) {
+        return tokenEnd(s, from) + 1;
+    }
+
+    private static int skipSpaces(String s, int from) {
+        while (from < s.length() && s.charAt(from) <= ' ')
+            from++;
+        return from;
+    }
+
     /**
      * Determines the encoding codec.
      */
@@ -511,11 +563,11 @@ public class SOAPBindingCodec extends MimeCodec implements com.sun.xml.internal.
     /**
      * Obtain an FI SOAP codec instance using reflection.
      */
-    private static Codec getFICodec(StreamSOAPCodec soapCodec, SOAPVersion version) {
+    private static Codec getFICodec(StreamSOAPCodec soapCodec, SOAPVersion version, FastInfosetVocabularyFeature vocabularies) {
         try {
             Class c = Class.forName("com.sun.xml.internal.ws.encoding.fastinfoset.FastInfosetStreamSOAPCodec");
-            Method m = c.getMethod("create", StreamSOAPCodec.class, SOAPVersion.class);
-            return (Codec)m.invoke(null, soapCodec, version);
+            Method m = c.getMethod("create", StreamSOAPCodec.class, SOAPVersion.class, FastInfosetVocabularyFeature.class);
+            return (Codec)m.invoke(null, soapCodec, version, vocabularies);
         } catch (Exception e) {
             // TODO Log that FI cannot be loaded
             return null;
@@ -64,6 +64,9 @@ final class StreamSOAP11Codec extends StreamSOAPCodec {
 
     @Override
     protected ContentType getContentType(String soapAction) {
+        if (soapAction == null) {
+            return defaultContentType;
+        }
         return new ContentTypeImpl(SOAP11_CONTENT_TYPE, soapAction);
     }
 
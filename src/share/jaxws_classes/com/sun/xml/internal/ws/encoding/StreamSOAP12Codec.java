@@ -78,12 +78,16 @@ final class StreamSOAP12Codec extends StreamSOAPCodec {
 
     @Override
     public void decode(InputStream in, String contentType, Packet packet, AttachmentSet att ) throws IOException {
-        com.sun.xml.internal.ws.encoding.ContentType ct = new com.sun.xml.internal.ws.encoding.ContentType(contentType);
-        packet.soapAction = fixQuotesAroundSoapAction(ct.getParameter("action"));
+        decodeContentType(contentType, packet);
         super.decode(in,contentType,packet,att);
     }
 
-    private String fixQuotesAroundSoapAction(String soapAction) {
+    @Override
+    protected void decodeContentType(String contentType, Packet packet) {
+        packet.soapAction = ParsedContentType.get(contentType).getAction();
+    }
+
+    static String fixQuotesAroundSoapAction(String soapAction) {
         if(soapAction != null && (!soapAction.startsWith("\"") || !soapAction.endsWith("\"")) ) {
             String fixedSoapAction = soapAction;
             if(!soapAction.startsWith("\""))
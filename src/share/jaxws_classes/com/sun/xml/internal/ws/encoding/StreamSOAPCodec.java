@@ -38,13 +38,16 @@ import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
 import com.sun.xml.internal.ws.api.streaming.XMLStreamReaderFactory;
 import com.sun.xml.internal.ws.api.streaming.XMLStreamWriterFactory;
+import com.sun.xml.internal.ws.developer.MessageLimitsFeature;
 import com.sun.xml.internal.ws.message.AttachmentSetImpl;
+import com.sun.xml.internal.ws.message.EnvelopeFragments;
 import com.sun.xml.internal.ws.message.stream.StreamHeader;
 import com.sun.xml.internal.ws.message.stream.StreamMessage;
 import com.sun.xml.internal.ws.protocol.soap.VersionMismatchException;
 import com.sun.xml.internal.ws.server.UnsupportedMediaException;
 import com.sun.xml.internal.ws.streaming.XMLStreamReaderUtil;
 import com.sun.xml.internal.ws.streaming.TidyXMLStreamReader;
+import com.sun.xml.internal.ws.util.ByteArrayBuffer;
 
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -54,12 +57,15 @@ import javax.xml.ws.WebServiceException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A stream SOAP codec.
@@ -76,6 +82,21 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
     private final String SOAP_NAMESPACE_URI;
     private final SOAPVersion soapVersion;
 
+    /**
+     * The infoset limits checked on the decoded messages, or null.
+     */
+    private MessageLimitsFeature limits;
+
+    private static final int ENVELOPE_TAG = 0;
+    private static final int HEADER_TAG = 1;
+    private static final int BODY_TAG = 2;
+
+    /**
+     * The last {@link TagInfoset} of the Envelope, Header and Body
+     * elements, see {@link #getTagInfoset(XMLStreamReader, int)}.
+     */
+    private final TagInfoset[] recentTags = new TagInfoset[3];
+
     /*package*/ StreamSOAPCodec(SOAPVersion soapVersion) {
         SOAP_NAMESPACE_URI = soapVersion.nsUri;
         this.soapVersion = soapVersion;
@@ -87,22 +108,52 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
     // consider caching
     // private final MutableXMLStreamBuffer buffer;
 
+    /**
+     * {@link ContentType}s per SOAPAction, i.e. per operation. Since the codec
+     * is shared by all the tubelines (see {@link #copy()}), these are computed
+     * once for a port, and the transport sees the same strings for every
+     * request of an operation.
+     */
+    private final ConcurrentMap<String, ContentType> contentTypes = new ConcurrentHashMap<String, ContentType>();
+
+    /**
+     * Bounds {@link #contentTypes}, in case the application sets arbitrary SOAPActions.
+     */
+    private static final int MAX_CACHED_CONTENT_TYPES = 256;
+
     public ContentType getStaticContentType(Packet packet) {
-        return getContentType(packet.soapAction);
+        return getCachedContentType(packet.soapAction);
+    }
+
+    private ContentType getCachedContentType(String soapAction) {
+        if (soapAction == null)
+            return getContentType(null);
+        ContentType ct = contentTypes.get(soapAction);
+        if (ct == null) {
+            ct = getContentType(soapAction);
+            if (contentTypes.size() < MAX_CACHED_CONTENT_TYPES)
+                contentTypes.putIfAbsent(soapAction, ct);
+        }
+        return ct;
     }
 
     public ContentType encode(Packet packet, OutputStream out) {
-        if (packet.getMessage() != null) {
-            XMLStreamWriter writer = XMLStreamWriterFactory.create(out);
+        Message message = packet.getMessage();
+        if (message != null) {
             try {
-                packet.getMessage().writeTo(writer);
-                writer.flush();
+                if (!EnvelopeFragments.writeTo(message, out)) {
+                    XMLStreamWriter writer = XMLStreamWriterFactory.create(out);
+                    message.writeTo(writer);
+                    writer.flush();
+                    XMLStreamWriterFactory.recycle(writer);
+                }
             } catch (XMLStreamException e) {
                 throw new WebServiceException(e);
+            } catch (IOException e) {
+                throw new WebServiceException(e);
             }
-            XMLStreamWriterFactory.recycle(writer);
         }
-        return getContentType(packet.soapAction);
+        return getCachedContentType(packet.soapAction);
     }
 
     protected abstract ContentType getContentType(String soapAction);
@@ -158,6 +209,8 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
      *      (like MIME multipart codec.)
      */
     public final Message decode(XMLStreamReader reader, @NotNull AttachmentSet attachmentSet) {
+        if (limits != null)
+            reader = new LimitedXMLStreamReader(reader, soapVersion, limits);
 
         // Move to soap:Envelope and verify
         if(reader.getEventType()!=XMLStreamConstants.START_ELEMENT)
@@ -168,13 +221,7 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
         }
         XMLStreamReaderUtil.verifyTag(reader, SOAP_NAMESPACE_URI, SOAP_ENVELOPE);
 
-        TagInfoset envelopeTag = new TagInfoset(reader);
-
-        // Collect namespaces on soap:Envelope
-        Map<String,String> namespaces = new HashMap<String,String>();
-        for(int i=0; i< reader.getNamespaceCount();i++){
-                namespaces.put(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
-        }
+        TagInfoset envelopeTag = getTagInfoset(reader, ENVELOPE_TAG);
 
         // Move to next element
         XMLStreamReaderUtil.nextElementContent(reader);
@@ -186,12 +233,8 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
 
         if (reader.getLocalName().equals(SOAP_HEADER)
                 && reader.getNamespaceURI().equals(SOAP_NAMESPACE_URI)) {
-            headerTag = new TagInfoset(reader);
+            headerTag = getTagInfoset(reader, HEADER_TAG);
 
-            // Collect namespaces on soap:Header
-            for(int i=0; i< reader.getNamespaceCount();i++){
-                namespaces.put(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
-            }
             // skip <soap:Header>
             XMLStreamReaderUtil.nextElementContent(reader);
 
@@ -199,6 +242,11 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
             if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
                 headers = new HeaderList();
 
+                // Collect namespaces on soap:Envelope and soap:Header
+                Map<String,String> namespaces = new HashMap<String,String>();
+                putNamespaces(envelopeTag, namespaces);
+                putNamespaces(headerTag, namespaces);
+
                 try {
                     // Cache SOAP header blocks
                     cacheHeaders(reader, namespaces, headers);
@@ -214,7 +262,7 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
 
         // Verify that <soap:Body> is present
         XMLStreamReaderUtil.verifyTag(reader, SOAP_NAMESPACE_URI, SOAP_BODY);
-        TagInfoset bodyTag = new TagInfoset(reader);
+        TagInfoset bodyTag = getTagInfoset(reader, BODY_TAG);
 
         XMLStreamReaderUtil.nextElementContent(reader);
         return new StreamMessage(envelopeTag,headerTag,attachmentSet,headers,bodyTag,reader,soapVersion);
@@ -227,10 +275,52 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Gets the {@link TagInfoset} of the SOAP element the reader is at.
+     *
+     * <p>
+     * Consecutive messages usually have the same Envelope, Header and Body
+     * tags, so the last {@link TagInfoset} of each is kept and shared by the
+     * messages that match it. A {@link TagInfoset} is immutable, so it can
+     * be shared even though this codec is used by all the tubelines. Tags
+     * with attributes aren't kept, as their values often differ per message.
+     */
+    private TagInfoset getTagInfoset(XMLStreamReader reader, int index) {
+        TagInfoset tag = recentTags[index];
+        if (tag != null && tag.isSameTag(reader))
+            return tag;
+        tag = new TagInfoset(reader);
+        if (tag.atts.getLength() == 0)
+            recentTags[index] = tag;
+        return tag;
+    }
+
+    /**
+     * Puts the namespace declarations of the tag into the map, the way
+     * {@link #cacheHeaders} collects them from the reader.
+     */
+    private static void putNamespaces(TagInfoset tag, Map<String,String> namespaces) {
+        String[] ns = tag.ns;
+        for (int i = 0; i < ns.length; i += 2) {
+            namespaces.put(ns[i], ns[i+1]);
+        }
+    }
+
     public final StreamSOAPCodec copy() {
         return this;
     }
 
+    /**
+     * Checks the infoset limits of the given feature on the messages
+     * decoded from now on.
+     *
+     * @param limits
+     *      null, or a feature that {@link MessageLimitsFeature#hasInfosetLimits() has infoset limits}.
+     */
+    /*package*/ void setLimits(MessageLimitsFeature limits) {
+        this.limits = limits;
+    }
+
     private XMLStreamBuffer cacheHeaders(XMLStreamReader reader,
             Map<String, String> namespaces, HeaderList headers) throws XMLStreamException {
         MutableXMLStreamBuffer buffer = createXMLStreamBuffer();
@@ -245,7 +335,10 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
             if (reader.getNamespaceCount() > 0) {
                 headerBlockNamespaces = new HashMap<String,String>(namespaces);
                 for (int i = 0; i < reader.getNamespaceCount(); i++) {
-                    headerBlockNamespaces.put(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+                    // as in TagInfoset, so that the default namespace has one key
+                    String prefix = reader.getNamespacePrefix(i);
+                    String nsUri = reader.getNamespaceURI(i);
+                    headerBlockNamespaces.put(prefix != null ? prefix : "", nsUri != null ? nsUri : "");
                 }
             }
 
@@ -271,25 +364,87 @@ public abstract class StreamSOAPCodec implements com.sun.xml.internal.ws.api.pip
     protected abstract StreamHeader createHeader(XMLStreamReader reader, XMLStreamBuffer mark);
 
     private MutableXMLStreamBuffer createXMLStreamBuffer() {
-        // TODO: Decode should own one MutableXMLStreamBuffer for reuse
-        // since it is more efficient. ISSUE: possible issue with
-        // lifetime of information in the buffer if accessed beyond
-        // the pipe line.
-        return new MutableXMLStreamBuffer();
+        // The buffer can't be reused by the next decode: the headers keep
+        // marks into it, and they may be accessed beyond the pipe line, e.g.
+        // a WS-Addressing EPR or a response kept by the application.
+        // So size it for the few small header blocks of most messages
+        // instead, it grows by fragments for the others.
+        return new MutableXMLStreamBuffer(HEADER_BUFFER_SIZE, HEADER_BUFFER_CHARACTERS_SIZE);
     }
 
+    private static final int HEADER_BUFFER_SIZE = 128;
+    private static final int HEADER_BUFFER_CHARACTERS_SIZE = 1024;
+
     public void decode(InputStream in, String contentType, Packet packet, AttachmentSet att ) throws IOException {
+        String charset = getCharset(contentType);
+        XMLStreamReader reader = XMLStreamReaderFactory.create(null, in, charset, true);
+        reader =  new TidyXMLStreamReader(reader, in);
+        packet.setMessage(decode(reader, att));
+    }
+
+    /**
+     * Decodes like {@link #decode(InputStream, String, Packet)}, but keeps the
+     * bytes of the Body content of a UTF-8 message that isn't larger than
+     * {@code maxMessageSize}, so that it can be written again verbatim.
+     *
+     * @see com.sun.xml.internal.ws.developer.PayloadPassThroughFeature
+     */
+    /*package*/ void decodePassThrough(InputStream in, String contentType, Packet packet, int maxMessageSize) throws IOException {
+        String charset = getCharset(contentType);
+        if (charset != null && !charset.equalsIgnoreCase("UTF-8")) {
+            decode(in, contentType, packet);
+            return;
+        }
+        decodeContentType(contentType, packet);
+        ByteArrayBuffer bytes = new ByteArrayBuffer();
+        byte[] chunk = new byte[8192];
+        int len;
+        while ((len = in.read(chunk)) != -1) {
+            bytes.write(chunk, 0, len);
+            if (bytes.size() > maxMessageSize) {
+                // too large to keep, stream the rest
+                in = new SequenceInputStream(bytes.newInputStream(), in);
+                XMLStreamReader reader = XMLStreamReaderFactory.create(null, in, charset, true);
+                packet.setMessage(decode(new TidyXMLStreamReader(reader, in), new AttachmentSetImpl()));
+                return;
+            }
+        }
+        in.close();
+
+        byte[] data = bytes.getRawData();
+        int[] body = BodyContentScanner.find(data, bytes.size());
+        InputStream bin = bytes.newInputStream();
+        XMLStreamReader reader = XMLStreamReaderFactory.create(null, bin, charset, true);
+        Message message = decode(new TidyXMLStreamReader(reader, bin), new AttachmentSetImpl());
+        if (body != null && message.hasPayload() && message instanceof StreamMessage)
+            ((StreamMessage) message).setRawPayload(data, body[0], body[1]);
+        packet.setMessage(message);
+    }
+
+    /**
+     * Sets the properties of the packet that the Content-Type of the message
+     * carries, like the SOAP 1.2 action parameter.
+     */
+    protected void decodeContentType(String contentType, Packet packet) {
+    }
+
+    private String getCharset(String contentType) {
         List<String> expectedContentTypes = getExpectedContentTypes();
         if (contentType != null && !isContentTypeSupported(contentType,expectedContentTypes)) {
             throw new UnsupportedMediaException(contentType, expectedContentTypes);
         }
-        String charset = new ContentTypeImpl(contentType).getCharSet();
+        String charset = null;
+        if (contentType != null) {
+            try {
+                charset = ParsedContentType.get(contentType).getCharset();
+            } catch (WebServiceException e) {
+                // Ignore the parsing exception, as for ContentTypeImpl.
+            }
+        }
         if (charset != null && !Charset.isSupported(charset)) {
             throw new UnsupportedMediaException(charset);
         }
-        XMLStreamReader reader = XMLStreamReaderFactory.create(null, in, charset, true);
-        reader =  new TidyXMLStreamReader(reader, in);
-        packet.setMessage(decode(reader, att));
+        return charset;
     }
 
     public void decode(ReadableByteChannel in, String contentType, Packet response, AttachmentSet att ) {
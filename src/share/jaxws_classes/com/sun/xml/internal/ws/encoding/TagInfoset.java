@@ -148,6 +148,31 @@ public final class TagInfoset {
         }
     }
 
+    /**
+     * Checks if the start tag the reader is at has the same infoset as this
+     * one. Tags with attributes never match.
+     */
+    /*package*/ boolean isSameTag(XMLStreamReader reader) {
+        if (atts.getLength() != 0 || reader.getAttributeCount() != 0)
+            return false;
+        if (!localName.equals(reader.getLocalName()) || !eq(nsUri, reader.getNamespaceURI())
+                || !eq(prefix, reader.getPrefix()))
+            return false;
+        int nsc = reader.getNamespaceCount();
+        if (ns.length != nsc*2)
+            return false;
+        for (int i=0; i<nsc; i++) {
+            if (!eq(ns[i*2], fixNull(reader.getNamespacePrefix(i)))
+                    || !eq(ns[i*2+1], fixNull(reader.getNamespaceURI(i))))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     /**
      * Writes the start element event.
      */
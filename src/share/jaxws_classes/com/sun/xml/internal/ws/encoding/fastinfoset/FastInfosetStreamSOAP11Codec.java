@@ -28,6 +28,7 @@ package com.sun.xml.internal.ws.encoding.fastinfoset;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
 import com.sun.xml.internal.ws.api.pipe.Codec;
 import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.fastinfoset.FastInfosetVocabularyFeature;
 import com.sun.xml.internal.ws.api.pipe.StreamSOAPCodec;
 import com.sun.xml.internal.ws.encoding.ContentTypeImpl;
 import com.sun.xml.internal.ws.message.stream.StreamHeader;
@@ -43,9 +44,10 @@ import javax.xml.stream.XMLStreamReader;
  * @author Paul.Sandoz@Sun.Com
  */
 final class FastInfosetStreamSOAP11Codec extends FastInfosetStreamSOAPCodec {
-    /*package*/ FastInfosetStreamSOAP11Codec(StreamSOAPCodec soapCodec, boolean retainState) {
+    /*package*/ FastInfosetStreamSOAP11Codec(StreamSOAPCodec soapCodec, boolean retainState, FastInfosetVocabularyFeature vocabularies) {
         super(soapCodec, SOAPVersion.SOAP_11, retainState,
-                (retainState) ? FastInfosetMIMETypes.STATEFUL_SOAP_11 : FastInfosetMIMETypes.SOAP_11);
+                (retainState) ? FastInfosetMIMETypes.STATEFUL_SOAP_11 : FastInfosetMIMETypes.SOAP_11,
+                vocabularies);
     }
 
     private FastInfosetStreamSOAP11Codec(FastInfosetStreamSOAP11Codec that) {
@@ -27,6 +27,12 @@ package com.sun.xml.internal.ws.encoding.fastinfoset;
 
 import com.sun.xml.internal.fastinfoset.stax.StAXDocumentSerializer;
 import com.sun.xml.internal.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.internal.fastinfoset.vocab.ParserVocabulary;
+import com.sun.xml.internal.fastinfoset.vocab.SerializerVocabulary;
+import com.sun.xml.internal.org.jvnet.fastinfoset.ExternalVocabulary;
+import com.sun.xml.internal.org.jvnet.fastinfoset.VocabularyApplicationData;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.fastinfoset.FastInfosetVocabularyFeature;
 import com.sun.xml.internal.ws.api.pipe.Codec;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
 import com.sun.xml.internal.ws.api.message.Packet;
@@ -45,6 +51,8 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.nio.channels.WritableByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A stream SOAP codec for handling SOAP message infosets to fast
@@ -54,12 +62,20 @@ import java.nio.channels.ReadableByteChannel;
  * This implementation currently defers to {@link StreamSOAPCodec} for the decoding
  * using {@link XMLStreamReader}.
  *
+ * <p>
+ * When configured with a {@link FastInfosetVocabularyFeature}, a message
+ * is encoded with the external vocabulary that the last decoded message
+ * referred to, or with the first vocabulary of the feature if nothing was
+ * decoded yet. So a client starts with its vocabulary, and a service
+ * answers with the one the client used, if any.
+ *
  * @author Paul Sandoz
  */
 public abstract class FastInfosetStreamSOAPCodec implements Codec {
     private static final FastInfosetStreamReaderFactory READER_FACTORY = FastInfosetStreamReaderFactory.getInstance();
 
     private StAXDocumentParser _statefulParser;
+    private ParserVocabulary _statefulParserVocabulary;
     private StAXDocumentSerializer _serializer;
 
     private final StreamSOAPCodec _soapCodec;
@@ -68,17 +84,58 @@ public abstract class FastInfosetStreamSOAPCodec implements Codec {
 
     protected final ContentType _defaultContentType;
 
-    /* package */ FastInfosetStreamSOAPCodec(StreamSOAPCodec soapCodec, SOAPVersion soapVersion, boolean retainState, String mimeType) {
+    /**
+     * External vocabularies by URI, converted once and shared by all copies
+     * of this codec. Null if there are none.
+     */
+    private final Map<String, ParserVocabulary> _parserVocabularies;
+    private final Map<String, SerializerVocabulary> _serializerVocabularies;
+
+    /**
+     * URI of the external vocabulary to encode the next message with,
+     * null for none.
+     */
+    private final String _initialVocabularyURI;
+    private String _vocabularyURI;
+
+    /**
+     * URI of the external vocabulary {@link #_serializer} refers to, and its
+     * vocabulary in that case.
+     */
+    private String _serializerVocabularyURI;
+    private SerializerVocabulary _serializerVocabulary;
+
+    /* package */ FastInfosetStreamSOAPCodec(StreamSOAPCodec soapCodec, SOAPVersion soapVersion, boolean retainState, String mimeType,
+            @Nullable FastInfosetVocabularyFeature vocabularies) {
 //        _soapCodec = StreamSOAPCodec.create(soapVersion);
         _soapCodec = soapCodec;
         _retainState = retainState;
         _defaultContentType = new ContentTypeImpl(mimeType);
+        if (vocabularies != null && vocabularies.isEnabled()) {
+            _parserVocabularies = new HashMap<String, ParserVocabulary>();
+            _serializerVocabularies = new HashMap<String, SerializerVocabulary>();
+            for (ExternalVocabulary v : vocabularies.getVocabularies()) {
+                _parserVocabularies.put(v.URI, new ParserVocabulary(v.vocabulary));
+                // StAXDocumentSerializer looks up qualified names by local name
+                _serializerVocabularies.put(v.URI, new SerializerVocabulary(v.vocabulary, true));
+            }
+            _initialVocabularyURI = vocabularies.getVocabulary().URI;
+        } else {
+            _parserVocabularies = null;
+            _serializerVocabularies = null;
+            _initialVocabularyURI = null;
+        }
+        _vocabularyURI = _initialVocabularyURI;
     }
 
     /* package */ FastInfosetStreamSOAPCodec(FastInfosetStreamSOAPCodec that) {
         this._soapCodec = (StreamSOAPCodec) that._soapCodec.copy();
         this._retainState = that._retainState;
         this._defaultContentType = that._defaultContentType;
+        this._parserVocabularies = that._parserVocabularies;
+        this._serializerVocabularies = that._serializerVocabularies;
+        this._initialVocabularyURI = that._initialVocabularyURI;
+        this._vocabularyURI = _initialVocabularyURI;
     }
 
     public String getMimeType() {
@@ -108,10 +165,39 @@ public abstract class FastInfosetStreamSOAPCodec implements Codec {
     }
 
     public void decode(InputStream in, String contentType, Packet response) throws IOException {
+        if (_parserVocabularies != null) {
+            decodeWithVocabularies(in, response);
+            return;
+        }
         response.setMessage(
                 _soapCodec.decode(getXMLStreamReader(in)));
     }
 
+    private void decodeWithVocabularies(InputStream in, Packet response) {
+        StAXDocumentParser parser;
+        ParserVocabulary vocabulary;
+        if (_retainState && _statefulParser != null) {
+            parser = _statefulParser;
+            parser.setInputStream(in);
+            vocabulary = _statefulParserVocabulary;
+        } else {
+            // a new parser for each message, as the decoded message may still be read after
+            // the next decode() call, and the vocabulary must not keep a previous reference
+            parser = FastInfosetCodec.createNewStreamReader(in, false);
+            vocabulary = new ParserVocabulary();
+            parser.setVocabulary(vocabulary);
+            parser.setExternalVocabularies(_parserVocabularies);
+            if (_retainState) {
+                _statefulParser = parser;
+                _statefulParserVocabulary = vocabulary;
+            }
+        }
+        // reading the envelope has read the vocabulary reference of the document
+        response.setMessage(_soapCodec.decode(parser));
+        if (!_retainState)
+            _vocabularyURI = vocabulary.getExternalVocabularyURI();
+    }
+
     public void decode(ReadableByteChannel in, String contentType, Packet response) {
         throw new UnsupportedOperationException();
     }
@@ -121,6 +207,9 @@ public abstract class FastInfosetStreamSOAPCodec implements Codec {
     protected abstract ContentType getContentType(String soapAction);
 
     private XMLStreamWriter getXMLStreamWriter(OutputStream out) {
+        if (_serializerVocabularies != null) {
+            return getXMLStreamWriterWithVocabulary(out);
+        }
         if (_serializer != null) {
             _serializer.setOutputStream(out);
             return _serializer;
@@ -129,6 +218,35 @@ public abstract class FastInfosetStreamSOAPCodec implements Codec {
         }
     }
 
+    private XMLStreamWriter getXMLStreamWriterWithVocabulary(OutputStream out) {
+        if (_serializer == null || !eq(_serializerVocabularyURI, _vocabularyURI)) {
+            _serializer = FastInfosetCodec.createNewStreamWriter(out, _retainState);
+            _serializerVocabularyURI = _vocabularyURI;
+            _serializerVocabulary = null;
+            if (_vocabularyURI != null) {
+                _serializerVocabulary = new SerializerVocabulary();
+                _serializerVocabulary.setExternalVocabulary(_vocabularyURI,
+                        _serializerVocabularies.get(_vocabularyURI), false);
+                _serializer.setVocabulary(_serializerVocabulary);
+            }
+        } else {
+            _serializer.setOutputStream(out);
+            // the serializer doesn't clear a vocabulary it was given, nor the
+            // application data (e.g. JAXB's indexes) that goes with it
+            if (_serializerVocabulary != null && !_retainState) {
+                _serializerVocabulary.clear();
+                VocabularyApplicationData data = _serializer.getVocabularyApplicationData();
+                if (data != null)
+                    data.clear();
+            }
+        }
+        return _serializer;
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     private XMLStreamReader getXMLStreamReader(InputStream in) {
         // If the _retainState is true (FI stateful) then pick up Codec assiciated XMLStreamReader
         if (_retainState) {
@@ -164,14 +282,40 @@ public abstract class FastInfosetStreamSOAPCodec implements Codec {
      */
     public static FastInfosetStreamSOAPCodec create(StreamSOAPCodec soapCodec,
             SOAPVersion version, boolean retainState) {
+        return create(soapCodec, version, retainState, null);
+    }
+
+    /**
+     * Creates a new {@link FastInfosetStreamSOAPCodec} instance.
+     *
+     * @param version the SOAP version of the codec.
+     * @param vocabularies the external vocabularies the codec uses, or null.
+     * @return a new {@link FastInfosetStreamSOAPCodec} instance.
+     */
+    public static FastInfosetStreamSOAPCodec create(StreamSOAPCodec soapCodec,
+            SOAPVersion version, @Nullable FastInfosetVocabularyFeature vocabularies) {
+        return create(soapCodec, version, false, vocabularies);
+    }
+
+    /**
+     * Creates a new {@link FastInfosetStreamSOAPCodec} instance.
+     *
+     * @param version the SOAP version of the codec.
+     * @param retainState if true the Codec should retain the state of
+     *        vocabulary tables for multiple encode/decode invocations.
+     * @param vocabularies the external vocabularies the codec uses, or null.
+     * @return a new {@link FastInfosetStreamSOAPCodec} instance.
+     */
+    public static FastInfosetStreamSOAPCodec create(StreamSOAPCodec soapCodec,
+            SOAPVersion version, boolean retainState, @Nullable FastInfosetVocabularyFeature vocabularies) {
         if(version==null)
             // this decoder is for SOAP, not for XML/HTTP
             throw new IllegalArgumentException();
         switch(version) {
             case SOAP_11:
-                return new FastInfosetStreamSOAP11Codec(soapCodec, retainState);
+                return new FastInfosetStreamSOAP11Codec(soapCodec, retainState, vocabularies);
             case SOAP_12:
-                return new FastInfosetStreamSOAP12Codec(soapCodec, retainState);
+                return new FastInfosetStreamSOAP12Codec(soapCodec, retainState, vocabularies);
             default:
                 throw new AssertionError();
         }
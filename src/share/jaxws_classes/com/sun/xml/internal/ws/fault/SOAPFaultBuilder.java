@@ -37,6 +37,7 @@ import com.sun.xml.internal.ws.encoding.soap.SOAP12Constants;
 import com.sun.xml.internal.ws.encoding.soap.SOAPConstants;
 import com.sun.xml.internal.ws.encoding.soap.SerializationException;
 import com.sun.xml.internal.ws.message.jaxb.JAXBMessage;
+import com.sun.xml.internal.ws.message.EncodedMessage;
 import com.sun.xml.internal.ws.message.FaultMessage;
 import com.sun.xml.internal.ws.model.CheckedExceptionImpl;
 import com.sun.xml.internal.ws.model.JavaMethodImpl;
@@ -60,6 +61,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -211,9 +213,36 @@ public abstract class SOAPFaultBuilder {
     public static Message createSOAPFaultMessage(SOAPVersion soapVersion, String faultString, QName faultCode) {
         if (faultCode == null)
             faultCode = getDefaultFaultCode(soapVersion);
-        return createSOAPFaultMessage(soapVersion, faultString, faultCode, null);
+        String key = soapVersion.name() + ' ' + faultCode + ' ' + faultString;
+        byte[] envelope;
+        synchronized (ENCODED_FAULTS) {
+            envelope = ENCODED_FAULTS.get(key);
+        }
+        Message fault = createSOAPFaultMessage(soapVersion, faultString, faultCode, null);
+        if (envelope == null) {
+            envelope = EncodedMessage.encode(fault);
+            synchronized (ENCODED_FAULTS) {
+                ENCODED_FAULTS.put(key, envelope);
+            }
+        }
+        return new EncodedMessage(fault, soapVersion, envelope);
     }
 
+    /**
+     * Most faults without a detail are created for a few codes and strings
+     * over and over, so their encoded envelopes are kept, keyed by the SOAP
+     * version, fault code and fault string.
+     */
+    private static final int MAX_ENCODED_FAULTS = 64;
+    private static final Map<String, byte[]> ENCODED_FAULTS = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_ENCODED_FAULTS;
+        }
+    };
+
     public static Message createSOAPFaultMessage(SOAPVersion soapVersion, SOAPFault fault) {
         switch (soapVersion) {
             case SOAP_11:
@@ -29,6 +29,7 @@ import com.sun.xml.internal.ws.api.message.Message;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.WSBinding;
 import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.message.SOAPMessageView;
 import com.sun.xml.internal.ws.message.saaj.SAAJMessage;
 
 import javax.xml.bind.JAXBContext;
@@ -55,6 +56,8 @@ class SOAPMessageContextImpl extends MessageUpdatableContext implements SOAPMess
 
     private Set<String> roles;
     private SOAPMessage soapMsg = null;
+    // non-null if soapMsg was created lazily from the packet message
+    private SOAPMessageView view = null;
     private WSBinding binding;
 
     public SOAPMessageContextImpl(WSBinding binding, Packet packet,Set<String> roles) {
@@ -66,7 +69,11 @@ class SOAPMessageContextImpl extends MessageUpdatableContext implements SOAPMess
     public SOAPMessage getMessage() {
         if(soapMsg == null) {
             try {
-                soapMsg = packet.getMessage().readAsSOAPMessage();
+                view = SOAPMessageView.create(packet.getMessage());
+                if (view != null)
+                    soapMsg = view.getSOAPMessage();
+                else
+                    soapMsg = packet.getMessage().readAsSOAPMessage();
             } catch (SOAPException e) {
                 throw new WebServiceException(e);
             }
@@ -86,6 +93,7 @@ class SOAPMessageContextImpl extends MessageUpdatableContext implements SOAPMess
         if(newMessage != null) {
             packet.setMessage(newMessage);
             soapMsg = null;
+            view = null;
         }
     }
 
@@ -93,8 +101,17 @@ class SOAPMessageContextImpl extends MessageUpdatableContext implements SOAPMess
         //Check if SOAPMessage has changed, if so construct new one,
         // Packet are handled through MessageContext
         if(soapMsg != null) {
-            packet.setMessage(new SAAJMessage(soapMsg));
+            if (view != null && soapMsg == view.getSOAPMessage()) {
+                try {
+                    packet.setMessage(view.getUpdatedMessage());
+                } catch (SOAPException e) {
+                    throw new WebServiceException(e);
+                }
+            } else {
+                packet.setMessage(new SAAJMessage(soapMsg));
+            }
             soapMsg = null;
+            view = null;
         }
     }
 
@@ -163,6 +163,25 @@ public abstract class AbstractMessageImpl extends Message {
         contentHandler.endElement(soapNsUri,"Envelope","S:Envelope");
     }
 
+    /**
+     * Writes the SOAP elements that {@link #writeTo(ContentHandler, ErrorHandler)}
+     * writes around the header blocks and the payload, with nothing inside
+     * them.
+     */
+    protected void writeEnvelopeSkeleton(ContentHandler contentHandler) throws SAXException {
+        String soapNsUri = soapVersion.nsUri;
+
+        contentHandler.startPrefixMapping("S",soapNsUri);
+        contentHandler.startElement(soapNsUri,"Envelope","S:Envelope",EMPTY_ATTS);
+        if(hasHeaders()) {
+            contentHandler.startElement(soapNsUri,"Header","S:Header",EMPTY_ATTS);
+            contentHandler.endElement(soapNsUri,"Header","S:Header");
+        }
+        contentHandler.startElement(soapNsUri,"Body","S:Body",EMPTY_ATTS);
+        contentHandler.endElement(soapNsUri,"Body","S:Body");
+        contentHandler.endElement(soapNsUri,"Envelope","S:Envelope");
+    }
+
     /**
      * Writes the payload to SAX events.
      *
@@ -29,6 +29,7 @@ import com.sun.xml.internal.ws.api.message.AttachmentSet;
 import com.sun.xml.internal.ws.api.message.Attachment;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 
 /**
@@ -42,7 +43,11 @@ import java.util.Iterator;
  */
 public final class AttachmentSetImpl implements AttachmentSet {
 
-    private final ArrayList<Attachment> attList = new ArrayList<Attachment>();
+    /**
+     * Created by the first {@link #add(Attachment)}, as most messages
+     * don't have attachments.
+     */
+    private ArrayList<Attachment> attList;
 
     /**
      * Creates an empty {@link AttachmentSet}.
@@ -59,6 +64,8 @@ public final class AttachmentSetImpl implements AttachmentSet {
     }
 
     public Attachment get(String contentId) {
+        if (attList == null)
+            return null;
         for( int i=attList.size()-1; i>=0; i-- ) {
             Attachment a = attList.get(i);
             if(a.getContentId().equals(contentId))
@@ -68,14 +75,18 @@ public final class AttachmentSetImpl implements AttachmentSet {
     }
 
     public boolean isEmpty() {
-        return attList.isEmpty();
+        return attList == null || attList.isEmpty();
     }
 
     public void add(Attachment att) {
+        if (attList == null)
+            attList = new ArrayList<Attachment>();
         attList.add(att);
     }
 
     public Iterator<Attachment> iterator() {
+        if (attList == null)
+            return Collections.<Attachment>emptyList().iterator();
         return attList.iterator();
     }
 
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.message;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.message.FilterMessageImpl;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.streaming.XMLStreamWriterFactory;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.ws.WebServiceException;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * {@link Message} that also keeps its whole envelope encoded in UTF-8,
+ * which is valid as long as no header is added to it.
+ *
+ * <p>
+ * This is for messages that are created over and over with the same
+ * content, like the faults that only have a fault code and string. A codec
+ * that writes UTF-8 copies the bytes instead of serializing the message
+ * again, see {@link EnvelopeFragments}.
+ */
+public final class EncodedMessage extends FilterMessageImpl {
+    private final SOAPVersion soapVersion;
+    private final byte[] envelope;
+
+    /**
+     * @param envelope
+     *      the delegate as written by {@link #encode(Message)}.
+     */
+    public EncodedMessage(@NotNull Message delegate, @NotNull SOAPVersion soapVersion, @NotNull byte[] envelope) {
+        super(delegate);
+        this.soapVersion = soapVersion;
+        this.envelope = envelope;
+    }
+
+    /**
+     * Gets the encoded envelope.
+     *
+     * @return
+     *      null if headers have been added since, so the bytes are no longer
+     *      the whole message. The array must not be modified.
+     */
+    public @Nullable byte[] getEncodedEnvelope() {
+        return hasHeaders() ? null : envelope;
+    }
+
+    public SOAPVersion getSOAPVersion() {
+        return soapVersion;
+    }
+
+    @Override
+    public Message copy() {
+        return new EncodedMessage(super.copy(), soapVersion, envelope);
+    }
+
+    /**
+     * Writes the whole message in UTF-8. The message must be writable more
+     * than once, like a {@link com.sun.xml.internal.ws.message.jaxb.JAXBMessage}.
+     */
+    public static byte[] encode(Message message) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XMLStreamWriter w = XMLStreamWriterFactory.create(baos);
+        try {
+            message.writeTo(w);
+            w.flush();
+        } catch (XMLStreamException e) {
+            throw new WebServiceException(e);
+        }
+        XMLStreamWriterFactory.recycle(w);
+        return baos.toByteArray();
+    }
+}
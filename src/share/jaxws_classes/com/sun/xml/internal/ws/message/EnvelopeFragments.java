@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.message;
+
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.streaming.XMLStreamWriterFactory;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes the constant parts of a SOAP message from pre-encoded UTF-8
+ * bytes straight to an {@link OutputStream}, bypassing the
+ * {@link XMLStreamWriter}.
+ *
+ * <p>
+ * The envelope and body start tags of a message that uses the default
+ * envelope of {@link AbstractMessageImpl#writeTo(XMLStreamWriter)}, and has
+ * no headers, only depend on the SOAP version. So they are encoded once,
+ * and only the payload is written with an {@link XMLStreamWriter}. An
+ * {@link EncodedMessage} is copied as a whole.
+ *
+ * <p>
+ * Messages that carry their own envelope, like a
+ * {@link com.sun.xml.internal.ws.message.stream.StreamMessage} with the
+ * namespace declarations of the parsed document, are written as before.
+ */
+public final class EnvelopeFragments {
+    private static final byte[] SOAP11_PROLOG = prolog(SOAPVersion.SOAP_11);
+    private static final byte[] SOAP12_PROLOG = prolog(SOAPVersion.SOAP_12);
+    private static final byte[] EPILOG = utf8("</S:Body></S:Envelope>");
+
+    /**
+     * Whether a message class writes the default envelope.
+     */
+    private static final ConcurrentMap<Class<?>, Boolean> DEFAULT_ENVELOPE = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    private EnvelopeFragments() {}
+
+    /**
+     * Writes the message in UTF-8 using the pre-encoded fragments, if it can.
+     *
+     * @return
+     *      false if nothing was written, and the message has to be written
+     *      with {@link Message#writeTo(XMLStreamWriter)}.
+     */
+    public static boolean writeTo(Message message, OutputStream out) throws XMLStreamException, IOException {
+        if (message instanceof EncodedMessage) {
+            byte[] envelope = ((EncodedMessage) message).getEncodedEnvelope();
+            if (envelope == null)
+                return false;
+            out.write(envelope);
+            return true;
+        }
+        if (!(message instanceof AbstractMessageImpl) || message.hasHeaders()
+                || !hasDefaultEnvelope(message.getClass()))
+            return false;
+
+        out.write(((AbstractMessageImpl) message).soapVersion == SOAPVersion.SOAP_12 ? SOAP12_PROLOG : SOAP11_PROLOG);
+        XMLStreamWriter w = XMLStreamWriterFactory.create(out);
+        message.writePayloadTo(w);
+        w.flush();
+        XMLStreamWriterFactory.recycle(w);
+        out.write(EPILOG);
+        return true;
+    }
+
+    private static boolean hasDefaultEnvelope(Class<?> c) {
+        Boolean b = DEFAULT_ENVELOPE.get(c);
+        if (b == null) {
+            try {
+                Method m = c.getMethod("writeTo", XMLStreamWriter.class);
+                b = m.getDeclaringClass() == AbstractMessageImpl.class;
+            } catch (NoSuchMethodException e) {
+                b = false;
+            }
+            DEFAULT_ENVELOPE.put(c, b);
+        }
+        return b;
+    }
+
+    /**
+     * The envelope and body start tags, as {@link AbstractMessageImpl#writeTo(XMLStreamWriter)} writes them.
+     */
+    private static byte[] prolog(SOAPVersion version) {
+        return utf8("<?xml version=\"1.0\" ?><S:Envelope xmlns:S=\"" + version.nsUri + "\"><S:Body>");
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
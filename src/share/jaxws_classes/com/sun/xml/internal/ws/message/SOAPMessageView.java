@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.message;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.bind.marshaller.SAX2DOMEx;
+import com.sun.xml.internal.messaging.saaj.soap.impl.ElementImpl;
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.message.Attachment;
+import com.sun.xml.internal.ws.api.message.HeaderList;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.message.saaj.SAAJHeader;
+import com.sun.xml.internal.ws.message.saaj.SAAJMessage;
+import com.sun.xml.internal.ws.util.xml.XmlUtil;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.soap.AttachmentPart;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.SOAPEnvelope;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.soap.SOAPHeaderElement;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.ws.WebServiceException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link SOAPMessage} view of a {@link Message} for the SOAP handlers,
+ * that converts the message to DOM only as far as a handler looks at it.
+ *
+ * <p>
+ * The SOAP elements are created as the message writes them, with their
+ * attributes and namespace declarations, but empty. The header blocks are converted when the
+ * children of the &lt;Header> element are first accessed, and the payload
+ * when the children of the &lt;Body> element are. When the handlers are
+ * done, {@link #getUpdatedMessage()} keeps the original {@link Message} if
+ * the body wasn't accessed, so that the payload is still written by the
+ * original, streaming, message. Only its headers are replaced if they were
+ * accessed. Any other change, to the attachments, the MIME headers or the
+ * attributes of the SOAP elements, makes it fall back to a {@link SAAJMessage}.
+ *
+ * @see Message#readAsSOAPMessage()
+ */
+public final class SOAPMessageView {
+    private final AbstractMessageImpl message;
+    private final SOAPMessage soapMessage;
+    private final @Nullable ElementImpl header;
+    private final ElementImpl body;
+    private final SOAPEnvelope envelope;
+
+    /**
+     * What the handlers may change besides the header blocks and the payload,
+     * as it was when the view was created. See {@link #getState()}.
+     */
+    private final List<Object> state;
+
+    private SOAPMessageView(AbstractMessageImpl message, SOAPMessage soapMessage, ElementImpl header, ElementImpl body) throws SOAPException {
+        this.message = message;
+        this.soapMessage = soapMessage;
+        this.header = header;
+        this.body = body;
+        this.envelope = soapMessage.getSOAPPart().getEnvelope();
+        this.state = getState();
+    }
+
+    /**
+     * Creates a view of the message.
+     *
+     * @return
+     *      null if the message can't be viewed lazily, either because it isn't
+     *      an {@link AbstractMessageImpl}, or because SAAJ isn't the built-in
+     *      implementation. {@link Message#readAsSOAPMessage()} is used then.
+     */
+    public static @Nullable SOAPMessageView create(@NotNull Message message) throws SOAPException {
+        if (!(message instanceof AbstractMessageImpl))
+            return null;
+        final AbstractMessageImpl m = (AbstractMessageImpl) message;
+        SOAPVersion soapVersion = m.soapVersion;
+        if (soapVersion == null)
+            return null;
+
+        SOAPMessage msg = soapVersion.saajMessageFactory.createMessage();
+        try {
+            m.writeEnvelopeSkeleton(new SAX2DOMEx(msg.getSOAPPart()));
+        } catch (SAXException e) {
+            throw new SOAPException(e);
+        }
+
+        SOAPHeader h = msg.getSOAPHeader();
+        if (!(msg.getSOAPBody() instanceof ElementImpl) || (h != null && !(h instanceof ElementImpl)))
+            return null;
+        final ElementImpl header = (ElementImpl) h;
+        final ElementImpl body = (ElementImpl) msg.getSOAPBody();
+
+        if (header != null) {
+            header.setLazyChildren(new Runnable() {
+                public void run() {
+                    SAX2DOMEx s2d = new SAX2DOMEx(header);
+                    HeaderList headers = m.getHeaders();
+                    try {
+                        for (int i = 0; i < headers.size(); i++)
+                            headers.get(i).writeTo(s2d, XmlUtil.DRACONIAN_ERROR_HANDLER);
+                    } catch (SAXException e) {
+                        throw new WebServiceException(e);
+                    }
+                }
+            });
+        }
+        body.setLazyChildren(new Runnable() {
+            public void run() {
+                try {
+                    m.writePayloadTo(new SAX2DOMEx(body), XmlUtil.DRACONIAN_ERROR_HANDLER, true);
+                } catch (SAXException e) {
+                    throw new WebServiceException(e);
+                }
+            }
+        });
+
+        for (Attachment att : m.getAttachments()) {
+            AttachmentPart part = msg.createAttachmentPart();
+            part.setDataHandler(att.asDataHandler());
+            part.setContentId('<'+att.getContentId()+'>');
+            msg.addAttachmentPart(part);
+        }
+        return new SOAPMessageView(m, msg, header, body);
+    }
+
+    public @NotNull SOAPMessage getSOAPMessage() {
+        return soapMessage;
+    }
+
+    /**
+     * Gets the {@link Message} with the changes that the handlers made
+     * to the view.
+     *
+     * <p>
+     * The view can't be used after this method is called.
+     */
+    public @NotNull Message getUpdatedMessage() throws SOAPException {
+        if (body.hasLazyChildren() && soapMessage.getSOAPPart().getEnvelope() == envelope
+                && hasSOAPElements() && getState().equals(state)) {
+            // only the header blocks may have changed
+            SOAPHeader h = soapMessage.getSOAPHeader();
+            if (h != header || (header != null && !header.hasLazyChildren())) {
+                HeaderList headers = message.getHeaders();
+                headers.clear();
+                if (h != null) {
+                    Iterator<?> iter = h.examineAllHeaderElements();
+                    while (iter.hasNext())
+                        headers.add(new SAAJHeader((SOAPHeaderElement) iter.next()));
+                }
+            }
+            return message;
+        }
+        return new SAAJMessage(soapMessage);
+    }
+
+    /**
+     * Checks that the envelope still has the original body, and nothing else
+     * than a header. A header that replaces the original one can only be
+     * taken as its header blocks, so it must not have attributes.
+     */
+    private boolean hasSOAPElements() throws SOAPException {
+        SOAPHeader h = soapMessage.getSOAPHeader();
+        if (h != null && h != header && h.getAttributes().getLength() != 0)
+            return false;
+        for (Node n = envelope.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE && n != h && n != body)
+                return false;
+        }
+        return soapMessage.getSOAPBody() == body;
+    }
+
+    /**
+     * Gets the attachments, the MIME headers and the attributes of the
+     * envelope, the header and the body, to find out if the handlers changed
+     * them. The attachments are compared by identity, with their content and
+     * MIME headers.
+     */
+    private List<Object> getState() throws SOAPException {
+        List<Object> state = new ArrayList<Object>();
+        Iterator<?> parts = soapMessage.getAttachments();
+        while (parts.hasNext()) {
+            AttachmentPart part = (AttachmentPart) parts.next();
+            state.add(part);
+            try {
+                state.add(part.getDataHandler());
+            } catch (SOAPException e) {
+                // no content
+                state.add(null);
+            }
+            addMimeHeaders(part.getAllMimeHeaders(), state);
+        }
+        state.add(null);
+        addMimeHeaders(soapMessage.getMimeHeaders().getAllHeaders(), state);
+        addAttributes(envelope, state);
+        addAttributes(body, state);
+        if (header != null)
+            addAttributes(header, state);
+        return state;
+    }
+
+    private static void addMimeHeaders(Iterator<?> headers, List<Object> state) {
+        while (headers.hasNext()) {
+            MimeHeader h = (MimeHeader) headers.next();
+            state.add(h.getName());
+            state.add(h.getValue());
+        }
+        state.add(null);
+    }
+
+    /**
+     * Adds the attributes, including the namespace declarations.
+     */
+    private static void addAttributes(Element e, List<Object> state) {
+        NamedNodeMap atts = e.getAttributes();
+        for (int i = 0; i < atts.getLength(); i++) {
+            Node a = atts.item(i);
+            state.add(a.getNodeName());
+            state.add(a.getNamespaceURI());
+            state.add(a.getNodeValue());
+        }
+        state.add(null);
+    }
+}
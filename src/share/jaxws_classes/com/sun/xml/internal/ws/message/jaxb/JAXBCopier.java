@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.message.jaxb;
+
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.bind.api.AccessorException;
+import com.sun.xml.internal.bind.api.JAXBRIContext;
+import com.sun.xml.internal.bind.v2.ClassFactory;
+import com.sun.xml.internal.bind.v2.model.core.ID;
+import com.sun.xml.internal.bind.v2.model.runtime.RuntimeClassInfo;
+import com.sun.xml.internal.bind.v2.model.runtime.RuntimeElementInfo;
+import com.sun.xml.internal.bind.v2.model.runtime.RuntimePropertyInfo;
+import com.sun.xml.internal.bind.v2.model.runtime.RuntimeTypeInfoSet;
+import com.sun.xml.internal.bind.v2.runtime.IllegalAnnotationsException;
+import com.sun.xml.internal.bind.v2.runtime.JAXBContextImpl;
+import com.sun.xml.internal.bind.v2.runtime.JaxBeanInfo;
+import com.sun.xml.internal.bind.v2.runtime.reflect.Accessor;
+import org.w3c.dom.Element;
+
+import javax.activation.DataHandler;
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import java.awt.Image;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Copies the JAXB objects of a {@link JAXBMessage} for a reader that uses
+ * the same {@link JAXBContextImpl}, instead of marshalling them to XML and
+ * unmarshalling the XML again.
+ *
+ * <p>
+ * The copy follows the runtime model of the context: a bean is copied
+ * property by property through the accessors that the unmarshaller uses,
+ * collections and maps are filled like the unmarshaller fills them, and
+ * the values that aren't JAXB beans are copied if they are mutable.
+ *
+ * <p>
+ * Whatever the copier isn't sure to copy as the XML round trip would, like
+ * a property with an adapter or a schema type, an IDREF, a class with
+ * lifecycle callbacks or a type the model doesn't know, makes
+ * {@link #copy(Object)} give up, and the caller goes through the XML as
+ * before. An adapter or a schema type may change the value on the way, for
+ * example an {@code xs:date} drops the time of a calendar, and a collapsed
+ * string loses its whitespace.
+ */
+final class JAXBCopier {
+
+    /**
+     * Thrown when an object can't be copied. Preallocated, as it is
+     * just a way out of the recursion.
+     */
+    private static final class NotCopyable extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+    private static final NotCopyable NOT_COPYABLE = new NotCopyable();
+
+    /**
+     * How to copy a bean class.
+     */
+    private static final class BeanPlan {
+        final Class<?> type;
+        /**
+         * Null if the class can't be copied.
+         */
+        final Accessor<Object,Object>[] accessors;
+        /**
+         * The field type of each accessor, to create collections and maps.
+         */
+        final Class<?>[] rawTypes;
+        /**
+         * Non-null if the class is the only class bound to its root element.
+         */
+        final QName rootElement;
+
+        BeanPlan(Class<?> type, Accessor<Object,Object>[] accessors, Class<?>[] rawTypes, QName rootElement) {
+            this.type = type;
+            this.accessors = accessors;
+            this.rawTypes = rawTypes;
+            this.rootElement = rootElement;
+        }
+    }
+
+    private static final Map<JAXBRIContext,JAXBCopier> copiers = new WeakHashMap<JAXBRIContext,JAXBCopier>();
+
+    /**
+     * Copier for contexts that can't be copied from.
+     */
+    private static final JAXBCopier NONE = new JAXBCopier(Collections.<Class<?>,BeanPlan>emptyMap(), Collections.<QName>emptySet());
+
+    private final Map<Class<?>,BeanPlan> plans;
+
+    /**
+     * Global elements whose value is adapted or has a schema type, their
+     * {@link JAXBElement}s aren't copied.
+     */
+    private final Set<QName> convertedElements;
+
+    private JAXBCopier(Map<Class<?>,BeanPlan> plans, Set<QName> convertedElements) {
+        this.plans = plans;
+        this.convertedElements = convertedElements;
+    }
+
+    /**
+     * Gets the copier for a context.
+     *
+     * @return
+     *      null if the objects of this context can't be copied.
+     */
+    static @Nullable JAXBCopier get(JAXBRIContext context) {
+        JAXBCopier copier;
+        synchronized (copiers) {
+            copier = copiers.get(context);
+        }
+        if (copier == null) {
+            copier = create(context);
+            synchronized (copiers) {
+                copiers.put(context, copier);
+            }
+        }
+        return copier == NONE ? null : copier;
+    }
+
+    private static JAXBCopier create(JAXBRIContext context) {
+        if (!(context instanceof JAXBContextImpl))
+            return NONE;
+        JAXBContextImpl c = (JAXBContextImpl) context;
+        RuntimeTypeInfoSet model;
+        try {
+            model = c.getTypeInfoSet();
+        } catch (IllegalAnnotationsException e) {
+            return NONE;
+        }
+
+        Map<QName,Integer> rootCount = new HashMap<QName,Integer>();
+        Set<QName> convertedElements = new HashSet<QName>();
+        for (RuntimeElementInfo ei : model.getAllElements()) {
+            count(rootCount, ei.getElementName());
+            if (isConverted(ei.getProperty()))
+                convertedElements.add(ei.getElementName());
+        }
+        for (RuntimeClassInfo ci : model.beans().values()) {
+            if (ci.isElement())
+                count(rootCount, ci.getElementName());
+        }
+
+        Map<Class<?>,BeanPlan> plans = new HashMap<Class<?>,BeanPlan>();
+        for (RuntimeClassInfo ci : model.beans().values()) {
+            Class<?> type = ci.getClazz();
+            QName root = ci.isElement() && rootCount.get(ci.getElementName()) == 1 ? ci.getElementName() : null;
+            Accessor<Object,Object>[] accessors = null;
+            Class<?>[] rawTypes = null;
+            if (isCopyable(c, ci)) {
+                List<Accessor<?,?>> acc = new ArrayList<Accessor<?,?>>();
+                List<Class<?>> raw = new ArrayList<Class<?>>();
+                for (RuntimeClassInfo x = ci; x != null; x = x.getBaseClass()) {
+                    for (RuntimePropertyInfo p : x.getProperties()) {
+                        acc.add(p.getAccessor());
+                        raw.add(erasure(p.getRawType()));
+                    }
+                    if (x.declaresAttributeWildcard()) {
+                        acc.add(x.getAttributeWildcard());
+                        raw.add(Map.class);
+                    }
+                }
+                accessors = toObjectAccessors(acc);
+                rawTypes = raw.toArray(new Class<?>[raw.size()]);
+            }
+            plans.put(type, new BeanPlan(type, accessors, rawTypes, root));
+        }
+        return new JAXBCopier(plans, convertedElements);
+    }
+
+    private static boolean isCopyable(JAXBContextImpl context, RuntimeClassInfo ci) {
+        if (ci.isAbstract() || ci.getFactoryMethod() != null || ci.getLocatorField() != null)
+            return false;
+        Class<?> type = ci.getClazz();
+        JaxBeanInfo<?> bi = context.getBeanInfo(type);
+        if (bi == null || bi.hasBeforeUnmarshalMethod() || bi.hasAfterUnmarshalMethod()
+                || bi.hasBeforeMarshalMethod() || bi.hasAfterMarshalMethod())
+            return false;
+        for (RuntimeClassInfo x = ci; x != null; x = x.getBaseClass()) {
+            for (RuntimePropertyInfo p : x.getProperties()) {
+                if (isConverted(p) || p.id() == ID.IDREF)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the XML form of a property may not give back the same value.
+     */
+    private static boolean isConverted(RuntimePropertyInfo p) {
+        return p.getAdapter() != null || p.getSchemaType() != null;
+    }
+
+    private static void count(Map<QName,Integer> counts, QName name) {
+        Integer n = counts.get(name);
+        counts.put(name, n == null ? 1 : n+1);
+    }
+
+    /**
+     * The accessors of a plan are only used on instances of its class.
+     */
+    @SuppressWarnings("unchecked")
+    private static Accessor<Object,Object>[] toObjectAccessors(List<Accessor<?,?>> acc) {
+        return (Accessor<Object,Object>[]) acc.toArray(new Accessor<?,?>[acc.size()]);
+    }
+
+    private static Class<?> erasure(Type t) {
+        if (t instanceof Class)
+            return (Class<?>) t;
+        if (t instanceof ParameterizedType)
+            return erasure(((ParameterizedType) t).getRawType());
+        return Object.class;
+    }
+
+    /**
+     * Gets the root element of a bean, if the bean class is the only class
+     * bound to it, so that unmarshalling this element gives the same class.
+     *
+     * @return
+     *      null otherwise.
+     */
+    @Nullable QName getUniqueRootElement(Object o) {
+        BeanPlan plan = plans.get(o.getClass());
+        return plan != null ? plan.rootElement : null;
+    }
+
+    /**
+     * Copies an object.
+     *
+     * @return
+     *      null if the object can't be copied.
+     */
+    @Nullable Object copy(Object o) {
+        try {
+            return copyValue(o, new IdentityHashMap<Object,Object>());
+        } catch (NotCopyable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param path
+     *      the beans being copied, as a cycle can't be marshalled.
+     */
+    private Object copyValue(Object o, IdentityHashMap<Object,Object> path) throws NotCopyable {
+        if (o == null || isImmutable(o))
+            return o;
+        if (o instanceof byte[])
+            return ((byte[]) o).clone();
+        if (o.getClass().isArray())
+            return copyArray(o, path);
+        if (o instanceof XMLGregorianCalendar)
+            return ((XMLGregorianCalendar) o).clone();
+        if (o instanceof Date && (o.getClass() == Date.class))
+            return ((Date) o).clone();
+        if (o instanceof Calendar)
+            throw NOT_COPYABLE;     // read back with an offset instead of its time zone
+        if (o instanceof Element)
+            return ((Element) o).cloneNode(true);
+        if (o instanceof JAXBElement)
+            return copyElement((JAXBElement<?>) o, path);
+        BeanPlan plan = plans.get(o.getClass());
+        if (plan == null || plan.accessors == null)
+            throw NOT_COPYABLE;
+        return copyBean(plan, o, path);
+    }
+
+    private static boolean isImmutable(Object o) {
+        return o instanceof String || o instanceof Boolean || o instanceof Character
+                || o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte
+                || o instanceof Double || o instanceof Float
+                || (o instanceof BigInteger && o.getClass() == BigInteger.class)
+                // printed without the exponent, so a negative scale isn't read back
+                || (o instanceof BigDecimal && o.getClass() == BigDecimal.class && ((BigDecimal) o).scale() >= 0)
+                || o instanceof QName || o instanceof Enum || o instanceof Duration
+                || o instanceof URI || o instanceof URL || o instanceof UUID || o instanceof File
+                // shared, as their content isn't copied by the XML either
+                || o instanceof DataHandler || o instanceof Image;
+    }
+
+    private Object copyArray(Object o, IdentityHashMap<Object,Object> path) throws NotCopyable {
+        Class<?> component = o.getClass().getComponentType();
+        int len = Array.getLength(o);
+        if (component.isPrimitive()) {
+            Object r = Array.newInstance(component, len);
+            System.arraycopy(o, 0, r, 0, len);
+            return r;
+        }
+        Object[] src = (Object[]) o;
+        Object[] r = (Object[]) Array.newInstance(component, len);
+        for (int i = 0; i < len; i++) {
+            if (src[i] == null)
+                throw NOT_COPYABLE;
+            r[i] = copyValue(src[i], path);
+        }
+        return r;
+    }
+
+    @SuppressWarnings("unchecked")  // the copy of a value has the class of the value
+    private <T> Object copyElement(JAXBElement<T> e, IdentityHashMap<Object,Object> path) throws NotCopyable {
+        if (e.getClass() != JAXBElement.class || convertedElements.contains(e.getName()))
+            throw NOT_COPYABLE;
+        JAXBElement<T> r = new JAXBElement<T>(e.getName(), e.getDeclaredType(), e.getScope(), (T) copyValue(e.getValue(), path));
+        r.setNil(e.isNil());
+        return r;
+    }
+
+    private Object copyBean(BeanPlan plan, Object o, IdentityHashMap<Object,Object> path) throws NotCopyable {
+        if (path.put(o, o) != null)
+            throw NOT_COPYABLE;
+        try {
+            Object r = ClassFactory.create0(plan.type);
+            for (int i = 0; i < plan.accessors.length; i++) {
+                Accessor<Object,Object> acc = plan.accessors[i];
+                Object v = acc.get(o);
+                if (v instanceof Collection) {
+                    copyCollection((Collection<?>) v, acc, plan.rawTypes[i], r, path);
+                } else if (v instanceof Map) {
+                    copyMap((Map<?,?>) v, acc, plan.rawTypes[i], r, path);
+                } else if (v != null) {
+                    acc.set(r, copyValue(v, path));
+                } else if (acc.get(r) != null) {
+                    // the XML may or may not reset the default, depending on nillable
+                    throw NOT_COPYABLE;
+                }
+            }
+            path.remove(o);
+            return r;
+        } catch (NotCopyable e) {
+            throw e;
+        } catch (Exception e) {
+            // AccessorException, or the constructor failed
+            throw NOT_COPYABLE;
+        }
+    }
+
+    /**
+     * Fills the collection of the copy like the unmarshaller does: an empty
+     * collection isn't in the XML, and the collection created by the
+     * constructor is reused.
+     */
+    @SuppressWarnings("unchecked")  // the field is a collection of any value
+    private void copyCollection(Collection<?> v, Accessor<Object,Object> acc, Class<?> rawType, Object r, IdentityHashMap<Object,Object> path) throws NotCopyable, AccessorException {
+        if (v.isEmpty())
+            return;
+        Collection<Object> c = (Collection<Object>) acc.get(r);
+        if (c == null) {
+            Class<?> impl = ClassFactory.inferImplClass(rawType, COLLECTION_IMPL_CLASSES);
+            if (impl == null)
+                throw NOT_COPYABLE;
+            c = (Collection<Object>) ClassFactory.create(impl);
+            acc.set(r, c);
+        } else {
+            c.clear();
+        }
+        for (Object item : v) {
+            if (item == null)
+                throw NOT_COPYABLE;
+            c.add(copyValue(item, path));
+        }
+    }
+
+    /**
+     * Fills the map of the copy like the unmarshaller does.
+     */
+    @SuppressWarnings("unchecked")  // the field is a map of any value
+    private void copyMap(Map<?,?> v, Accessor<Object,Object> acc, Class<?> rawType, Object r, IdentityHashMap<Object,Object> path) throws NotCopyable, AccessorException {
+        Map<Object,Object> m = (Map<Object,Object>) acc.get(r);
+        if (m == null) {
+            Class<?> impl = ClassFactory.inferImplClass(rawType, MAP_IMPL_CLASSES);
+            if (impl == null)
+                throw NOT_COPYABLE;
+            m = (Map<Object,Object>) ClassFactory.create(impl);
+            acc.set(r, m);
+        } else {
+            m.clear();
+        }
+        for (Map.Entry<?,?> e : v.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null)
+                throw NOT_COPYABLE;
+            m.put(copyValue(e.getKey(), path), copyValue(e.getValue(), path));
+        }
+    }
+
+    /**
+     * Same as {@code Lister}.
+     */
+    private static final Class<?>[] COLLECTION_IMPL_CLASSES = {
+        ArrayList.class, LinkedList.class, HashSet.class, TreeSet.class, Stack.class
+    };
+
+    /**
+     * Same as {@code SingleMapNodeProperty}.
+     */
+    private static final Class<?>[] MAP_IMPL_CLASSES = {
+        HashMap.class, TreeMap.class, LinkedHashMap.class
+    };
+}
@@ -29,6 +29,8 @@ import com.sun.istack.internal.FragmentContentHandler;
 import com.sun.istack.internal.NotNull;
 import com.sun.xml.internal.bind.api.Bridge;
 import com.sun.xml.internal.bind.api.JAXBRIContext;
+import com.sun.xml.internal.bind.api.TypeReference;
+import com.sun.xml.internal.bind.v2.runtime.unmarshaller.UnmarshallerImpl;
 import com.sun.xml.internal.stream.buffer.MutableXMLStreamBuffer;
 import com.sun.xml.internal.stream.buffer.XMLStreamBuffer;
 import com.sun.xml.internal.stream.buffer.XMLStreamBufferResult;
@@ -52,7 +54,10 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.attachment.AttachmentMarshaller;
+import javax.xml.bind.annotation.XmlAttachmentRef;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchemaType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import javax.xml.bind.util.JAXBResult;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
@@ -246,7 +251,18 @@ public final class JAXBMessage extends AbstractMessageImpl {
         return new JAXBBridgeSource(bridge,jaxbObject);
     }
 
+    @SuppressWarnings("unchecked")
     public <T> T readPayloadAsJAXB(Unmarshaller unmarshaller) throws JAXBException {
+        if(unmarshaller instanceof UnmarshallerImpl) {
+            UnmarshallerImpl u = (UnmarshallerImpl)unmarshaller;
+            // the copy isn't validated and doesn't fire unmarshalling events
+            if(u.getSchema()==null && u.getListener()==null
+            && u.getContext().getJAXBContext()==bridge.getContext()) {
+                Object copy = copyForRootElement();
+                if(copy!=null)
+                    return (T)copy;
+            }
+        }
         JAXBResult out = new JAXBResult(unmarshaller);
         // since the bridge only produces fragments, we need to fire start/end document.
         try {
@@ -259,6 +275,99 @@ public final class JAXBMessage extends AbstractMessageImpl {
         return (T)out.getResult();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T readPayloadAsJAXB(Bridge<T> bridge) throws JAXBException {
+        if(bridge.getContext()==this.bridge.getContext()) {
+            Object copy = copyFor(bridge.getTypeReference());
+            if(copy!=null)
+                return (T)copy;
+        }
+        return super.readPayloadAsJAXB(bridge);
+    }
+
+    /**
+     * Copies the JAXB object for a reader of the same {@link JAXBRIContext},
+     * if the copy is what unmarshalling the marshalled object would give
+     * for the given tag name and type.
+     *
+     * <p>
+     * The object isn't handed out as is, as the same object may be read
+     * from more than one copy of this message.
+     *
+     * @return
+     *      null if the object has to go through the XML.
+     */
+    private Object copyFor(TypeReference target) {
+        if(!(target.type instanceof Class) || isConverted(target))
+            return null;
+        Object value = jaxbObject;
+        QName tagName;
+        if(bridge instanceof MarshallerBridge) {
+            if(value instanceof JAXBElement) {
+                JAXBElement<?> e = (JAXBElement<?>)value;
+                if(e.isNil())
+                    return null;
+                tagName = e.getName();
+                value = e.getValue();
+            } else {
+                if(value==null || value.getClass().getAnnotation(XmlRootElement.class)==null)
+                    return null;
+                tagName = null;
+            }
+        } else {
+            TypeReference source = bridge.getTypeReference();
+            if(isConverted(source))
+                return null;
+            tagName = source.tagName;
+        }
+        if(value==null || !((Class)target.type).isInstance(value))
+            return null;
+        JAXBCopier copier = JAXBCopier.get(bridge.getContext());
+        if(copier==null)
+            return null;
+        if(tagName==null) {
+            try {
+                tagName = bridge.getContext().getElementName(value);
+            } catch (JAXBException e) {
+                return null;
+            }
+        }
+        if(!target.tagName.equals(tagName))
+            return null;
+        return copier.copy(value);
+    }
+
+    /**
+     * Copies the JAXB object for an {@link Unmarshaller} of the same
+     * {@link JAXBRIContext}, if unmarshalling the marshalled object gives
+     * an object of the same class.
+     *
+     * @return
+     *      null if the object has to go through the XML.
+     */
+    private Object copyForRootElement() {
+        if(jaxbObject==null || jaxbObject instanceof JAXBElement)
+            return null;
+        JAXBCopier copier = JAXBCopier.get(bridge.getContext());
+        if(copier==null)
+            return null;
+        QName root = copier.getUniqueRootElement(jaxbObject);
+        if(root==null)
+            return null;
+        if(!(bridge instanceof MarshallerBridge)) {
+            TypeReference source = bridge.getTypeReference();
+            if(isConverted(source) || !root.equals(source.tagName))
+                return null;
+        }
+        return copier.copy(jaxbObject);
+    }
+
+    private static boolean isConverted(TypeReference t) {
+        return t.get(XmlJavaTypeAdapter.class)!=null || t.get(XmlAttachmentRef.class)!=null
+            || t.get(XmlSchemaType.class)!=null;
+    }
+
     public XMLStreamReader readPayload() throws XMLStreamException {
        try {
             if(infoset==null) {
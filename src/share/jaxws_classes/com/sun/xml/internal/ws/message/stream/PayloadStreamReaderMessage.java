@@ -110,6 +110,11 @@ public class PayloadStreamReaderMessage extends AbstractMessageImpl {
         message.writePayloadTo(contentHandler, errorHandler, fragment);
     }
 
+    @Override
+    protected void writeEnvelopeSkeleton(ContentHandler contentHandler) throws SAXException {
+        message.writeEnvelopeSkeleton(contentHandler);
+    }
+
     public Message copy() {
         return message.copy();
     }
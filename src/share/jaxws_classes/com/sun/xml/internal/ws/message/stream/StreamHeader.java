@@ -42,12 +42,14 @@ import org.xml.sax.SAXException;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPHeader;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
+import javax.xml.ws.WebServiceException;
 import java.util.List;
 import java.util.Set;
 
@@ -97,9 +99,13 @@ public abstract class StreamHeader extends AbstractHeaderImpl {
      * We expect there to be only a small number of them,
      * so the use of {@link List} would be justified.
      *
-     * Null if no attribute is present.
+     * <p>
+     * Most headers are only asked for their name, mustUnderstand and role,
+     * which {@link #processHeaderAttributes(XMLStreamReader)} records while
+     * parsing. So the attributes are read back from the buffer the first time
+     * {@link #getAttribute(String, String)} is called. Null until then.
      */
-    private final FinalArrayList<Attribute> attributes;
+    private FinalArrayList<Attribute> attributes;
 
     /**
      * Creates a {@link StreamHeader}.
@@ -116,7 +122,7 @@ public abstract class StreamHeader extends AbstractHeaderImpl {
         _mark = mark;
         _localName = reader.getLocalName();
         _namespaceURI = reader.getNamespaceURI();
-        attributes = processHeaderAttributes(reader);
+        processHeaderAttributes(reader);
     }
 
     /**
@@ -130,7 +136,7 @@ public abstract class StreamHeader extends AbstractHeaderImpl {
     protected StreamHeader(XMLStreamReader reader) throws XMLStreamException {
         _localName = reader.getLocalName();
         _namespaceURI = reader.getNamespaceURI();
-        attributes = processHeaderAttributes(reader);
+        processHeaderAttributes(reader);
         // cache the body
         _mark = XMLStreamBuffer.createNewBufferFromXMLStreamReader(reader);
     }
@@ -164,16 +170,38 @@ public abstract class StreamHeader extends AbstractHeaderImpl {
     }
 
     public String getAttribute(String nsUri, String localName) {
-        if(attributes!=null) {
-            for(int i=attributes.size()-1; i>=0; i-- ) {
-                Attribute a = attributes.get(i);
-                if(a.localName.equals(localName) && a.nsUri.equals(nsUri))
-                    return a.value;
-            }
+        FinalArrayList<Attribute> atts = getAttributes();
+        for(int i=atts.size()-1; i>=0; i-- ) {
+            Attribute a = atts.get(i);
+            if(a.localName.equals(localName) && a.nsUri.equals(nsUri))
+                return a.value;
         }
         return null;
     }
 
+    private FinalArrayList<Attribute> getAttributes() {
+        FinalArrayList<Attribute> atts = attributes;
+        if (atts == null) {
+            atts = new FinalArrayList<Attribute>();
+            try {
+                XMLStreamReader reader = _mark.readAsXMLStreamReader();
+                while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                    reader.next();
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    atts.add(new Attribute(reader.getAttributeNamespace(i),
+                            reader.getAttributeLocalName(i), reader.getAttributeValue(i)));
+                }
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new WebServiceException(e);
+            }
+            // racing threads compute the same list
+            attributes = atts;
+        }
+        return atts;
+    }
+
     /**
      * Reads the header as a {@link XMLStreamReader}
      */
@@ -226,7 +254,11 @@ public abstract class StreamHeader extends AbstractHeaderImpl {
         return new WSEndpointReference(_mark,expected);
     }
 
-    protected abstract FinalArrayList<Attribute> processHeaderAttributes(XMLStreamReader reader);
+    /**
+     * Records mustUnderstand, role and relay from the attributes of the
+     * header element the parser is pointing at.
+     */
+    protected abstract void processHeaderAttributes(XMLStreamReader reader);
 
     /**
      * Convert null to "".
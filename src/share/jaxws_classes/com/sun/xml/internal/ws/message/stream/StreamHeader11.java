@@ -25,7 +25,6 @@
 
 package com.sun.xml.internal.ws.message.stream;
 
-import com.sun.istack.internal.FinalArrayList;
 import com.sun.xml.internal.stream.buffer.XMLStreamBuffer;
 import com.sun.xml.internal.ws.message.Util;
 
@@ -52,32 +51,21 @@ public class StreamHeader11 extends StreamHeader {
         super(reader);
     }
 
-    protected final FinalArrayList<Attribute> processHeaderAttributes(XMLStreamReader reader) {
-        FinalArrayList<Attribute> atts = null;
-
+    protected final void processHeaderAttributes(XMLStreamReader reader) {
         _role = SOAPConstants.URI_SOAP_ACTOR_NEXT;
 
         for (int i = 0; i < reader.getAttributeCount(); i++) {
-            final String localName = reader.getAttributeLocalName(i);
-            final String namespaceURI = reader.getAttributeNamespace(i);
-            final String value = reader.getAttributeValue(i);
-
-            if (SOAPConstants.URI_NS_SOAP_1_1_ENVELOPE.equals(namespaceURI)) {
+            if (SOAPConstants.URI_NS_SOAP_1_1_ENVELOPE.equals(reader.getAttributeNamespace(i))) {
+                final String localName = reader.getAttributeLocalName(i);
                 if (SOAP_1_1_MUST_UNDERSTAND.equals(localName)) {
-                    _isMustUnderstand = Util.parseBool(value);
+                    _isMustUnderstand = Util.parseBool(reader.getAttributeValue(i));
                 } else if (SOAP_1_1_ROLE.equals(localName)) {
+                    final String value = reader.getAttributeValue(i);
                     if (value != null && value.length() > 0) {
                         _role = value;
                     }
                 }
             }
-
-            if(atts==null) {
-                atts = new FinalArrayList<Attribute>();
-            }
-            atts.add(new Attribute(namespaceURI,localName,value));
         }
-
-        return atts;
     }
 }
@@ -27,7 +27,6 @@ package com.sun.xml.internal.ws.message.stream;
 
 import com.sun.xml.internal.stream.buffer.XMLStreamBuffer;
 import com.sun.xml.internal.ws.message.Util;
-import com.sun.istack.internal.FinalArrayList;
 
 import javax.xml.soap.SOAPConstants;
 import javax.xml.stream.XMLStreamReader;
@@ -54,35 +53,24 @@ public class StreamHeader12 extends StreamHeader {
         super(reader);
     }
 
-    protected final FinalArrayList<Attribute> processHeaderAttributes(XMLStreamReader reader) {
-        FinalArrayList<Attribute> atts = null;
-
+    protected final void processHeaderAttributes(XMLStreamReader reader) {
         _role = SOAPConstants.URI_SOAP_1_2_ROLE_ULTIMATE_RECEIVER;
 
         for (int i = 0; i < reader.getAttributeCount(); i++) {
-            final String localName = reader.getAttributeLocalName(i);
-            final String namespaceURI = reader.getAttributeNamespace(i);
-            final String value = reader.getAttributeValue(i);
-
-            if (SOAPConstants.URI_NS_SOAP_1_2_ENVELOPE.equals(namespaceURI)) {
+            if (SOAPConstants.URI_NS_SOAP_1_2_ENVELOPE.equals(reader.getAttributeNamespace(i))) {
+                final String localName = reader.getAttributeLocalName(i);
                 if (SOAP_1_2_MUST_UNDERSTAND.equals(localName)) {
-                    _isMustUnderstand = Util.parseBool(value);
+                    _isMustUnderstand = Util.parseBool(reader.getAttributeValue(i));
                 } else if (SOAP_1_2_ROLE.equals(localName)) {
+                    final String value = reader.getAttributeValue(i);
                     if (value != null && value.length() > 0) {
                         _role = value;
                     }
                 } else if (SOAP_1_2_RELAY.equals(localName)) {
-                    _isRelay = Util.parseBool(value);
+                    _isRelay = Util.parseBool(reader.getAttributeValue(i));
                 }
             }
-
-            if(atts==null) {
-                atts = new FinalArrayList<Attribute>();
-            }
-            atts.add(new Attribute(namespaceURI,localName,value));
         }
-
-        return atts;
     }
 
 }
@@ -30,6 +30,7 @@ import com.sun.istack.internal.Nullable;
 import com.sun.istack.internal.XMLStreamReaderToContentHandler;
 import com.sun.xml.internal.bind.api.Bridge;
 import com.sun.xml.internal.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.internal.stream.buffer.XMLStreamBuffer;
 import com.sun.xml.internal.stream.buffer.stax.StreamReaderBufferCreator;
 import com.sun.xml.internal.ws.api.SOAPVersion;
 import com.sun.xml.internal.ws.api.message.AttachmentSet;
@@ -41,6 +42,7 @@ import com.sun.xml.internal.ws.encoding.TagInfoset;
 import com.sun.xml.internal.ws.message.AbstractMessageImpl;
 import com.sun.xml.internal.ws.message.AttachmentUnmarshallerImpl;
 import com.sun.xml.internal.ws.streaming.XMLStreamReaderUtil;
+import com.sun.xml.internal.ws.streaming.XMLStreamWriterUtil;
 import com.sun.xml.internal.ws.util.xml.DummyLocation;
 import com.sun.xml.internal.ws.util.xml.StAXSource;
 import com.sun.xml.internal.ws.util.xml.XMLStreamReaderToXMLStreamWriter;
@@ -58,6 +60,8 @@ import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
 import javax.xml.transform.Source;
 import javax.xml.ws.WebServiceException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -79,6 +83,34 @@ public final class StreamMessage extends AbstractMessageImpl {
     // lazily created
     private @Nullable HeaderList headers;
 
+    /**
+     * True if {@link #headers} is shared with a copy of this message, so it
+     * is copied before {@link #getHeaders()} hands it out for changes.
+     */
+    private boolean headersShared;
+
+    /**
+     * True once {@link #getHeaders()} has handed {@link #headers} out.
+     * The caller may still hold the list and change it later, so
+     * {@link #copy()} gives the copy its own list instead of sharing it.
+     */
+    private boolean headersHandedOut;
+
+    /**
+     * The buffer that {@link #reader} reads, once {@link #copy()} has
+     * buffered the payload. A buffer is never changed after it is created,
+     * so further copies just read it again.
+     */
+    private @Nullable XMLStreamBuffer buffer;
+
+    /**
+     * The bytes of the Body content as they were received, see
+     * {@link #setRawPayload(byte[], int, int)}. Dropped as soon as
+     * the payload is read.
+     */
+    private @Nullable byte[] rawPayload;
+    private int rawPayloadStart, rawPayloadEnd;
+
     private final String payloadLocalName;
 
     private final String payloadNamespaceURI;
@@ -162,11 +194,33 @@ public final class StreamMessage extends AbstractMessageImpl {
             throw new IllegalArgumentException("BodyTag TagInfoset cannot be null");
         }
         this.envelopeTag = envelopeTag;
-        this.headerTag = headerTag!=null ? headerTag :
-            new TagInfoset(envelopeTag.nsUri,"Header",envelopeTag.prefix,EMPTY_ATTS);
+        if (headerTag == null) {
+            // share the default header tag when it has the right prefix
+            TagInfoset defaultTag = DEFAULT_TAGS[soapVersion.ordinal()*3+1];
+            headerTag = defaultTag.prefix.equals(envelopeTag.prefix) && defaultTag.nsUri.equals(envelopeTag.nsUri) ? defaultTag :
+                new TagInfoset(envelopeTag.nsUri,"Header",envelopeTag.prefix,EMPTY_ATTS);
+        }
+        this.headerTag = headerTag;
         this.bodyTag = bodyTag;
     }
 
+    /**
+     * Sets the UTF-8 bytes of the content of the &lt;Body> element, as it
+     * was received, so that the payload can be copied verbatim when the
+     * message is written if nothing reads it.
+     *
+     * <p>
+     * The bytes are never changed, they may be shared by the copies of
+     * this message.
+     *
+     * @see com.sun.xml.internal.ws.developer.PayloadPassThroughFeature
+     */
+    public void setRawPayload(@NotNull byte[] data, int start, int end) {
+        this.rawPayload = data;
+        this.rawPayloadStart = start;
+        this.rawPayloadEnd = end;
+    }
+
     public boolean hasHeaders() {
         return headers!=null && !headers.isEmpty();
     }
@@ -174,7 +228,11 @@ public final class StreamMessage extends AbstractMessageImpl {
     public HeaderList getHeaders() {
         if (headers == null) {
             headers = new HeaderList();
+        } else if (headersShared) {
+            headers = new HeaderList(headers);
+            headersShared = false;
         }
+        headersHandedOut = true;
         return headers;
     }
 
@@ -193,6 +251,7 @@ public final class StreamMessage extends AbstractMessageImpl {
     public Source readPayloadAsSource() {
         if(hasPayload()) {
             assert unconsumed();
+            rawPayload = null;
             return new StAXSource(reader, true, getInscopeNamespaces());
         } else
             return null;
@@ -231,6 +290,7 @@ public final class StreamMessage extends AbstractMessageImpl {
         if(!hasPayload())
             return null;
         assert unconsumed();
+        rawPayload = null;
         // TODO: How can the unmarshaller process this as a fragment?
         if(hasAttachments())
             unmarshaller.setAttachmentUnmarshaller(new AttachmentUnmarshallerImpl(getAttachments()));
@@ -248,6 +308,7 @@ public final class StreamMessage extends AbstractMessageImpl {
         if(!hasPayload())
             return null;
         assert unconsumed();
+        rawPayload = null;
         T r = bridge.unmarshal(reader,
             hasAttachments() ? new AttachmentUnmarshallerImpl(getAttachments()) : null);
         XMLStreamReaderUtil.readRest(reader);
@@ -259,6 +320,7 @@ public final class StreamMessage extends AbstractMessageImpl {
     @Override
     public void consume() {
         assert unconsumed();
+        rawPayload = null;
         XMLStreamReaderUtil.readRest(reader);
         XMLStreamReaderUtil.close(reader);
         XMLStreamReaderFactory.recycle(reader);
@@ -269,6 +331,7 @@ public final class StreamMessage extends AbstractMessageImpl {
             return null;
         // TODO: What about access at and beyond </soap:Body>
         assert unconsumed();
+        rawPayload = null;
         return this.reader;
     }
 
@@ -276,6 +339,7 @@ public final class StreamMessage extends AbstractMessageImpl {
         if(payloadLocalName==null)
             return; // no body
         assert unconsumed();
+        rawPayload = null;
         XMLStreamReaderToXMLStreamWriter conv = new XMLStreamReaderToXMLStreamWriter();
         while(reader.getEventType() != XMLStreamConstants.END_DOCUMENT){
             String name = reader.getLocalName();
@@ -315,8 +379,8 @@ public final class StreamMessage extends AbstractMessageImpl {
         envelopeTag.writeStart(writer);
 
         //write headers
-        HeaderList hl = getHeaders();
-        if(hl.size() > 0){
+        HeaderList hl = headers;
+        if(hl != null && hl.size() > 0){
             headerTag.writeStart(writer);
             for(Header h:hl){
                 h.writeTo(writer);
@@ -324,15 +388,44 @@ public final class StreamMessage extends AbstractMessageImpl {
             writer.writeEndElement();
         }
         bodyTag.writeStart(writer);
-        if(hasPayload())
+        if(hasPayload() && !writeRawPayloadTo(writer))
             writePayloadTo(writer);
         writer.writeEndElement();
         writer.writeEndElement();
         writer.writeEndDocument();
     }
 
+    /**
+     * Copies the raw bytes of the Body content to the stream of the writer.
+     * The payload refers to the namespace declarations of the original
+     * envelope and body, so this is only done when they are written from
+     * {@link #envelopeTag} and {@link #bodyTag}. The writers of the codecs
+     * are UTF-8, as for {@code JAXBMessage}.
+     *
+     * @return
+     *      false if the payload has to be written as usual.
+     */
+    private boolean writeRawPayloadTo(XMLStreamWriter writer) throws XMLStreamException {
+        if (rawPayload == null)
+            return false;
+        OutputStream os = XMLStreamWriterUtil.getOutputStream(writer);
+        if (os == null)
+            return false;
+        assert unconsumed();
+        try {
+            os.write(rawPayload, rawPayloadStart, rawPayloadEnd-rawPayloadStart);
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+        rawPayload = null;
+        XMLStreamReaderUtil.close(reader);
+        XMLStreamReaderFactory.recycle(reader);
+        return true;
+    }
+
     public void writePayloadTo(ContentHandler contentHandler, ErrorHandler errorHandler, boolean fragment) throws SAXException {
         assert unconsumed();
+        rawPayload = null;
         try {
             if(payloadLocalName==null)
                 return; // no body
@@ -378,44 +471,61 @@ public final class StreamMessage extends AbstractMessageImpl {
         try {
             assert unconsumed();
             consumedAt = null; // but we don't want to mark it as consumed
-            MutableXMLStreamBuffer xsb = new MutableXMLStreamBuffer();
-            StreamReaderBufferCreator c = new StreamReaderBufferCreator(xsb);
-
-            // preserving inscope namespaces from envelope, and body. Other option
-            // would be to create a filtering XMLStreamReader from reader+envelopeTag+bodyTag
-            c.storeElement(envelopeTag.nsUri, envelopeTag.localName, envelopeTag.prefix, envelopeTag.ns);
-            c.storeElement(bodyTag.nsUri, bodyTag.localName, bodyTag.prefix, bodyTag.ns);
-
-            if (hasPayload()) {
-                // Loop all the way for multi payload case
-                while(reader.getEventType() != XMLStreamConstants.END_DOCUMENT){
-                    String name = reader.getLocalName();
-                    String nsUri = reader.getNamespaceURI();
-                    if(name.equals("Body") && nsUri.equals(soapVersion.nsUri) || (reader.getEventType() == XMLStreamConstants.END_DOCUMENT))
-                        break;
-                    c.create(reader);
-                    // Skip whitespaces in between payload and </Body> or between elements
-                    if (reader.isWhiteSpace()) {
-                        XMLStreamReaderUtil.nextElementContent(reader);
+            if (buffer == null) {
+                MutableXMLStreamBuffer xsb = new MutableXMLStreamBuffer();
+                StreamReaderBufferCreator c = new StreamReaderBufferCreator(xsb);
+
+                // preserving inscope namespaces from envelope, and body. Other option
+                // would be to create a filtering XMLStreamReader from reader+envelopeTag+bodyTag
+                c.storeElement(envelopeTag.nsUri, envelopeTag.localName, envelopeTag.prefix, envelopeTag.ns);
+                c.storeElement(bodyTag.nsUri, bodyTag.localName, bodyTag.prefix, bodyTag.ns);
+
+                if (hasPayload()) {
+                    // Loop all the way for multi payload case
+                    while(reader.getEventType() != XMLStreamConstants.END_DOCUMENT){
+                        String name = reader.getLocalName();
+                        String nsUri = reader.getNamespaceURI();
+                        if(name.equals("Body") && nsUri.equals(soapVersion.nsUri) || (reader.getEventType() == XMLStreamConstants.END_DOCUMENT))
+                            break;
+                        c.create(reader);
+                        // Skip whitespaces in between payload and </Body> or between elements
+                        if (reader.isWhiteSpace()) {
+                            XMLStreamReaderUtil.nextElementContent(reader);
+                        }
                     }
                 }
+                c.storeEndElement();        // create structure element for </Body>
+                c.storeEndElement();        // create structure element for </Envelope>
+                c.storeEndElement();        // create structure element for END_DOCUMENT
+
+                XMLStreamReaderUtil.readRest(reader);
+                XMLStreamReaderUtil.close(reader);
+                XMLStreamReaderFactory.recycle(reader);
+
+                buffer = xsb;
+                reader = xsb.readAsXMLStreamReader();
+                // advance to the start tag of the <Body> first child element
+                proceedToRootElement(reader);
             }
-            c.storeEndElement();        // create structure element for </Body>
-            c.storeEndElement();        // create structure element for </Envelope>
-            c.storeEndElement();        // create structure element for END_DOCUMENT
-
-            XMLStreamReaderUtil.readRest(reader);
-            XMLStreamReaderUtil.close(reader);
-            XMLStreamReaderFactory.recycle(reader);
-
-            reader = xsb.readAsXMLStreamReader();
-            XMLStreamReader clone = xsb.readAsXMLStreamReader();
 
-            // advance to the start tag of the <Body> first child element
-            proceedToRootElement(reader);
+            // the payload is buffered now, so copies share the buffer, and
+            // the headers until one of the messages changes them. Headers
+            // already handed out by getHeaders() may still be changed by
+            // whoever holds them, so the copy gets its own list then.
+            XMLStreamReader clone = buffer.readAsXMLStreamReader();
             proceedToRootElement(clone);
 
-            return new StreamMessage(envelopeTag, headerTag, attachmentSet, HeaderList.copy(headers), bodyTag, clone, soapVersion);
+            boolean share = headers != null && !headersHandedOut;
+            HeaderList copyHeaders = headers == null || share ? headers : new HeaderList(headers);
+            StreamMessage copy = new StreamMessage(envelopeTag, headerTag, attachmentSet, copyHeaders, bodyTag, clone, soapVersion);
+            copy.buffer = buffer;
+            if (rawPayload != null)
+                copy.setRawPayload(rawPayload, rawPayloadStart, rawPayloadEnd);
+            if (share) {
+                headersShared = true;
+                copy.headersShared = true;
+            }
+            return copy;
         } catch (XMLStreamException e) {
             throw new WebServiceException("Failed to copy a message",e);
         }
@@ -435,7 +545,6 @@ public final class StreamMessage extends AbstractMessageImpl {
         envelopeTag.writeStart(contentHandler);
         headerTag.writeStart(contentHandler);
         if(hasHeaders()) {
-            HeaderList headers = getHeaders();
             int len = headers.size();
             for( int i=0; i<len; i++ ) {
                 // shouldn't JDK be smart enough to use array-style indexing for this foreach!?
@@ -450,6 +559,16 @@ public final class StreamMessage extends AbstractMessageImpl {
 
     }
 
+    @Override
+    protected void writeEnvelopeSkeleton(ContentHandler contentHandler) throws SAXException {
+        envelopeTag.writeStart(contentHandler);
+        headerTag.writeStart(contentHandler);
+        headerTag.writeEnd(contentHandler);
+        bodyTag.writeStart(contentHandler);
+        bodyTag.writeEnd(contentHandler);
+        envelopeTag.writeEnd(contentHandler);
+    }
+
     /**
      * Used for an assertion. Returns true when the message is unconsumed,
      * or otherwise throw an exception.
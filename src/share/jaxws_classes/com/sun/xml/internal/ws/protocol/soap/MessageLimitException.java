@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.protocol.soap;
+
+import com.sun.xml.internal.ws.api.SOAPVersion;
+import com.sun.xml.internal.ws.api.message.ExceptionHasMessage;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.fault.SOAPFaultBuilder;
+
+import javax.xml.namespace.QName;
+
+/**
+ * This is used when a {@link com.sun.xml.internal.ws.api.pipe.Codec} reads
+ * a message over one of the limits of the
+ * {@link com.sun.xml.internal.ws.developer.MessageLimitsFeature}.
+ */
+public class MessageLimitException extends ExceptionHasMessage {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SOAPVersion soapVersion;
+
+    /**
+     * @param what
+     *      the limited quantity, like "message size"
+     * @param limit
+     *      the value of the limit
+     */
+    public MessageLimitException(SOAPVersion soapVersion, String what, long limit) {
+        super("soap.msg.limit.exceeded", what, String.valueOf(limit));
+        this.soapVersion = soapVersion;
+    }
+
+    public String getDefaultResourceBundleName() {
+        return "com.sun.xml.internal.ws.resources.soap";
+    }
+
+    public Message getFaultMessage() {
+        QName faultCode = soapVersion.faultCodeClient;
+        return SOAPFaultBuilder.createSOAPFaultMessage(
+                soapVersion, getLocalizedMessage(), faultCode);
+    }
+
+}
@@ -112,4 +112,16 @@ public final class SoapMessages {
         return localizer.localize(localizableSOAP_VERSION_MISMATCH_ERR(arg0, arg1));
     }
 
+    public static Localizable localizableSOAP_MSG_LIMIT_EXCEEDED(Object arg0, Object arg1) {
+        return messageFactory.getMessage("soap.msg.limit.exceeded", arg0, arg1);
+    }
+
+    /**
+     * Couldn''t create SOAP message. The {0} exceeds the limit of {1}
+     *
+     */
+    public static String SOAP_MSG_LIMIT_EXCEEDED(Object arg0, Object arg1) {
+        return localizer.localize(localizableSOAP_MSG_LIMIT_EXCEEDED(arg0, arg1));
+    }
+
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.server;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.message.MessageSize;
+import com.sun.xml.internal.ws.developer.MessageAccountingFeature;
+import com.sun.org.glassfish.gmbal.Description;
+import com.sun.org.glassfish.gmbal.ManagedAttribute;
+import com.sun.org.glassfish.gmbal.ManagedData;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Message sizes of the exchanges of an endpoint, totalled per WSDL operation.
+ *
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see MessageAccountingFeature
+ * @see MessageSize
+ */
+@ManagedData
+@Description("Message sizes per operation")
+public final class MessageSizeStatistics {
+
+    /**
+     * Key of the exchanges whose operation isn't known,
+     * like protocol messages or faults of undispatchable requests.
+     */
+    private static final QName UNKNOWN_OPERATION = new QName("");
+
+    private final ConcurrentMap<QName, Operation> operations = new ConcurrentHashMap<QName, Operation>();
+
+    /**
+     * Adds the sizes of an exchange.
+     *
+     * @param operation
+     *      the WSDL operation of the exchange, if known.
+     */
+    public void record(@Nullable QName operation, @NotNull MessageSize size) {
+        QName key = operation != null ? operation : UNKNOWN_OPERATION;
+        Operation op = operations.get(key);
+        if (op == null) {
+            Operation n = new Operation(operation);
+            op = operations.putIfAbsent(key, n);
+            if (op == null)
+                op = n;
+        }
+        op.record(size);
+    }
+
+    /**
+     * Gets the totals of a WSDL operation.
+     *
+     * @param operation
+     *      null for the exchanges whose operation isn't known.
+     * @return
+     *      null if no exchange of this operation was recorded.
+     */
+    public @Nullable Operation getOperation(@Nullable QName operation) {
+        return operations.get(operation != null ? operation : UNKNOWN_OPERATION);
+    }
+
+    @ManagedAttribute
+    @Description("Totals per WSDL operation")
+    public @NotNull List<Operation> getOperations() {
+        return new ArrayList<Operation>(operations.values());
+    }
+
+    /**
+     * Forgets all the recorded exchanges.
+     */
+    public void clear() {
+        operations.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "MessageSizeStatistics" + operations.values();
+    }
+
+    /**
+     * Message sizes of the exchanges of one WSDL operation.
+     */
+    @ManagedData
+    @Description("Message sizes of a WSDL operation")
+    public static final class Operation {
+        private final QName name;
+        private final AtomicLong exchanges = new AtomicLong();
+        private final AtomicLong inboundBytes = new AtomicLong();
+        private final AtomicLong outboundBytes = new AtomicLong();
+        private final AtomicLong maxInboundBytes = new AtomicLong();
+        private final AtomicLong maxOutboundBytes = new AtomicLong();
+        private final AtomicLong inboundHeaders = new AtomicLong();
+        private final AtomicLong outboundHeaders = new AtomicLong();
+        private final AtomicLong inboundAttachments = new AtomicLong();
+        private final AtomicLong outboundAttachments = new AtomicLong();
+        private final AtomicLong inboundAttachmentBytes = new AtomicLong();
+        private final AtomicLong outboundAttachmentBytes = new AtomicLong();
+
+        Operation(QName name) {
+            this.name = name;
+        }
+
+        void record(MessageSize size) {
+            exchanges.incrementAndGet();
+            inboundBytes.addAndGet(size.getInboundBytes());
+            outboundBytes.addAndGet(size.getOutboundBytes());
+            max(maxInboundBytes, size.getInboundBytes());
+            max(maxOutboundBytes, size.getOutboundBytes());
+            inboundHeaders.addAndGet(size.getInboundHeaders());
+            outboundHeaders.addAndGet(size.getOutboundHeaders());
+            inboundAttachments.addAndGet(size.getInboundAttachments());
+            outboundAttachments.addAndGet(size.getOutboundAttachments());
+            inboundAttachmentBytes.addAndGet(size.getInboundAttachmentBytes());
+            outboundAttachmentBytes.addAndGet(size.getOutboundAttachmentBytes());
+        }
+
+        private static void max(AtomicLong max, long value) {
+            long m;
+            while ((m = max.get()) < value && !max.compareAndSet(m, value))
+                ;
+        }
+
+        /**
+         * The WSDL operation, or null for the exchanges whose operation isn't known.
+         */
+        public @Nullable QName getName() {
+            return name;
+        }
+
+        @ManagedAttribute
+        @Description("WSDL operation")
+        public String getOperationName() {
+            return String.valueOf(name);
+        }
+
+        @ManagedAttribute
+        @Description("Number of exchanges")
+        public long getExchangeCount() {
+            return exchanges.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total bytes received")
+        public long getInboundBytes() {
+            return inboundBytes.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total bytes sent")
+        public long getOutboundBytes() {
+            return outboundBytes.get();
+        }
+
+        @ManagedAttribute
+        @Description("Largest message received, in bytes")
+        public long getMaxInboundBytes() {
+            return maxInboundBytes.get();
+        }
+
+        @ManagedAttribute
+        @Description("Largest message sent, in bytes")
+        public long getMaxOutboundBytes() {
+            return maxOutboundBytes.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total SOAP headers received")
+        public long getInboundHeaders() {
+            return inboundHeaders.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total SOAP headers sent")
+        public long getOutboundHeaders() {
+            return outboundHeaders.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total attachments received")
+        public long getInboundAttachments() {
+            return inboundAttachments.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total attachments sent")
+        public long getOutboundAttachments() {
+            return outboundAttachments.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total attachment bytes received")
+        public long getInboundAttachmentBytes() {
+            return inboundAttachmentBytes.get();
+        }
+
+        @ManagedAttribute
+        @Description("Total attachment bytes sent")
+        public long getOutboundAttachmentBytes() {
+            return outboundAttachmentBytes.get();
+        }
+
+        @Override
+        public String toString() {
+            return name + "[exchanges=" + getExchangeCount()
+                    + ", inboundBytes=" + getInboundBytes()
+                    + ", outboundBytes=" + getOutboundBytes()
+                    + ", inboundAttachments=" + getInboundAttachments()
+                    + ", outboundAttachments=" + getOutboundAttachments() + "]";
+        }
+    }
+}
@@ -51,6 +51,7 @@ import com.sun.xml.internal.ws.api.pipe.TubeCloner;
 import com.sun.xml.internal.ws.api.pipe.TubelineAssembler;
 import com.sun.xml.internal.ws.api.pipe.TubelineAssemblerFactory;
 import com.sun.xml.internal.ws.api.server.*;
+import com.sun.xml.internal.ws.developer.MessageAccountingFeature;
 import com.sun.xml.internal.ws.fault.SOAPFaultBuilder;
 import com.sun.xml.internal.ws.model.wsdl.WSDLProperties;
 import com.sun.xml.internal.ws.model.wsdl.WSDLPortImpl;
@@ -178,6 +179,13 @@ public final class MonitorRootService extends MonitorBase {
         return endpoint.getBinding().getFeatures();
     }
 
+    @ManagedAttribute
+    @Description("Message sizes per operation, if message accounting is enabled")
+    public MessageSizeStatistics messageSizeStatistics() {
+        MessageAccountingFeature f = endpoint.getBinding().getFeature(MessageAccountingFeature.class);
+        return f != null && f.isEnabled() ? f.getStatistics() : null;
+    }
+
     //
     // Items from WSDLPort
     //
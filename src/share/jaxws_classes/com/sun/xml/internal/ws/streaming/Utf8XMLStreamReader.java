@@ -0,0 +1,1412 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.streaming;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.streaming.XMLStreamReaderFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@link XMLStreamReader} specialised for SOAP messages, i.e. UTF-8 encoded
+ * XML documents without a DTD.
+ *
+ * <p>
+ * It decodes UTF-8 directly from its own byte buffer, without a {@link java.io.Reader}.
+ * Element and attribute names, prefixes and namespace URIs are looked up in a
+ * symbol table keyed by their bytes, so that the same {@link String#intern() interned}
+ * instance is returned every time without decoding it again. As these are the
+ * instances the JAXB runtime uses for its names, JAXB doesn't need to intern
+ * what it reads from this parser. Attribute values are only turned into
+ * {@link String}s when they are asked for, and the text is available as
+ * characters through {@link #getTextCharacters()}.
+ *
+ * <p>
+ * Adjacent character data, CDATA sections and character references are
+ * reported as one {@link #CHARACTERS} event, like a coalescing parser does.
+ * Whitespace outside of the document element is not reported.
+ *
+ * <p>
+ * A document type declaration is rejected. So only the predefined entities
+ * and character references are recognized, and default attributes don't exist.
+ * Names are not checked against the XML name production.
+ *
+ * <p>
+ * Instances are created and recycled by {@link XMLStreamReaderFactory.Utf8}.
+ *
+ * @see XMLStreamReaderFactory.Utf8
+ */
+public final class Utf8XMLStreamReader implements XMLStreamReader {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] CDATA_START = { '<', '!', '[', 'C', 'D', 'A', 'T', 'A', '[' };
+    private static final byte[] COMMENT_START = { '<', '!', '-', '-' };
+    private static final byte[] DOCTYPE_START = { '<', '!', 'D', 'O', 'C', 'T', 'Y', 'P', 'E' };
+    private static final byte[] XML_DECL_START = { '<', '?', 'x', 'm', 'l' };
+
+    private static final String XMLNS = "xmlns";
+    private static final String XML = "xml";
+
+    private InputStream in;
+    private String systemId;
+
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * While the document start is examined, the buffer is only appended to,
+     * so that another parser can still read the document from its start.
+     */
+    private boolean sniffing;
+
+    /**
+     * Bytes consumed before {@link #buf}[0], for {@link Location#getCharacterOffset()}.
+     */
+    private int bufferOffset;
+    private int line;
+
+    private final SymbolTable symbols = new SymbolTable();
+
+    private int eventType;
+
+    private String version;
+    private String declaredEncoding;
+    private boolean standalone;
+    private boolean standaloneSet;
+
+    /**
+     * Text of a {@link #CHARACTERS} or {@link #COMMENT} event, or data of a
+     * processing instruction.
+     */
+    private char[] text = new char[256];
+    private int textLength;
+    private String piTarget;
+
+    /**
+     * Open elements, the current one of a {@link #START_ELEMENT} or
+     * {@link #END_ELEMENT} event is at {@code depth-1}.
+     */
+    private String[] elementPrefixes = new String[16];
+    private String[] elementLocalNames = new String[16];
+    private String[] elementUris = new String[16];
+    private int[] elementNsStarts = new int[16];
+    private int depth;
+    private boolean emptyElement;
+    private boolean rootSeen;
+
+    /**
+     * Namespace declarations in scope, those of the element at {@code i}
+     * start at {@code elementNsStarts[i]}.
+     */
+    private String[] nsPrefixes = new String[16];
+    private String[] nsUris = new String[16];
+    private int nsCount;
+
+    /**
+     * Attributes of the current {@link #START_ELEMENT} event. The values are
+     * kept in {@link #attributeChars} until they are asked for.
+     */
+    private String[] attributePrefixes = new String[8];
+    private String[] attributeLocalNames = new String[8];
+    private String[] attributeUris = new String[8];
+    private int[] attributeValueStarts = new int[8];
+    private int[] attributeValueLengths = new int[8];
+    private String[] attributeValues = new String[8];
+    private int attributeCount;
+    private char[] attributeChars = new char[256];
+    private int attributeCharsLength;
+
+    private final NamespaceContext namespaceContext = new NamespaceContextImpl();
+
+    private final Location location = new Location() {
+        public int getLineNumber() {
+            return line;
+        }
+
+        public int getColumnNumber() {
+            return -1;
+        }
+
+        public int getCharacterOffset() {
+            return bufferOffset+pos;
+        }
+
+        public String getPublicId() {
+            return null;
+        }
+
+        public String getSystemId() {
+            return systemId;
+        }
+    };
+
+    /**
+     * Sets the document to parse, and reads its XML declaration.
+     *
+     * @param checkEncoding
+     *      true if the encoding of the document is not known, i.e. the byte
+     *      order mark and XML declaration decide it.
+     * @return
+     *      false if the document is not encoded in UTF-8. {@link #getUnreadInput()}
+     *      then gives the whole document to another parser.
+     */
+    public boolean setInput(@NotNull InputStream in, @Nullable String systemId, boolean checkEncoding) throws XMLStreamException {
+        this.in = in;
+        this.systemId = systemId;
+        pos = limit = bufferOffset = 0;
+        eof = false;
+        line = 1;
+        eventType = START_DOCUMENT;
+        version = declaredEncoding = piTarget = null;
+        standalone = standaloneSet = false;
+        textLength = depth = nsCount = attributeCount = attributeCharsLength = 0;
+        emptyElement = rootSeen = false;
+
+        sniffing = true;
+        try {
+            if (!readDocumentStart(checkEncoding))
+                return false;
+        } finally {
+            sniffing = false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the document given to {@link #setInput}, when it can't be parsed.
+     */
+    public @NotNull InputStream getUnreadInput() {
+        InputStream read = new ByteArrayInputStream(buf, 0, limit);
+        InputStream rest = in;
+        in = null;
+        return new SequenceInputStream(read, rest);
+    }
+
+    private boolean readDocumentStart(boolean checkEncoding) throws XMLStreamException {
+        if (!ensure(1))
+            throw error("Premature end of file");
+        int b0 = buf[0] & 0xFF;
+        if (b0 == 0xFE || b0 == 0xFF || b0 == 0x00) {
+            // UTF-16 or UTF-32, whatever the transport says
+            return false;
+        }
+        if (b0 == 0xEF) {
+            if (!ensure(3) || (buf[1] & 0xFF) != 0xBB || (buf[2] & 0xFF) != 0xBF)
+                throw error("Invalid byte order mark");
+            pos = 3;
+        }
+        if (lookingAt(XML_DECL_START) && ensure(XML_DECL_START.length+1) && isWhitespace(buf[pos+XML_DECL_START.length])) {
+            pos += XML_DECL_START.length;
+            readXmlDeclaration();
+            if (checkEncoding && declaredEncoding != null
+                    && !declaredEncoding.equalsIgnoreCase("UTF-8")
+                    && !declaredEncoding.equalsIgnoreCase("UTF8")
+                    && !declaredEncoding.equalsIgnoreCase("US-ASCII")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readXmlDeclaration() throws XMLStreamException {
+        for (;;) {
+            skipWhitespace();
+            if (!ensure(2))
+                throw error("Premature end of file in the XML declaration");
+            if (buf[pos] == '?' && buf[pos+1] == '>') {
+                pos += 2;
+                break;
+            }
+            String name = readName();
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            int quote = read();
+            if (quote != '"' && quote != '\'')
+                throw error("Expected a quoted value in the XML declaration");
+            int start = pos;
+            while (peek() != quote) {
+                pos++;
+            }
+            String value = new String(buf, start, pos-start, UTF8);
+            pos++;
+            if (name.equals("version")) {
+                version = value;
+            } else if (name.equals("encoding")) {
+                declaredEncoding = value;
+            } else if (name.equals("standalone")) {
+                standaloneSet = true;
+                standalone = value.equals("yes");
+            } else {
+                throw error("Unexpected "+name+" in the XML declaration");
+            }
+        }
+    }
+
+    public Object getProperty(String name) {
+        if (name == null)
+            throw new IllegalArgumentException();
+        // tells JAXB not to intern the names
+        if (name.equals("org.codehaus.stax2.internNames") || name.equals("org.codehaus.stax2.internNsUris")
+                || name.equals(XMLInputFactory.IS_NAMESPACE_AWARE) || name.equals(XMLInputFactory.IS_COALESCING))
+            return Boolean.TRUE;
+        if (name.equals(XMLInputFactory.SUPPORT_DTD) || name.equals(XMLInputFactory.IS_VALIDATING))
+            return Boolean.FALSE;
+        return null;
+    }
+
+    public int next() throws XMLStreamException {
+        if (eventType == END_DOCUMENT)
+            throw new IllegalStateException("No more events");
+
+        if (eventType == START_ELEMENT && emptyElement) {
+            emptyElement = false;
+            attributeCount = 0;
+            return eventType = END_ELEMENT;
+        }
+        if (eventType == END_ELEMENT) {
+            depth--;
+            nsCount = elementNsStarts[depth];
+        }
+        attributeCount = 0;
+
+        if (depth == 0) {
+            return eventType = nextOutsideRoot();
+        }
+
+        if (!ensure(1))
+            throw error("Premature end of file in element "+elementLocalNames[depth-1]);
+        if (buf[pos] != '<' || lookingAt(CDATA_START)) {
+            readCharacters();
+            return eventType = CHARACTERS;
+        }
+        return eventType = readMarkup();
+    }
+
+    private int nextOutsideRoot() throws XMLStreamException {
+        skipWhitespace();
+        if (!ensure(1)) {
+            if (!rootSeen)
+                throw error("Premature end of file");
+            return END_DOCUMENT;
+        }
+        if (buf[pos] != '<')
+            throw error("Content is not allowed outside of the document element");
+        if (lookingAt(DOCTYPE_START))
+            throw error("DOCTYPE is not allowed");
+        int event = readMarkup();
+        if (event == START_ELEMENT) {
+            if (rootSeen)
+                throw error("Only one document element is allowed");
+            rootSeen = true;
+        }
+        return event;
+    }
+
+    /**
+     * Reads a tag, a comment or a processing instruction.
+     */
+    private int readMarkup() throws XMLStreamException {
+        if (!ensure(2))
+            throw error("Premature end of file");
+        byte b = buf[pos+1];
+        if (b == '/') {
+            pos += 2;
+            readEndTag();
+            return END_ELEMENT;
+        }
+        if (b == '?') {
+            pos += 2;
+            readProcessingInstruction();
+            return PROCESSING_INSTRUCTION;
+        }
+        if (b == '!') {
+            if (lookingAt(COMMENT_START)) {
+                pos += COMMENT_START.length;
+                readComment();
+                return COMMENT;
+            }
+            if (lookingAt(DOCTYPE_START))
+                throw error("DOCTYPE is not allowed");
+            throw error("Unexpected markup");
+        }
+        pos++;
+        readStartTag();
+        return START_ELEMENT;
+    }
+
+    private void readStartTag() throws XMLStreamException {
+        int nsStart = nsCount;
+        String prefix = readName();
+        String localName;
+        if (peek() == ':') {
+            pos++;
+            localName = readName();
+        } else {
+            localName = prefix;
+            prefix = "";
+        }
+
+        attributeCount = 0;
+        attributeCharsLength = 0;
+        for (;;) {
+            boolean space = skipWhitespace();
+            int b = peek();
+            if (b == '>') {
+                pos++;
+                emptyElement = false;
+                break;
+            }
+            if (b == '/') {
+                pos++;
+                expect('>');
+                emptyElement = true;
+                break;
+            }
+            if (!space)
+                throw error("Expected whitespace before an attribute of element "+localName);
+            readAttribute();
+        }
+
+        // namespace declarations are known now
+        if (depth == elementLocalNames.length) {
+            int n = depth*2;
+            elementPrefixes = grow(elementPrefixes, n);
+            elementLocalNames = grow(elementLocalNames, n);
+            elementUris = grow(elementUris, n);
+            int[] starts = new int[n];
+            System.arraycopy(elementNsStarts, 0, starts, 0, depth);
+            elementNsStarts = starts;
+        }
+        elementPrefixes[depth] = prefix;
+        elementLocalNames[depth] = localName;
+        elementNsStarts[depth] = nsStart;
+        elementUris[depth] = resolve(prefix, true);
+        depth++;
+
+        for (int i = 0; i < attributeCount; i++) {
+            String p = attributePrefixes[i];
+            attributeUris[i] = (p.length() == 0) ? null : resolve(p, false);
+        }
+        for (int i = 1; i < attributeCount; i++) {
+            for (int j = 0; j < i; j++) {
+                if (attributeLocalNames[i] == attributeLocalNames[j] && attributeUris[i] == attributeUris[j])
+                    throw error("Attribute "+attributeLocalNames[i]+" is specified more than once");
+            }
+        }
+    }
+
+    private void readAttribute() throws XMLStreamException {
+        String prefix = readName();
+        String localName;
+        if (peek() == ':') {
+            pos++;
+            localName = readName();
+        } else {
+            localName = prefix;
+            prefix = "";
+        }
+        skipWhitespace();
+        expect('=');
+        skipWhitespace();
+        int quote = read();
+        if (quote != '"' && quote != '\'')
+            throw error("Expected a quoted value for attribute "+localName);
+
+        if (prefix == XMLNS || (prefix.length() == 0 && localName == XMLNS)) {
+            String uri = readNamespaceURI(quote);
+            declareNamespace(prefix.length() == 0 ? "" : localName, uri);
+            return;
+        }
+
+        if (attributeCount == attributeLocalNames.length) {
+            int n = attributeCount*2;
+            attributePrefixes = grow(attributePrefixes, n);
+            attributeLocalNames = grow(attributeLocalNames, n);
+            attributeUris = grow(attributeUris, n);
+            attributeValues = grow(attributeValues, n);
+            int[] starts = new int[n];
+            System.arraycopy(attributeValueStarts, 0, starts, 0, attributeCount);
+            attributeValueStarts = starts;
+            int[] lengths = new int[n];
+            System.arraycopy(attributeValueLengths, 0, lengths, 0, attributeCount);
+            attributeValueLengths = lengths;
+        }
+        int start = attributeCharsLength;
+        readAttributeValue(quote);
+        attributePrefixes[attributeCount] = prefix;
+        attributeLocalNames[attributeCount] = localName;
+        attributeValueStarts[attributeCount] = start;
+        attributeValueLengths[attributeCount] = attributeCharsLength-start;
+        attributeValues[attributeCount] = null;
+        attributeCount++;
+    }
+
+    /**
+     * Reads an attribute value into {@link #attributeChars}, normalizing
+     * whitespace and replacing references.
+     */
+    private void readAttributeValue(int quote) throws XMLStreamException {
+        for (;;) {
+            if (pos == limit && !fill())
+                throw error("Premature end of file in an attribute value");
+            ensureAttributeChars(limit-pos);
+            // fast path for ASCII
+            byte[] b = buf;
+            char[] chars = attributeChars;
+            int p = pos;
+            int l = limit;
+            int n = attributeCharsLength;
+            int c = 0;
+            while (p < l) {
+                c = b[p];
+                if (c < 0x20 || c == quote || c == '&' || c == '<')
+                    break;
+                chars[n++] = (char) c;
+                p++;
+            }
+            pos = p;
+            attributeCharsLength = n;
+            if (p == l)
+                continue;
+
+            if (c == quote) {
+                pos++;
+                return;
+            }
+            if (c == '<')
+                throw error("'<' is not allowed in an attribute value");
+            if (c == '&') {
+                attributeCharsLength = readReference(attributeChars, attributeCharsLength, true);
+            } else if (c == '\n' || c == '\t' || c == '\r') {
+                pos++;
+                if (c == '\r') {
+                    if (peekOrEnd() == '\n')
+                        pos++;
+                    line++;
+                } else if (c == '\n') {
+                    line++;
+                }
+                attributeChars[attributeCharsLength++] = ' ';
+            } else if (c < 0) {
+                attributeCharsLength = decode(attributeChars, attributeCharsLength);
+            } else {
+                throw error("Invalid character 0x"+Integer.toHexString(c));
+            }
+        }
+    }
+
+    private String readNamespaceURI(int quote) throws XMLStreamException {
+        int start = pos;
+        int hash = 0;
+        for (;;) {
+            if (pos == limit) {
+                int read = pos-start;
+                pos = start;
+                if (!fill())
+                    throw error("Premature end of file in an attribute value");
+                start = pos;
+                pos = start+read;
+                continue;
+            }
+            int c = buf[pos];
+            if (c == quote) {
+                String uri = symbols.get(buf, start, pos-start, hash);
+                pos++;
+                return uri;
+            }
+            if (c == '&' || c < 0x20) {
+                // unusual, decode it first
+                pos = start;
+                int s = attributeCharsLength;
+                readAttributeValue(quote);
+                String uri = symbols.get(attributeChars, s, attributeCharsLength-s);
+                attributeCharsLength = s;
+                return uri;
+            }
+            hash = 31*hash+c;
+            pos++;
+        }
+    }
+
+    private void declareNamespace(String prefix, String uri) throws XMLStreamException {
+        if (uri.length() == 0 && prefix.length() > 0)
+            throw error("Namespace prefix "+prefix+" can't be undeclared");
+        if (nsCount == nsPrefixes.length) {
+            nsPrefixes = grow(nsPrefixes, nsCount*2);
+            nsUris = grow(nsUris, nsCount*2);
+        }
+        nsPrefixes[nsCount] = prefix;
+        nsUris[nsCount] = uri;
+        nsCount++;
+    }
+
+    /**
+     * Resolves the prefix of an element or an attribute.
+     *
+     * @return
+     *      null if the name is in no namespace.
+     */
+    private String resolve(String prefix, boolean element) throws XMLStreamException {
+        for (int i = nsCount-1; i >= 0; i--) {
+            if (nsPrefixes[i] == prefix) {
+                String uri = nsUris[i];
+                return uri.length() == 0 ? null : uri;
+            }
+        }
+        if (prefix.length() == 0)
+            return null;
+        if (prefix == XML)
+            return XMLConstants.XML_NS_URI;
+        throw error("Unbound namespace prefix "+prefix+(element ? " of an element" : " of an attribute"));
+    }
+
+    private void readEndTag() throws XMLStreamException {
+        if (depth == 0)
+            throw error("Unexpected end tag");
+        String prefix = readName();
+        String localName;
+        if (peek() == ':') {
+            pos++;
+            localName = readName();
+        } else {
+            localName = prefix;
+            prefix = "";
+        }
+        int top = depth-1;
+        if (localName != elementLocalNames[top] || prefix != elementPrefixes[top])
+            throw error("End tag "+localName+" doesn't match the start tag "+elementLocalNames[top]);
+        skipWhitespace();
+        expect('>');
+    }
+
+    private void readProcessingInstruction() throws XMLStreamException {
+        piTarget = readName();
+        if (piTarget.equalsIgnoreCase(XML))
+            throw error("The XML declaration is only allowed at the start of the document");
+        skipWhitespace();
+        textLength = 0;
+        for (;;) {
+            if (!ensure(2))
+                throw error("Premature end of file in a processing instruction");
+            if (buf[pos] == '?' && buf[pos+1] == '>') {
+                pos += 2;
+                return;
+            }
+            appendChar();
+        }
+    }
+
+    private void readComment() throws XMLStreamException {
+        textLength = 0;
+        for (;;) {
+            if (!ensure(3))
+                throw error("Premature end of file in a comment");
+            if (buf[pos] == '-' && buf[pos+1] == '-') {
+                if (buf[pos+2] != '>')
+                    throw error("'--' is not allowed in a comment");
+                pos += 3;
+                return;
+            }
+            appendChar();
+        }
+    }
+
+    /**
+     * Appends one character of a comment or a processing instruction to {@link #text}.
+     */
+    private void appendChar() throws XMLStreamException {
+        ensureText(2);
+        int c = buf[pos];
+        if (c < 0) {
+            textLength = decode(text, textLength);
+        } else {
+            pos++;
+            if (c == '\r') {
+                if (peekOrEnd() == '\n')
+                    pos++;
+                c = '\n';
+            }
+            if (c == '\n')
+                line++;
+            text[textLength++] = (char) c;
+        }
+    }
+
+    /**
+     * Reads character data, CDATA sections and references up to the next tag,
+     * comment or processing instruction.
+     */
+    private void readCharacters() throws XMLStreamException {
+        textLength = 0;
+        for (;;) {
+            if (pos == limit && !fill())
+                return;
+            ensureText(limit-pos);
+            // fast path for ASCII
+            byte[] b = buf;
+            char[] chars = text;
+            int p = pos;
+            int l = limit;
+            int n = textLength;
+            int c = 0;
+            while (p < l) {
+                c = b[p];
+                if (c < 0x20 || c == '<' || c == '&')
+                    break;
+                chars[n++] = (char) c;
+                p++;
+            }
+            pos = p;
+            textLength = n;
+            if (p == l)
+                continue;
+
+            if (c == '<') {
+                if (!lookingAt(CDATA_START))
+                    return;
+                pos += CDATA_START.length;
+                readCData();
+            } else if (c == '&') {
+                textLength = readReference(text, textLength, false);
+            } else if (c == '\n' || c == '\t') {
+                pos++;
+                if (c == '\n')
+                    line++;
+                text[textLength++] = (char) c;
+            } else if (c == '\r') {
+                pos++;
+                if (peekOrEnd() == '\n')
+                    pos++;
+                line++;
+                text[textLength++] = '\n';
+            } else if (c < 0) {
+                textLength = decode(text, textLength);
+            } else {
+                throw error("Invalid character 0x"+Integer.toHexString(c));
+            }
+        }
+    }
+
+    private void readCData() throws XMLStreamException {
+        for (;;) {
+            if (!ensure(3))
+                throw error("Premature end of file in a CDATA section");
+            if (buf[pos] == ']' && buf[pos+1] == ']' && buf[pos+2] == '>') {
+                pos += 3;
+                return;
+            }
+            appendChar();
+        }
+    }
+
+    /**
+     * Reads a predefined entity or a character reference, starting at '&'.
+     *
+     * @return
+     *      the new length of the characters.
+     */
+    private int readReference(char[] chars, int length, boolean attribute) throws XMLStreamException {
+        pos++;
+        if (!ensure(2))
+            throw error("Premature end of file in a reference");
+        if (buf[pos] == '#') {
+            pos++;
+            int radix = 10;
+            if (buf[pos] == 'x') {
+                radix = 16;
+                pos++;
+            }
+            int cp = 0;
+            int digits = 0;
+            for (;;) {
+                int c = read();
+                if (c == ';')
+                    break;
+                int d = Character.digit(c, radix);
+                if (d < 0 || cp > 0x10FFFF)
+                    throw error("Invalid character reference");
+                cp = cp*radix+d;
+                digits++;
+            }
+            if (digits == 0 || cp > 0x10FFFF || (cp < 0x20 && cp != '\t' && cp != '\n' && cp != '\r'))
+                throw error("Invalid character reference");
+            if (cp >= 0x10000) {
+                chars[length++] = Character.highSurrogate(cp);
+                chars[length++] = Character.lowSurrogate(cp);
+            } else {
+                chars[length++] = (char) cp;
+            }
+            return length;
+        }
+        String name = readName();
+        expect(';');
+        char c;
+        if (name.equals("lt")) {
+            c = '<';
+        } else if (name.equals("gt")) {
+            c = '>';
+        } else if (name.equals("amp")) {
+            c = '&';
+        } else if (name.equals("quot")) {
+            c = '"';
+        } else if (name.equals("apos")) {
+            c = '\'';
+        } else {
+            throw error("Undeclared entity "+name+(attribute ? " in an attribute value" : ""));
+        }
+        chars[length++] = c;
+        return length;
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence at {@link #pos}.
+     *
+     * @return
+     *      the new length of the characters, that have room for two more.
+     */
+    private int decode(char[] chars, int length) throws XMLStreamException {
+        int b0 = buf[pos] & 0xFF;
+        int n;
+        int cp;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            n = 2;
+            cp = b0 & 0x1F;
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            n = 3;
+            cp = b0 & 0x0F;
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            n = 4;
+            cp = b0 & 0x07;
+        } else {
+            throw error("Invalid UTF-8 byte 0x"+Integer.toHexString(b0));
+        }
+        if (!ensure(n))
+            throw error("Premature end of file in a UTF-8 sequence");
+        for (int i = 1; i < n; i++) {
+            int b = buf[pos+i];
+            if ((b & 0xC0) != 0x80)
+                throw error("Invalid UTF-8 sequence");
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        if ((n == 3 && (cp < 0x800 || (cp >= 0xD800 && cp <= 0xDFFF))) || (n == 4 && (cp < 0x10000 || cp > 0x10FFFF)))
+            throw error("Invalid UTF-8 sequence");
+        pos += n;
+        if (cp >= 0x10000) {
+            chars[length++] = Character.highSurrogate(cp);
+            chars[length++] = Character.lowSurrogate(cp);
+        } else {
+            chars[length++] = (char) cp;
+        }
+        return length;
+    }
+
+    /**
+     * Reads a name, or a part of a qualified name, up to a delimiter.
+     */
+    private String readName() throws XMLStreamException {
+        int start = pos;
+        int hash = 0;
+        for (;;) {
+            if (pos == limit) {
+                int read = pos-start;
+                pos = start;
+                if (!fill())
+                    throw error("Premature end of file in a name");
+                start = pos;
+                pos = start+read;
+                continue;
+            }
+            int c = buf[pos];
+            if (c <= ' ' && c >= 0 || c == ':' || c == '>' || c == '/' || c == '=' || c == ';'
+                    || c == '?' || c == '<' || c == '"' || c == '\'' || c == '&')
+                break;
+            hash = 31*hash+c;
+            pos++;
+        }
+        if (pos == start)
+            throw error("Expected a name");
+        return symbols.get(buf, start, pos-start, hash);
+    }
+
+    /**
+     * @return
+     *      true if any whitespace was skipped.
+     */
+    private boolean skipWhitespace() throws XMLStreamException {
+        boolean skipped = false;
+        for (;;) {
+            if (pos == limit && !fill())
+                return skipped;
+            byte c = buf[pos];
+            if (!isWhitespace(c))
+                return skipped;
+            if (c == '\n')
+                line++;
+            pos++;
+            skipped = true;
+        }
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private int peek() throws XMLStreamException {
+        if (pos == limit && !fill())
+            throw error("Premature end of file");
+        return buf[pos];
+    }
+
+    private int peekOrEnd() throws XMLStreamException {
+        if (pos == limit && !fill())
+            return -1;
+        return buf[pos];
+    }
+
+    private int read() throws XMLStreamException {
+        int c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char c) throws XMLStreamException {
+        if (read() != c)
+            throw error("Expected '"+c+"'");
+    }
+
+    private boolean lookingAt(byte[] s) throws XMLStreamException {
+        if (!ensure(s.length))
+            return false;
+        for (int i = 0; i < s.length; i++) {
+            if (buf[pos+i] != s[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Makes at least n bytes available from {@link #pos}.
+     */
+    private boolean ensure(int n) throws XMLStreamException {
+        while (limit-pos < n) {
+            if (!fill())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads more bytes, keeping the unread ones.
+     *
+     * @return
+     *      false at the end of the document.
+     */
+    private boolean fill() throws XMLStreamException {
+        if (eof)
+            return false;
+        if (!sniffing && pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit-pos);
+            bufferOffset += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            byte[] b = new byte[buf.length*2];
+            System.arraycopy(buf, 0, b, 0, limit);
+            buf = b;
+        }
+        try {
+            int n = in.read(buf, limit, buf.length-limit);
+            if (n <= 0) {
+                // InputStream.read doesn't return 0 when asked for bytes
+                eof = true;
+                return false;
+            }
+            limit += n;
+            return true;
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    private void ensureText(int n) {
+        // a reference or a surrogate pair may add two chars for one byte
+        int needed = textLength+n+2;
+        if (needed > text.length) {
+            char[] t = new char[Math.max(needed, text.length*2)];
+            System.arraycopy(text, 0, t, 0, textLength);
+            text = t;
+        }
+    }
+
+    private void ensureAttributeChars(int n) {
+        int needed = attributeCharsLength+n+2;
+        if (needed > attributeChars.length) {
+            char[] t = new char[Math.max(needed, attributeChars.length*2)];
+            System.arraycopy(attributeChars, 0, t, 0, attributeCharsLength);
+            attributeChars = t;
+        }
+    }
+
+    private static String[] grow(String[] a, int n) {
+        String[] b = new String[n];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private XMLStreamException error(String msg) {
+        return new XMLStreamException(msg, location);
+    }
+
+    public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+        if (type != eventType)
+            throw error("Expected event "+type+" but was "+eventType);
+        if (namespaceURI != null) {
+            String uri = getNamespaceURI();
+            if (!namespaceURI.equals(uri == null ? "" : uri))
+                throw error("Expected namespace "+namespaceURI+" but was "+uri);
+        }
+        if (localName != null && !localName.equals(getLocalName()))
+            throw error("Expected "+localName+" but was "+getLocalName());
+    }
+
+    public String getElementText() throws XMLStreamException {
+        if (eventType != START_ELEMENT)
+            throw error("Not at a start element");
+        StringBuilder sb = null;
+        String first = null;
+        for (;;) {
+            int event = next();
+            if (event == END_ELEMENT)
+                break;
+            if (event == CHARACTERS) {
+                if (first == null && sb == null) {
+                    first = getText();
+                } else {
+                    if (sb == null)
+                        sb = new StringBuilder(first);
+                    sb.append(text, 0, textLength);
+                }
+            } else if (event != COMMENT && event != PROCESSING_INSTRUCTION) {
+                throw error("Element text only is expected");
+            }
+        }
+        if (sb != null)
+            return sb.toString();
+        return first == null ? "" : first;
+    }
+
+    public int nextTag() throws XMLStreamException {
+        for (;;) {
+            int event = next();
+            if (event == START_ELEMENT || event == END_ELEMENT)
+                return event;
+            if (event == CHARACTERS && !isWhiteSpace())
+                throw error("Non whitespace text before a tag");
+            if (event == END_DOCUMENT)
+                throw error("Expected a tag");
+        }
+    }
+
+    public boolean hasNext() {
+        return eventType != END_DOCUMENT;
+    }
+
+    public void close() {
+        // doesn't close the input, as per the StAX contract
+    }
+
+    public String getNamespaceURI(String prefix) {
+        if (prefix == null)
+            throw new IllegalArgumentException();
+        for (int i = nsCount-1; i >= 0; i--) {
+            if (nsPrefixes[i].equals(prefix)) {
+                String uri = nsUris[i];
+                return uri.length() == 0 ? null : uri;
+            }
+        }
+        if (prefix.equals(XML))
+            return XMLConstants.XML_NS_URI;
+        if (prefix.equals(XMLNS))
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        return null;
+    }
+
+    public boolean isStartElement() {
+        return eventType == START_ELEMENT;
+    }
+
+    public boolean isEndElement() {
+        return eventType == END_ELEMENT;
+    }
+
+    public boolean isCharacters() {
+        return eventType == CHARACTERS;
+    }
+
+    public boolean isWhiteSpace() {
+        if (eventType != CHARACTERS)
+            return false;
+        for (int i = 0; i < textLength; i++) {
+            char c = text[i];
+            if (c != ' ' && c != '\n' && c != '\t' && c != '\r')
+                return false;
+        }
+        return true;
+    }
+
+    public String getAttributeValue(String namespaceURI, String localName) {
+        checkStartElement();
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeLocalNames[i].equals(localName)) {
+                if (namespaceURI == null) {
+                    return getAttributeValue(i);
+                }
+                String uri = attributeUris[i];
+                if (namespaceURI.equals(uri == null ? "" : uri))
+                    return getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    public int getAttributeCount() {
+        checkStartElement();
+        return attributeCount;
+    }
+
+    public QName getAttributeName(int index) {
+        checkAttribute(index);
+        String uri = attributeUris[index];
+        return new QName(uri == null ? "" : uri, attributeLocalNames[index], attributePrefixes[index]);
+    }
+
+    public String getAttributeNamespace(int index) {
+        checkAttribute(index);
+        return attributeUris[index];
+    }
+
+    public String getAttributeLocalName(int index) {
+        checkAttribute(index);
+        return attributeLocalNames[index];
+    }
+
+    public String getAttributePrefix(int index) {
+        checkAttribute(index);
+        return attributePrefixes[index];
+    }
+
+    public String getAttributeType(int index) {
+        checkAttribute(index);
+        return "CDATA";
+    }
+
+    public String getAttributeValue(int index) {
+        checkAttribute(index);
+        String value = attributeValues[index];
+        if (value == null) {
+            value = new String(attributeChars, attributeValueStarts[index], attributeValueLengths[index]);
+            attributeValues[index] = value;
+        }
+        return value;
+    }
+
+    public boolean isAttributeSpecified(int index) {
+        checkAttribute(index);
+        return true;
+    }
+
+    private void checkStartElement() {
+        if (eventType != START_ELEMENT && eventType != ATTRIBUTE)
+            throw new IllegalStateException("Not at a start element");
+    }
+
+    private void checkAttribute(int index) {
+        checkStartElement();
+        if (index < 0 || index >= attributeCount)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+    }
+
+    public int getNamespaceCount() {
+        checkElement();
+        return nsCount-elementNsStarts[depth-1];
+    }
+
+    public String getNamespacePrefix(int index) {
+        checkElement();
+        String prefix = nsPrefixes[elementNsStarts[depth-1]+index];
+        return prefix.length() == 0 ? null : prefix;
+    }
+
+    public String getNamespaceURI(int index) {
+        checkElement();
+        String uri = nsUris[elementNsStarts[depth-1]+index];
+        return uri.length() == 0 ? null : uri;
+    }
+
+    private void checkElement() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT)
+            throw new IllegalStateException("Not at an element");
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return namespaceContext;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public String getText() {
+        checkText();
+        return new String(text, 0, textLength);
+    }
+
+    public char[] getTextCharacters() {
+        checkText();
+        return text;
+    }
+
+    public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+        checkText();
+        if (sourceStart < 0 || sourceStart > textLength)
+            throw new IndexOutOfBoundsException(Integer.toString(sourceStart));
+        int n = Math.min(length, textLength-sourceStart);
+        System.arraycopy(text, sourceStart, target, targetStart, n);
+        return n;
+    }
+
+    public int getTextStart() {
+        checkText();
+        return 0;
+    }
+
+    public int getTextLength() {
+        checkText();
+        return textLength;
+    }
+
+    private void checkText() {
+        if (eventType != CHARACTERS && eventType != COMMENT)
+            throw new IllegalStateException("Not at a text event");
+    }
+
+    public String getEncoding() {
+        return "UTF-8";
+    }
+
+    public boolean hasText() {
+        return eventType == CHARACTERS || eventType == COMMENT;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public QName getName() {
+        checkElement();
+        String uri = elementUris[depth-1];
+        return new QName(uri == null ? "" : uri, elementLocalNames[depth-1], elementPrefixes[depth-1]);
+    }
+
+    public String getLocalName() {
+        checkElement();
+        return elementLocalNames[depth-1];
+    }
+
+    public boolean hasName() {
+        return eventType == START_ELEMENT || eventType == END_ELEMENT;
+    }
+
+    public String getNamespaceURI() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT)
+            return null;
+        return elementUris[depth-1];
+    }
+
+    public String getPrefix() {
+        if (eventType != START_ELEMENT && eventType != END_ELEMENT)
+            return null;
+        return elementPrefixes[depth-1];
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public boolean isStandalone() {
+        return standalone;
+    }
+
+    public boolean standaloneSet() {
+        return standaloneSet;
+    }
+
+    public String getCharacterEncodingScheme() {
+        return declaredEncoding;
+    }
+
+    public String getPITarget() {
+        return eventType == PROCESSING_INSTRUCTION ? piTarget : null;
+    }
+
+    public String getPIData() {
+        return eventType == PROCESSING_INSTRUCTION ? new String(text, 0, textLength) : null;
+    }
+
+    /**
+     * Live view of the namespaces in scope.
+     */
+    private final class NamespaceContextImpl implements NamespaceContext {
+        public String getNamespaceURI(String prefix) {
+            String uri = Utf8XMLStreamReader.this.getNamespaceURI(prefix);
+            return uri == null ? XMLConstants.NULL_NS_URI : uri;
+        }
+
+        public String getPrefix(String namespaceURI) {
+            Iterator<String> i = getPrefixes(namespaceURI);
+            return i.hasNext() ? i.next() : null;
+        }
+
+        public Iterator<String> getPrefixes(String namespaceURI) {
+            if (namespaceURI == null)
+                throw new IllegalArgumentException();
+            if (namespaceURI.equals(XMLConstants.XML_NS_URI))
+                return Collections.singletonList(XML).iterator();
+            if (namespaceURI.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI))
+                return Collections.singletonList(XMLNS).iterator();
+            List<String> prefixes = new ArrayList<String>();
+            for (int i = nsCount-1; i >= 0; i--) {
+                String prefix = nsPrefixes[i];
+                if (nsUris[i].equals(namespaceURI) && !prefixes.contains(prefix)
+                        && namespaceURI.equals(Utf8XMLStreamReader.this.getNamespaceURI(prefix))) {
+                    prefixes.add(prefix);
+                }
+            }
+            return prefixes.iterator();
+        }
+    }
+
+    /**
+     * Interned strings, looked up by their UTF-8 bytes or by their characters.
+     * Unlike the reader, it lives as long as the reader is recycled.
+     */
+    private static final class SymbolTable {
+        private static final int MAX_SIZE = 4096;
+
+        private Entry[] table = new Entry[256];
+        private int size;
+
+        private static final class Entry {
+            final byte[] bytes;
+            final String value;
+            final int hash;
+            final Entry next;
+
+            Entry(byte[] bytes, String value, int hash, Entry next) {
+                this.bytes = bytes;
+                this.value = value;
+                this.hash = hash;
+                this.next = next;
+            }
+        }
+
+        String get(byte[] b, int off, int len, int hash) {
+            int index = (hash ^ (hash >>> 16)) & (table.length-1);
+            for (Entry e = table[index]; e != null; e = e.next) {
+                if (e.hash == hash && e.bytes.length == len && equals(e.bytes, b, off, len))
+                    return e.value;
+            }
+            byte[] bytes = new byte[len];
+            System.arraycopy(b, off, bytes, 0, len);
+            String value = new String(bytes, UTF8).intern();
+            add(new Entry(bytes, value, hash, table[index]), index);
+            return value;
+        }
+
+        String get(char[] c, int off, int len) {
+            // rare, e.g. a namespace URI with a character reference
+            String value = new String(c, off, len).intern();
+            byte[] bytes = value.getBytes(UTF8);
+            int hash = 0;
+            for (byte b : bytes)
+                hash = 31*hash+b;
+            return get(bytes, 0, bytes.length, hash);
+        }
+
+        private void add(Entry e, int index) {
+            if (size == MAX_SIZE) {
+                // e.g. generated names, start over
+                table = new Entry[table.length];
+                size = 0;
+                index = (e.hash ^ (e.hash >>> 16)) & (table.length-1);
+                e = new Entry(e.bytes, e.value, e.hash, null);
+            } else if (size > table.length*3/4) {
+                Entry[] t = new Entry[table.length*2];
+                for (Entry old : table) {
+                    for (; old != null; old = old.next) {
+                        int i = (old.hash ^ (old.hash >>> 16)) & (t.length-1);
+                        t[i] = new Entry(old.bytes, old.value, old.hash, t[i]);
+                    }
+                }
+                table = t;
+                index = (e.hash ^ (e.hash >>> 16)) & (table.length-1);
+                e = new Entry(e.bytes, e.value, e.hash, table[index]);
+            }
+            table[index] = e;
+            size++;
+        }
+
+        private static boolean equals(byte[] a, byte[] b, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                if (a[i] != b[off+i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.sun.xml.internal.ws.api.ha.HaInfo;
 import com.sun.xml.internal.ws.api.ha.StickyFeature;
 import com.sun.xml.internal.ws.api.message.ExceptionHasMessage;
 import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.MessageSize;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.pipe.Codec;
 import com.sun.xml.internal.ws.api.pipe.ContentType;
@@ -48,7 +49,9 @@ import com.sun.xml.internal.ws.api.server.ServiceDefinition;
 import com.sun.xml.internal.ws.api.server.TransportBackChannel;
 import com.sun.xml.internal.ws.api.server.WSEndpoint;
 import com.sun.xml.internal.ws.api.server.WebServiceContextDelegate;
+import com.sun.xml.internal.ws.developer.MessageAccountingFeature;
 import com.sun.xml.internal.ws.resources.WsservletMessages;
+import com.sun.xml.internal.ws.server.MessageSizeStatistics;
 import com.sun.xml.internal.ws.server.UnsupportedMediaException;
 import com.sun.xml.internal.ws.util.ByteArrayBuffer;
 import com.sun.xml.internal.ws.util.Pool;
@@ -110,6 +113,12 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
 
     protected boolean stickyCookie;
 
+    /**
+     * Where the sizes of the exchanges are totalled, if
+     * {@link MessageAccountingFeature} is enabled.
+     */
+    private final @Nullable MessageSizeStatistics sizeStatistics;
+
 
     /**
      * Creates a lone {@link HttpAdapter} that does not know of any other
@@ -139,6 +148,8 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
         super(endpoint);
         this.owner = owner;
         this.urlPattern = urlPattern;
+        MessageAccountingFeature accounting = endpoint.getBinding().getFeature(MessageAccountingFeature.class);
+        this.sizeStatistics = (accounting != null && accounting.isEnabled()) ? accounting.getStatistics() : null;
 
         initWSDLMap(endpoint.getServiceDefinition());
     }
@@ -318,10 +329,36 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
             dump(buf, "HTTP request", con.getRequestHeaders());
             in = buf.newInputStream();
         }
+        MessageSize size = null;
+        if (sizeStatistics != null) {
+            size = new MessageSize();
+            packet.addSatellite(size);
+            in = size.countInbound(in);
+        }
         codec.decode(in, ct, packet);
+        if (size != null) {
+            size.setInboundMessage(packet.getMessage());
+        }
         return packet;
     }
 
+    /**
+     * Adds the sizes of an exchange to {@link #sizeStatistics},
+     * once its response is sent.
+     */
+    private void recordSize(@NotNull Packet request) {
+        if (sizeStatistics != null) {
+            MessageSize size = request.getSatellite(MessageSize.class);
+            if (size != null) {
+                sizeStatistics.record(request.getWSDLOperation(), size);
+            }
+        }
+    }
+
+    private static OutputStream count(@Nullable MessageSize size, OutputStream out) {
+        return size != null ? size.countOutbound(out) : out;
+    }
+
     /**
      * Some stacks may send non WS-I BP 1.2 conformant SoapAction.
      * Make sure SOAPAction is quoted as {@link Packet#soapAction} expectsa quoted soapAction value.
@@ -372,23 +409,27 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
                         : HttpURLConnection.HTTP_OK);
             }
 
+            MessageSize size = packet.getSatellite(MessageSize.class);
+            if (size != null) {
+                size.setOutboundMessage(responseMessage);
+            }
             ContentType contentType = codec.getStaticContentType(packet);
             if (contentType != null) {
                 con.setContentTypeResponseHeader(contentType.getContentType());
                 OutputStream os = con.getProtocol().contains("1.1") ? con.getOutput() : new Http10OutputStream(con);
                 if (dump) {
                     ByteArrayBuffer buf = new ByteArrayBuffer();
-                    codec.encode(packet, buf);
+                    codec.encode(packet, count(size, buf));
                     dump(buf, "HTTP response " + con.getStatus(), con.getResponseHeaders());
                     buf.writeTo(os);
                 } else {
-                    codec.encode(packet, os);
+                    codec.encode(packet, count(size, os));
                 }
                 os.close();
             } else {
 
                 ByteArrayBuffer buf = new ByteArrayBuffer();
-                contentType = codec.encode(packet, buf);
+                contentType = codec.encode(packet, count(size, buf));
                 con.setContentTypeResponseHeader(contentType.getContentType());
                 if (dump) {
                     dump(buf, "HTTP response " + con.getStatus(), con.getResponseHeaders());
@@ -486,6 +527,7 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
                         } catch (IOException ioe) {
                             LOGGER.log(Level.SEVERE, ioe.getMessage(), ioe);
                         }
+                        recordSize(request);
                         currentPool.recycle(tk);
                     } finally {
                         con.close();
@@ -572,8 +614,10 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
             try {
                 boolean invoke = false;
                 Packet packet;
+                Packet request = null;
                 try {
                     packet = decodePacket(con, codec);
+                    request = packet;
                     invoke = true;
                 } catch(Exception e) {
                     packet = new Packet();
@@ -601,6 +645,9 @@ public class HttpAdapter extends Adapter<HttpAdapter.HttpToolkit> {
                     }
                 }
                 encodePacket(packet, con, codec);
+                if (request != null) {
+                    recordSize(request);
+                }
             } finally {
                 if (!con.isClosed()) {
                     con.close();
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.transport.http.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
+import com.sun.xml.internal.ws.api.EndpointAddress;
+import com.sun.xml.internal.ws.developer.LoadBalancingFeature;
+import com.sun.xml.internal.ws.developer.LoadBalancingFeature.Policy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses one of several {@link EndpointAddress}es for a request and keeps
+ * the latency statistics this choice is based on.
+ *
+ * <p>
+ * One instance is shared by all the {@link LoadBalancingTransportTube}s of a
+ * proxy, and therefore this class is thread-safe.
+ *
+ * @see LoadBalancingFeature
+ */
+public final class EndpointAddressBalancer {
+
+    /**
+     * Number of recent latencies kept per address for percentile calculation.
+     */
+    private static final int WINDOW = 256;
+
+    /**
+     * Fewest samples needed before a latency percentile is trusted.
+     */
+    private static final int MIN_SAMPLES = 16;
+
+    /**
+     * Weight of the latest sample in the moving average.
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * A failed request counts in the moving average as this many times the
+     * average, so that an address that fails fast, like one that refuses
+     * connections, isn't taken for the fastest one.
+     */
+    private static final double FAILURE_PENALTY = 4;
+
+    /**
+     * Least latency a failed request counts for, for an address that has
+     * no average yet.
+     */
+    private static final long MIN_FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Policy policy;
+    private final EndpointAddress[] addresses;
+    private final Statistics[] statistics;
+    private final Map<EndpointAddress, Statistics> statisticsView;
+
+    /**
+     * Rotates the first candidate so that ties aren't always broken in
+     * favour of the first address.
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public EndpointAddressBalancer(@NotNull List<EndpointAddress> addresses, @NotNull Policy policy) {
+        this.policy = policy;
+        this.addresses = addresses.toArray(new EndpointAddress[addresses.size()]);
+        this.statistics = new Statistics[this.addresses.length];
+        Map<EndpointAddress, Statistics> view = new LinkedHashMap<EndpointAddress, Statistics>();
+        for (int i = 0; i < this.addresses.length; i++) {
+            statistics[i] = new Statistics(this.addresses[i]);
+            view.put(this.addresses[i], statistics[i]);
+        }
+        this.statisticsView = Collections.unmodifiableMap(view);
+    }
+
+    public @NotNull Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Number of addresses this balancer chooses from.
+     */
+    public int size() {
+        return addresses.length;
+    }
+
+    /**
+     * Chooses the address for the next exchange.
+     *
+     * @param exclude
+     *      address that must not be chosen, unless it is the only one.
+     *      Used to pick a different replica for a hedged request.
+     */
+    public @NotNull Statistics select(@Nullable Statistics exclude) {
+        int n = statistics.length;
+        int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % n;
+        Statistics best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Statistics s = statistics[(start + i) % n];
+            if (s == exclude)
+                continue;
+            double score = (policy == Policy.LEAST_OUTSTANDING)
+                    ? s.outstanding.get()
+                    : s.ewmaNanos * (s.outstanding.get() + 1);
+            if (score < bestScore) {
+                best = s;
+                bestScore = score;
+            }
+        }
+        return (best != null) ? best : statistics[start];
+    }
+
+    /**
+     * Gets a live view of the statistics of every address, in the order
+     * the addresses were given.
+     */
+    public @NotNull Map<EndpointAddress, Statistics> getStatistics() {
+        return statisticsView;
+    }
+
+    /**
+     * Latency statistics of one {@link EndpointAddress}.
+     */
+    public static final class Statistics {
+        private final EndpointAddress address;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private volatile double ewmaNanos;
+
+        /**
+         * Ring buffer of the latest {@link #WINDOW} latencies of successful
+         * requests, guarded by {@code this}.
+         */
+        private final long[] window = new long[WINDOW];
+        private int samples;
+
+        /**
+         * True once {@link #ewmaNanos} has a first value, guarded by {@code this}.
+         */
+        private boolean hasEwma;
+
+        Statistics(EndpointAddress address) {
+            this.address = address;
+        }
+
+        public @NotNull EndpointAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * Number of requests currently in flight to this address.
+         */
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Number of completed requests, successful or not.
+         */
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        /**
+         * Number of hedged requests that were sent to this address.
+         */
+        public long getHedgeCount() {
+            return hedges.get();
+        }
+
+        /**
+         * Exponentially weighted moving average of the latency, in milliseconds.
+         * A failed request counts as a multiple of the average, at least one second.
+         */
+        public double getEwmaLatency() {
+            return ewmaNanos / 1000000d;
+        }
+
+        /**
+         * Gets a percentile of the recent latencies, in milliseconds.
+         *
+         * @param percentile
+         *      between 0 and 1.
+         * @return
+         *      -1 if there aren't enough samples yet.
+         */
+        public double getLatencyPercentile(double percentile) {
+            long nanos = latencyPercentile(percentile);
+            return (nanos < 0) ? -1 : nanos / 1000000d;
+        }
+
+        /*package*/ long latencyPercentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                int n = Math.min(samples, WINDOW);
+                if (n < MIN_SAMPLES)
+                    return -1;
+                sorted = Arrays.copyOf(window, n);
+            }
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+        }
+
+        /*package*/ void begin(boolean hedge) {
+            outstanding.incrementAndGet();
+            if (hedge)
+                hedges.incrementAndGet();
+        }
+
+        /*package*/ void end(long latencyNanos, boolean success) {
+            outstanding.decrementAndGet();
+            requests.incrementAndGet();
+            synchronized (this) {
+                double sample;
+                if (success) {
+                    window[samples++ % WINDOW] = latencyNanos;
+                    if (samples == 2 * WINDOW)
+                        samples = WINDOW;  // keep the index bounded, the window is full anyway
+                    sample = latencyNanos;
+                } else {
+                    failures.incrementAndGet();
+                    // the window only has successes, as it sets the hedge delays
+                    sample = Math.max(Math.max(latencyNanos, MIN_FAILURE_PENALTY_NANOS), FAILURE_PENALTY * ewmaNanos);
+                }
+                ewmaNanos = hasEwma ? EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * ewmaNanos : sample;
+                hasEwma = true;
+            }
+        }
+
+        /**
+         * Ends an exchange whose outcome was discarded.
+         */
+        /*package*/ void cancel() {
+            outstanding.decrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return address + " [outstanding=" + getOutstanding() + ", requests=" + getRequestCount()
+                    + ", failures=" + getFailureCount() + ", ewma=" + getEwmaLatency() + "ms]";
+        }
+    }
+}
@@ -85,7 +85,7 @@ final class HttpClientTransport {
     private final EndpointAddress endpoint;
     private final Packet context;
     private final Integer chunkSize;
-
+    private boolean contentEncoded;
 
     public HttpClientTransport(@NotNull Packet packet, @NotNull Map<String,List<String>> reqHeaders) {
         endpoint = packet.endpointAddress;
@@ -94,6 +94,13 @@ final class HttpClientTransport {
         chunkSize = (Integer)context.invocationProperties.get(JAXWSProperties.HTTP_CLIENT_STREAMING_CHUNK_SIZE);
     }
 
+    /*
+     * The request body is written already encoded as per its Content-Encoding header
+     */
+    void setContentEncoded() {
+        contentEncoded = true;
+    }
+
     /*
      * Prepare the stream for HTTP request
      */
@@ -108,7 +115,7 @@ final class HttpClientTransport {
                 }
                 List<String> contentEncoding = reqHeaders.get("Content-Encoding");
                 // TODO need to find out correct encoding based on q value - RFC 2616
-                if (contentEncoding != null && contentEncoding.get(0).contains("gzip")) {
+                if (!contentEncoded && contentEncoding != null && contentEncoding.get(0).contains("gzip")) {
                     outputStream = new GZIPOutputStream(outputStream);
                 }
             }
@@ -283,6 +290,16 @@ final class HttpClientTransport {
         }
     }
 
+    /*
+     * Closes the underlying connection, e.g. to cancel an exchange that is no longer needed
+     */
+    void disconnect() {
+        HttpURLConnection con = httpConnection;
+        if (con != null) {
+            con.disconnect();
+        }
+    }
+
     boolean isSecure() {
         return https;
     }
@@ -26,13 +26,17 @@
 package com.sun.xml.internal.ws.transport.http.client;
 
 import com.sun.istack.internal.NotNull;
+import com.sun.istack.internal.Nullable;
 import com.sun.xml.internal.ws.api.SOAPVersion;
 import com.sun.xml.internal.ws.api.WSBinding;
 import com.sun.xml.internal.ws.api.ha.StickyFeature;
+import com.sun.xml.internal.ws.api.message.MessageSize;
 import com.sun.xml.internal.ws.api.message.Packet;
 import com.sun.xml.internal.ws.api.pipe.*;
 import com.sun.xml.internal.ws.api.pipe.helper.AbstractTubeImpl;
+import com.sun.xml.internal.ws.developer.HttpCompressionFeature;
 import com.sun.xml.internal.ws.developer.HttpConfigFeature;
+import com.sun.xml.internal.ws.developer.MessageAccountingFeature;
 import com.sun.xml.internal.ws.transport.Headers;
 import com.sun.xml.internal.ws.util.ByteArrayBuffer;
 import com.sun.xml.internal.ws.client.ClientTransportException;
@@ -71,9 +75,39 @@ public class HttpTransportPipe extends AbstractTubeImpl {
     private final Codec codec;
     private final WSBinding binding;
     private static final List<String> USER_AGENT = Collections.singletonList(RuntimeVersion.VERSION.toString());
+    private static final List<String> GZIP = Collections.singletonList("gzip");
     private final CookieHandler cookieJar;      // shared object among the tubes
     private final boolean sticky;
 
+    /**
+     * Non-null if {@link HttpCompressionFeature} is enabled. Shared object among the tubes.
+     */
+    private final RequestCompressor compressor;
+
+    /**
+     * Static transport headers per operation, see {@link #getStaticHeaders(ContentType)}.
+     */
+    private final StaticHeaders[] staticHeaders = new StaticHeaders[16];
+    private int staticHeadersCount;
+
+    /**
+     * Authorization header of the last request, as long as the credentials don't change.
+     */
+    private String authUser;
+    private String authPassword;
+    private List<String> authHeader;
+
+    /**
+     * Connection of the exchange in progress, so that it can be {@link #abort() aborted}
+     * from another thread.
+     */
+    private volatile HttpClientTransport current;
+
+    /**
+     * True to add a {@link MessageSize} to the exchanges.
+     */
+    private final boolean countSizes;
+
     // Need to use JAXB first to register DatatypeConverter
     static {
         try {
@@ -92,6 +126,10 @@ public class HttpTransportPipe extends AbstractTubeImpl {
             configFeature = new HttpConfigFeature();
         }
         this.cookieJar = configFeature.getCookieHandler();
+        HttpCompressionFeature compressionFeature = binding.getFeature(HttpCompressionFeature.class);
+        this.compressor = (compressionFeature != null && compressionFeature.isEnabled())
+                ? compressionFeature.getCompressor() : null;
+        this.countSizes = binding.isFeatureEnabled(MessageAccountingFeature.class);
     }
 
     private static boolean isSticky(WSBinding binding) {
@@ -130,62 +168,80 @@ public class HttpTransportPipe extends AbstractTubeImpl {
     public Packet process(Packet request) {
         HttpClientTransport con;
         try {
+            MessageSize size = null;
+            if (countSizes) {
+                size = new MessageSize();
+                size.setOutboundMessage(request.getMessage());
+                request.addSatellite(size);
+            }
+            ContentType ct = codec.getStaticContentType(request);
+            boolean compress = compressor != null;
+            if (compress && compressor.isRejecting(request.endpointAddress)) {
+                compressor.skipped();
+                compress = false;
+            }
+            ByteArrayBuffer buf = null;
+            if (ct == null || (compress && (dump || !compressor.isAccepting(request.endpointAddress)))) {
+                // the size is needed to decide whether to compress, and the
+                // request is sent again as is if the endpoint refuses it
+                buf = new ByteArrayBuffer();
+                ct = codec.encode(request, count(size, buf));
+            }
+
             // get transport headers from message
-            Map<String, List<String>> reqHeaders = new Headers();
+            RequestHeaders reqHeaders = new RequestHeaders(getStaticHeaders(ct));
             @SuppressWarnings("unchecked")
             Map<String, List<String>> userHeaders = (Map<String, List<String>>) request.invocationProperties.get(MessageContext.HTTP_REQUEST_HEADERS);
-            boolean addUserAgent = true;
             if (userHeaders != null) {
-                // userHeaders may not be modifiable like SingletonMap, just copy them
-                reqHeaders.putAll(userHeaders);
-                // application wants to use its own User-Agent header
-                if (userHeaders.get("User-Agent") != null) {
-                    addUserAgent = false;
-                }
-            }
-            if (addUserAgent) {
-                reqHeaders.put("User-Agent", USER_AGENT);
+                reqHeaders.overlay(userHeaders);
             }
 
             addBasicAuth(request, reqHeaders);
             addCookies(request, reqHeaders);
 
-            con = new HttpClientTransport(request,reqHeaders);
-            request.addSatellite(new HttpResponseProperties(con));
-
-            ContentType ct = codec.getStaticContentType(request);
-            if (ct == null) {
-                ByteArrayBuffer buf = new ByteArrayBuffer();
-
-                ct = codec.encode(request, buf);
-                // data size is available, set it as Content-Length
-                reqHeaders.put("Content-Length", Collections.singletonList(Integer.toString(buf.size())));
-                reqHeaders.put("Content-Type", Collections.singletonList(ct.getContentType()));
-                if (ct.getAcceptHeader() != null) {
-                    reqHeaders.put("Accept", Collections.singletonList(ct.getAcceptHeader()));
+            compress = compress && reqHeaders.map.get("Content-Encoding") == null;
+            ByteArrayBuffer body = buf;
+            if (buf != null) {
+                if (compress && compressor.shouldCompress(request.endpointAddress, buf.size())) {
+                    body = compressor.compress(buf);
+                    reqHeaders.put("Content-Encoding", GZIP);
                 }
-                if (binding instanceof SOAPBinding) {
-                    writeSOAPAction(reqHeaders, ct.getSOAPActionHeader());
+                // data size is available, set it as Content-Length
+                reqHeaders.put("Content-Length", Collections.singletonList(Integer.toString(body.size())));
+            }
+
+            if (buf == null && compress) {
+                // the endpoint takes compressed requests, compress the large
+                // ones as they are written
+                CompressingOutput out = new CompressingOutput(request, reqHeaders);
+                codec.encode(request, count(size, out));
+                con = out.finish();
+                con.closeOutput();
+                if (out.isCompressed()) {
+                    con.readResponseCodeAndMessage();
+                    if (con.statusCode == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+                        // too late to send it again, but the next ones won't be compressed
+                        compressor.rejected(request.endpointAddress);
+                    }
                 }
+                return createResponsePacket(request, con);
+            }
 
+            con = connect(request, reqHeaders);
+
+            if (buf != null) {
                 if(dump)
-                    dump(buf, "HTTP request", reqHeaders);
+                    dump(buf, "HTTP request", reqHeaders.map);
 
-                buf.writeTo(con.getOutput());
-            } else {
-                // Set static Content-Type
-                reqHeaders.put("Content-Type", Collections.singletonList(ct.getContentType()));
-                if (ct.getAcceptHeader() != null) {
-                    reqHeaders.put("Accept", Collections.singletonList(ct.getAcceptHeader()));
+                if (body != buf) {
+                    con.setContentEncoded();
                 }
-                if (binding instanceof SOAPBinding) {
-                    writeSOAPAction(reqHeaders, ct.getSOAPActionHeader());
-                }
-
+                body.writeTo(con.getOutput());
+            } else {
                 if(dump) {
-                    ByteArrayBuffer buf = new ByteArrayBuffer();
-                    codec.encode(request, buf);
-                    dump(buf, "HTTP request - "+request.endpointAddress, reqHeaders);
+                    buf = new ByteArrayBuffer();
+                    codec.encode(request, count(size, buf));
+                    dump(buf, "HTTP request - "+request.endpointAddress, reqHeaders.map);
                     OutputStream out = con.getOutput();
                     if (out != null) {
                         buf.writeTo(out);
@@ -193,21 +249,196 @@ public class HttpTransportPipe extends AbstractTubeImpl {
                 } else {
                     OutputStream os = con.getOutput();
                     if (os != null) {
-                        codec.encode(request, os);
+                        codec.encode(request, count(size, os));
                     }
                 }
             }
 
             con.closeOutput();
 
+            if (body != buf) {
+                if (isUnsupportedMediaType(con)) {
+                    // the endpoint doesn't take compressed requests, send it as is
+                    compressor.rejected(request.endpointAddress);
+                    reqHeaders.remove("Content-Encoding");
+                    reqHeaders.put("Content-Length", Collections.singletonList(Integer.toString(buf.size())));
+                    con = connect(request, reqHeaders);
+                    if(dump)
+                        dump(buf, "HTTP request", reqHeaders.map);
+                    buf.writeTo(con.getOutput());
+                    con.closeOutput();
+                } else {
+                    compressor.accepted(request.endpointAddress);
+                }
+            }
+
             return createResponsePacket(request, con);
         } catch(WebServiceException wex) {
             throw wex;
         } catch(Exception ex) {
             throw new WebServiceException(ex);
+        } finally {
+            current = null;
+        }
+    }
+
+    /**
+     * Gets the transport headers that only depend on the {@link ContentType}
+     * of a request, i.e. on its operation: User-Agent, Content-Type, Accept
+     * and SOAPAction. They are computed once per distinct content type and
+     * shared by the subsequent requests. Multipart content types aren't
+     * kept, as their MIME boundary is new for every request.
+     *
+     * <p>
+     * The codecs hand out the same strings for the same operation, so the
+     * lookup mostly compares references.
+     *
+     * @return
+     *      unmodifiable headers.
+     */
+    private Map<String, List<String>> getStaticHeaders(ContentType ct) {
+        String contentType = ct.getContentType();
+        String accept = ct.getAcceptHeader();
+        String soapAction = ct.getSOAPActionHeader();
+        // the MIME boundary of a multipart content type differs for every request
+        boolean cacheable = !isMultipart(contentType);
+        for (int i = 0; cacheable && i < staticHeadersCount; i++) {
+            StaticHeaders sh = staticHeaders[i];
+            if (sh.matches(contentType, accept, soapAction))
+                return sh.headers;
+        }
+
+        Headers headers = new Headers();
+        headers.put("User-Agent", USER_AGENT);
+        headers.put("Content-Type", Collections.singletonList(contentType));
+        if (accept != null) {
+            headers.put("Accept", Collections.singletonList(accept));
+        }
+        if (compressor != null) {
+            headers.put("Accept-Encoding", GZIP);
+        }
+        if (binding instanceof SOAPBinding) {
+            writeSOAPAction(headers, soapAction);
+        }
+        Map<String, List<String>> unmodifiable = Collections.unmodifiableMap(headers);
+        if (cacheable && staticHeadersCount < staticHeaders.length) {
+            staticHeaders[staticHeadersCount++] = new StaticHeaders(contentType, accept, soapAction, unmodifiable);
+        }
+        return unmodifiable;
+    }
+
+    private static boolean isMultipart(String contentType) {
+        return contentType.regionMatches(true, 0, "multipart/", 0, 10);
+    }
+
+    /**
+     * Creates the connection of the exchange.
+     */
+    private HttpClientTransport connect(Packet request, RequestHeaders reqHeaders) {
+        HttpClientTransport con = new HttpClientTransport(request, reqHeaders.map);
+        current = con;
+        request.addSatellite(new HttpResponseProperties(con));
+        return con;
+    }
+
+    /**
+     * Request body that is kept in memory up to the compression threshold.
+     * Once the threshold is reached, the request is sent with gzip
+     * Content-Encoding and the rest of the body is compressed as it is
+     * written. Otherwise it is sent as is by {@link #finish()}.
+     */
+    private final class CompressingOutput extends OutputStream {
+        private final Packet request;
+        private final RequestHeaders reqHeaders;
+        private ByteArrayBuffer head = new ByteArrayBuffer();
+        private HttpClientTransport con;
+        private OutputStream out;
+
+        CompressingOutput(Packet request, RequestHeaders reqHeaders) {
+            this.request = request;
+            this.reqHeaders = reqHeaders;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (out == null && head.size() + 1 < compressor.getThreshold()) {
+                head.write(b);
+            } else {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) {
+                if (head.size() + len < compressor.getThreshold()) {
+                    head.write(b, off, len);
+                    return;
+                }
+                reqHeaders.put("Content-Encoding", GZIP);
+                con = connect(request, reqHeaders);
+                con.setContentEncoded();
+                OutputStream os = con.getOutput();
+                // no body, e.g. for a GET request
+                out = (os != null) ? compressor.compress(os) : new ByteArrayBuffer();
+                head.writeTo(out);
+                head = null;
+            }
+            out.write(b, off, len);
+        }
+
+        boolean isCompressed() {
+            return out != null;
+        }
+
+        /**
+         * Sends the rest of the request.
+         *
+         * @return the connection, with its output to be closed.
+         */
+        HttpClientTransport finish() throws IOException {
+            if (out != null) {
+                out.close();
+                return con;
+            }
+            compressor.skipped();
+            reqHeaders.put("Content-Length", Collections.singletonList(Integer.toString(head.size())));
+            con = connect(request, reqHeaders);
+            OutputStream os = con.getOutput();
+            if (os != null) {
+                head.writeTo(os);
+            }
+            return con;
+        }
+    }
+
+    /**
+     * Disconnects the exchange that is in progress on another thread, if any.
+     * The thread running {@link #process(Packet)} then fails with an I/O error.
+     */
+    /*package*/ void abort() {
+        HttpClientTransport con = current;
+        if (con != null) {
+            con.disconnect();
         }
     }
 
+    /**
+     * Checks whether the server refused the encoding of the request, and if
+     * so discards its response.
+     */
+    private static boolean isUnsupportedMediaType(HttpClientTransport con) throws IOException {
+        con.readResponseCodeAndMessage();
+        if (con.statusCode != HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+            return false;
+        }
+        InputStream in = con.readResponse();
+        if (in != null) {
+            in.close();
+        }
+        return true;
+    }
+
     private Packet createResponsePacket(Packet request, HttpClientTransport con) throws IOException {
         con.readResponseCodeAndMessage();   // throws IOE
         recordCookies(request, con);
@@ -251,11 +482,22 @@ public class HttpTransportPipe extends AbstractTubeImpl {
             if (contentType != null && contentType.contains("text/html") && binding instanceof SOAPBinding) {
                 throw new ClientTransportException(ClientMessages.localizableHTTP_STATUS_CODE(con.statusCode, con.statusMessage));
             }
+            MessageSize size = reply.getSatellite(MessageSize.class);
+            if (size != null) {
+                responseStream = size.countInbound(responseStream);
+            }
             codec.decode(responseStream, contentType, reply);
+            if (size != null) {
+                size.setInboundMessage(reply.getMessage());
+            }
         }
         return reply;
     }
 
+    private static OutputStream count(@Nullable MessageSize size, OutputStream out) {
+        return size != null ? size.countOutbound(out) : out;
+    }
+
     /*
      * Allows the following HTTP status codes.
      * SOAP 1.1/HTTP - 200, 202, 500
@@ -303,14 +545,14 @@ public class HttpTransportPipe extends AbstractTubeImpl {
         return code == 500 || code == 400;
     }
 
-    private void addCookies(Packet context, Map<String, List<String>> reqHeaders) throws IOException {
+    private void addCookies(Packet context, RequestHeaders reqHeaders) throws IOException {
         Boolean shouldMaintainSessionProperty =
             (Boolean) context.invocationProperties.get(BindingProvider.SESSION_MAINTAIN_PROPERTY);
         if (shouldMaintainSessionProperty != null && !shouldMaintainSessionProperty) {
             return;         // explicitly turned off
         }
         if (sticky || (shouldMaintainSessionProperty != null && shouldMaintainSessionProperty)) {
-            Map<String, List<String>> cookies = cookieJar.get(context.endpointAddress.getURI(),reqHeaders);
+            Map<String, List<String>> cookies = cookieJar.get(context.endpointAddress.getURI(),reqHeaders.map);
             List<String> cookieList = cookies.get("Cookie");
             if (cookieList != null && !cookieList.isEmpty()) {
                 reqHeaders.put("Cookie", cookieList);
@@ -333,16 +575,21 @@ public class HttpTransportPipe extends AbstractTubeImpl {
         }
     }
 
-    private void addBasicAuth(Packet context, Map<String, List<String>> reqHeaders) {
+    private void addBasicAuth(Packet context, RequestHeaders reqHeaders) {
         String user = (String) context.invocationProperties.get(BindingProvider.USERNAME_PROPERTY);
         if (user != null) {
             String pw = (String) context.invocationProperties.get(BindingProvider.PASSWORD_PROPERTY);
             if (pw != null) {
-                StringBuffer buf = new StringBuffer(user);
-                buf.append(":");
-                buf.append(pw);
-                String creds = DatatypeConverter.printBase64Binary(buf.toString().getBytes());
-                reqHeaders.put("Authorization", Collections.singletonList("Basic "+creds));
+                if (!user.equals(authUser) || !pw.equals(authPassword)) {
+                    StringBuffer buf = new StringBuffer(user);
+                    buf.append(":");
+                    buf.append(pw);
+                    String creds = DatatypeConverter.printBase64Binary(buf.toString().getBytes());
+                    authHeader = Collections.singletonList("Basic "+creds);
+                    authUser = user;
+                    authPassword = pw;
+                }
+                reqHeaders.put("Authorization", authHeader);
             }
         }
     }
@@ -361,6 +608,84 @@ public class HttpTransportPipe extends AbstractTubeImpl {
             reqHeaders.put("SOAPAction", Collections.singletonList("\"\""));
     }
 
+    /**
+     * Static headers of one operation.
+     */
+    private static final class StaticHeaders {
+        final String contentType;
+        final String accept;
+        final String soapAction;
+        final Map<String, List<String>> headers;
+
+        StaticHeaders(String contentType, String accept, String soapAction, Map<String, List<String>> headers) {
+            this.contentType = contentType;
+            this.accept = accept;
+            this.soapAction = soapAction;
+            this.headers = headers;
+        }
+
+        boolean matches(String contentType, String accept, String soapAction) {
+            return same(this.contentType, contentType) && same(this.accept, accept) && same(this.soapAction, soapAction);
+        }
+
+        private static boolean same(String a, String b) {
+            return a == b || (a != null && a.equals(b));
+        }
+    }
+
+    /**
+     * Copy-on-write overlay of the per-request headers over the static headers
+     * of the operation. Requests that don't add any header share the static map.
+     */
+    private static final class RequestHeaders {
+        private final Map<String, List<String>> base;
+        Map<String, List<String>> map;
+
+        RequestHeaders(Map<String, List<String>> base) {
+            this.base = base;
+            this.map = base;
+        }
+
+        void put(String name, List<String> value) {
+            if (map == base) {
+                map = new Headers();
+                map.putAll(base);
+            }
+            map.put(name, value);
+        }
+
+        void remove(String name) {
+            if (map == base) {
+                map = new Headers();
+                map.putAll(base);
+            }
+            map.remove(name);
+        }
+
+        /**
+         * Adds the application's headers. Only its User-Agent and
+         * Accept-Encoding may replace a static header.
+         */
+        void overlay(Map<String, List<String>> userHeaders) {
+            if (userHeaders.isEmpty())
+                return;
+            // userHeaders may not be modifiable like SingletonMap, just copy them
+            Map<String, List<String>> m = new Headers();
+            m.putAll(userHeaders);
+            for (Entry<String, List<String>> e : base.entrySet()) {
+                // application wants to use its own User-Agent or Accept-Encoding header
+                if (!isOverridable(e.getKey()) || userHeaders.get(e.getKey()) == null) {
+                    m.put(e.getKey(), e.getValue());
+                }
+            }
+            map = m;
+        }
+
+        private static boolean isOverridable(String name) {
+            return name.equals("User-Agent") || name.equals("Accept-Encoding");
+        }
+    }
+
     public void preDestroy() {
         // nothing to do. Intentionally left empty.
     }
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.transport.http.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.WSBinding;
+import com.sun.xml.internal.ws.api.message.Message;
+import com.sun.xml.internal.ws.api.message.Packet;
+import com.sun.xml.internal.ws.api.pipe.Codec;
+import com.sun.xml.internal.ws.api.pipe.Engine;
+import com.sun.xml.internal.ws.api.pipe.Fiber;
+import com.sun.xml.internal.ws.api.pipe.NextAction;
+import com.sun.xml.internal.ws.api.pipe.Tube;
+import com.sun.xml.internal.ws.api.pipe.TubeCloner;
+import com.sun.xml.internal.ws.api.pipe.helper.AbstractTubeImpl;
+import com.sun.xml.internal.ws.developer.LoadBalancingFeature;
+import com.sun.xml.internal.ws.transport.http.client.EndpointAddressBalancer.Statistics;
+import com.sun.xml.internal.ws.util.Pool;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP transport {@link Tube} that sends each request to one of the
+ * addresses of a {@link LoadBalancingFeature}, and hedges idempotent requests.
+ *
+ * <p>
+ * A request that can't be hedged is sent right away on the current thread,
+ * just like {@link HttpTransportPipe} does. A hedged request is sent from a
+ * separate {@link Fiber} of the same {@link Engine} while the invoking fiber
+ * is suspended. If no response arrives within the configured latency
+ * percentile of the chosen address, a copy of the request is sent to another
+ * address from yet another fiber. The first successful response resumes the
+ * invoking fiber and the other exchange is aborted.
+ */
+public class LoadBalancingTransportTube extends AbstractTubeImpl {
+
+    private final Codec codec;
+    private final WSBinding binding;
+    private final LoadBalancingFeature feature;
+    private final EndpointAddressBalancer balancer;
+
+    /**
+     * Transport used for requests that aren't hedged.
+     */
+    private final HttpTransportPipe direct;
+
+    /**
+     * Transports used by the fibers of hedged exchanges. Since the loser of
+     * a hedged exchange may still be running when the next request comes in,
+     * these can't be the {@link #direct} one.
+     */
+    private final Pool<HttpTransportPipe> legs = new Pool<HttpTransportPipe>() {
+        protected HttpTransportPipe create() {
+            HttpTransportPipe pipe = new HttpTransportPipe(codec.copy(), binding);
+            synchronized (legPipes) {
+                legPipes.add(pipe);
+            }
+            return pipe;
+        }
+    };
+
+    /**
+     * All the transports created by {@link #legs}, pooled or in use, so that
+     * {@link #preDestroy()} reaches them. Weak, as the pool may drop them.
+     */
+    private final Set<HttpTransportPipe> legPipes = Collections.newSetFromMap(new WeakHashMap<HttpTransportPipe, Boolean>());
+
+    public LoadBalancingTransportTube(Codec codec, WSBinding binding, LoadBalancingFeature feature) {
+        this.codec = codec;
+        this.binding = binding;
+        this.feature = feature;
+        this.balancer = feature.getBalancer();
+        this.direct = new HttpTransportPipe(codec, binding);
+    }
+
+    /*
+     * Copy constructor for {@link Tube#copy(TubeCloner)}.
+     */
+    private LoadBalancingTransportTube(LoadBalancingTransportTube that, TubeCloner cloner) {
+        super(that, cloner);
+        this.codec = that.codec.copy();
+        this.binding = that.binding;
+        this.feature = that.feature;
+        this.balancer = that.balancer;
+        this.direct = new HttpTransportPipe(codec, binding);
+    }
+
+    public NextAction processRequest(@NotNull Packet request) {
+        if (feature.getHedgePercentile() > 0 && balancer.size() > 1 && feature.isIdempotent(request)) {
+            Statistics first = balancer.select(null);
+            long delay = first.latencyPercentile(feature.getHedgePercentile());
+            if (delay >= 0) {
+                new HedgedExchange(Fiber.current(), request).start(first, delay);
+                return doSuspend();
+            }
+            // not enough samples to know when to hedge yet
+            return doReturnWith(send(direct, request, first));
+        }
+        return doReturnWith(send(direct, request, balancer.select(null)));
+    }
+
+    /**
+     * Invoked with the winning response of a {@link HedgedExchange}.
+     */
+    public NextAction processResponse(@NotNull Packet response) {
+        return doReturnWith(response);
+    }
+
+    /**
+     * Invoked with the failure of a {@link HedgedExchange}.
+     */
+    public NextAction processException(@NotNull Throwable t) {
+        return doThrow(t);
+    }
+
+    private static Packet send(HttpTransportPipe pipe, Packet request, Statistics target) {
+        request.endpointAddress = target.getAddress();
+        target.begin(false);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Packet reply = pipe.process(request);
+            success = true;
+            return reply;
+        } finally {
+            target.end(System.nanoTime() - start, success);
+        }
+    }
+
+    public void preDestroy() {
+        direct.preDestroy();
+        HttpTransportPipe[] pipes;
+        synchronized (legPipes) {
+            pipes = legPipes.toArray(new HttpTransportPipe[legPipes.size()]);
+            legPipes.clear();
+        }
+        for (HttpTransportPipe pipe : pipes)
+            pipe.preDestroy();
+    }
+
+    public LoadBalancingTransportTube copy(TubeCloner cloner) {
+        return new LoadBalancingTransportTube(this, cloner);
+    }
+
+    /**
+     * Races up to two exchanges of the same request and resumes the
+     * invoking fiber with the first successful response.
+     */
+    private final class HedgedExchange implements Runnable {
+        private final Fiber invoker;
+        private final Engine engine;
+        /**
+         * Untouched copy of the request for the hedge, since the first
+         * exchange consumes the original message.
+         */
+        private final Packet spare;
+        private final Packet request;
+
+        // all guarded by this
+        private Leg primary;
+        private Leg hedge;
+        private ScheduledFuture<?> timer;
+        private boolean done;
+        private Throwable failure;
+
+        HedgedExchange(Fiber invoker, Packet request) {
+            this.invoker = invoker;
+            this.engine = invoker.owner;
+            this.request = request;
+            this.spare = request.copy(true);
+        }
+
+        synchronized void start(Statistics target, long delayNanos) {
+            primary = new Leg(this, target, request, false);
+            timer = TIMER.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            primary.start();
+        }
+
+        /**
+         * Fires the hedge when the primary exchange has been slower than the percentile.
+         */
+        public synchronized void run() {
+            if (done || hedge != null)
+                return;
+            hedge = new Leg(this, balancer.select(primary.target), spare, true);
+            hedge.start();
+        }
+
+        synchronized void onSuccess(Leg leg, Packet reply) {
+            if (done) {
+                discard(reply);
+                return;
+            }
+            done = true;
+            timer.cancel(false);
+            Leg other = (leg == primary) ? hedge : primary;
+            if (other != null)
+                other.cancel();
+            invoker.resume(reply);
+        }
+
+        synchronized void onFailure(Leg leg, Throwable error) {
+            if (done)
+                return;
+            if (failure == null)
+                failure = error;
+            Leg other = (leg == primary) ? hedge : primary;
+            if (other != null && !other.completed)
+                return;     // the other one may still succeed
+            if (other == null) {
+                // the primary has failed before the hedge was sent,
+                // so failing over to another address right away is the best bet
+                timer.cancel(false);
+                hedge = new Leg(this, balancer.select(primary.target), spare, true);
+                hedge.start();
+                return;
+            }
+            done = true;
+            invoker.resume(failure);
+        }
+
+        private void discard(Packet reply) {
+            Message msg = reply.getMessage();
+            if (msg != null)
+                msg.consume();
+        }
+    }
+
+    /**
+     * One exchange of a {@link HedgedExchange}, running on its own {@link Fiber}.
+     */
+    private final class Leg implements Fiber.CompletionCallback {
+        final HedgedExchange exchange;
+        final Statistics target;
+        final Packet request;
+        final boolean isHedge;
+        final HttpTransportPipe pipe;
+        long startTime;
+
+        // guarded by exchange
+        boolean completed;
+        boolean cancelled;
+
+        Leg(HedgedExchange exchange, Statistics target, Packet request, boolean isHedge) {
+            this.exchange = exchange;
+            this.target = target;
+            this.request = request;
+            this.isHedge = isHedge;
+            this.pipe = legs.take();
+        }
+
+        void start() {
+            request.endpointAddress = target.getAddress();
+            target.begin(isHedge);
+            startTime = System.nanoTime();
+            exchange.engine.createFiber().start(pipe, request, this);
+        }
+
+        /**
+         * Invoked with the {@link HedgedExchange} lock held.
+         */
+        void cancel() {
+            if (!completed) {
+                cancelled = true;
+                pipe.abort();
+            }
+        }
+
+        public void onCompletion(@NotNull Packet response) {
+            long latency = System.nanoTime() - startTime;
+            synchronized (exchange) {
+                completed = true;
+                if (cancelled)
+                    target.cancel();
+                else
+                    target.end(latency, true);
+                exchange.onSuccess(this, response);
+            }
+            legs.recycle(pipe);
+        }
+
+        public void onCompletion(@NotNull Throwable error) {
+            long latency = System.nanoTime() - startTime;
+            synchronized (exchange) {
+                completed = true;
+                if (cancelled)
+                    target.cancel();
+                else
+                    target.end(latency, false);
+                exchange.onFailure(this, error);
+            }
+            // don't reuse the transport, it may be in a wrong state
+            synchronized (legPipes) {
+                legPipes.remove(pipe);
+            }
+            pipe.preDestroy();
+        }
+    }
+
+    /**
+     * Fires the hedges. The tasks it runs only start another fiber.
+     */
+    private static final ScheduledExecutorService TIMER;
+
+    static {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jaxws-hedge-timer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        TIMER = timer;
+    }
+}
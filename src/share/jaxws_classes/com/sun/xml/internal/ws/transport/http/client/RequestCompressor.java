@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 1997, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.xml.internal.ws.transport.http.client;
+
+import com.sun.istack.internal.NotNull;
+import com.sun.xml.internal.ws.api.EndpointAddress;
+import com.sun.xml.internal.ws.util.ByteArrayBuffer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses HTTP request bodies for {@link com.sun.xml.internal.ws.developer.HttpCompressionFeature},
+ * remembers the endpoints that don't accept them and keeps the statistics.
+ *
+ * <p>
+ * This object is shared by the transport tubes of all the proxies created
+ * with the same feature, hence thread-safe.
+ */
+public final class RequestCompressor {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int threshold;
+    private final int level;
+
+    /**
+     * Endpoint addresses that responded with 415 to a compressed request.
+     */
+    private final Set<String> rejecting = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Endpoint addresses that took a compressed request.
+     */
+    private final Set<String> accepting = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong cpuTime = new AtomicLong();
+
+    public RequestCompressor(int threshold, int level) {
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Decides whether a request of the given size is worth compressing.
+     */
+    /*package*/ boolean shouldCompress(@NotNull EndpointAddress address, int size) {
+        if (size < threshold || rejecting.contains(address.toString())) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records a request sent uncompressed.
+     */
+    /*package*/ void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Gzips the request body.
+     */
+    /*package*/ @NotNull ByteArrayBuffer compress(@NotNull ByteArrayBuffer data) throws IOException {
+        long start = cpuTime();
+        ByteArrayBuffer out = new ByteArrayBuffer(Math.max(data.size()/4, 64));
+        GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        };
+        data.writeTo(gzip);
+        gzip.close();
+        cpuTime.addAndGet(cpuTime() - start);
+        compressed.incrementAndGet();
+        bytesIn.addAndGet(data.size());
+        bytesOut.addAndGet(out.size());
+        return out;
+    }
+
+    /**
+     * Gzips the request body as it is written to the given stream.
+     * {@link OutputStream#close() Closing} the returned stream finishes
+     * the compressed data, but doesn't close the given stream.
+     */
+    /*package*/ @NotNull OutputStream compress(@NotNull OutputStream out) throws IOException {
+        return new CompressingStream(new CountingStream(out));
+    }
+
+    /**
+     * Records that the endpoint responded with 415 to a compressed request.
+     */
+    /*package*/ void rejected(@NotNull EndpointAddress address) {
+        rejections.incrementAndGet();
+        String a = address.toString();
+        accepting.remove(a);
+        rejecting.add(a);
+    }
+
+    /**
+     * Records that the endpoint took a compressed request.
+     */
+    /*package*/ void accepted(@NotNull EndpointAddress address) {
+        accepting.add(address.toString());
+    }
+
+    /**
+     * Returns true if the endpoint took a compressed request, so that
+     * the next ones can be compressed as they are written: they couldn't
+     * be sent again uncompressed.
+     */
+    /*package*/ boolean isAccepting(@NotNull EndpointAddress address) {
+        return accepting.contains(address.toString());
+    }
+
+    /**
+     * Returns true if the endpoint rejected a compressed request.
+     */
+    public boolean isRejecting(@NotNull EndpointAddress address) {
+        return rejecting.contains(address.toString());
+    }
+
+    /**
+     * Forgets the endpoints that rejected compressed requests, e.g. after
+     * they have been upgraded.
+     */
+    public void reset() {
+        rejecting.clear();
+        accepting.clear();
+    }
+
+    /**
+     * Number of requests sent compressed.
+     */
+    public long getCompressedRequests() {
+        return compressed.get();
+    }
+
+    /**
+     * Number of requests sent uncompressed, because they were too small or
+     * the endpoint doesn't accept compressed requests.
+     */
+    public long getSkippedRequests() {
+        return skipped.get();
+    }
+
+    /**
+     * Number of compressed requests that were rejected with 415 and sent again.
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    /**
+     * Total size, in bytes, of the compressed requests before compression.
+     */
+    public long getUncompressedBytes() {
+        return bytesIn.get();
+    }
+
+    /**
+     * Total size, in bytes, of the compressed requests after compression.
+     */
+    public long getCompressedBytes() {
+        return bytesOut.get();
+    }
+
+    /**
+     * Compressed size over uncompressed size of the compressed requests,
+     * or 1 if none has been compressed yet.
+     */
+    public double getCompressionRatio() {
+        long in = bytesIn.get();
+        return in == 0 ? 1.0 : (double) bytesOut.get() / in;
+    }
+
+    /**
+     * Total time spent compressing, in nanoseconds. This is thread CPU time
+     * when the JVM supports measuring it, elapsed time otherwise.
+     */
+    public long getCpuTime() {
+        return cpuTime.get();
+    }
+
+    private static long cpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            long t = THREADS.getCurrentThreadCpuTime();
+            if (t != -1) {
+                return t;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * {@link GZIPOutputStream} that adds up the statistics when it is closed.
+     */
+    private final class CompressingStream extends GZIPOutputStream {
+        private final CountingStream target;
+        private long size;
+        private long time;
+        private boolean closed;
+
+        CompressingStream(CountingStream target) throws IOException {
+            super(target);
+            this.target = target;
+            def.setLevel(level);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = cpuTime();
+            super.write(b, off, len);
+            time += cpuTime() - start;
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long start = cpuTime();
+            finish();
+            time += cpuTime() - start;
+            cpuTime.addAndGet(time);
+            compressed.incrementAndGet();
+            bytesIn.addAndGet(size);
+            bytesOut.addAndGet(target.count);
+        }
+    }
+
+    /**
+     * Counts the compressed bytes.
+     */
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCompressor[compressed="+compressed+", skipped="+skipped
+            +", rejections="+rejections+", ratio="+getCompressionRatio()+", cpuTime="+cpuTime+"ns]";
+    }
+}
@@ -52,6 +52,8 @@ public class StandaloneTubeAssembler implements TubelineAssembler {
         head = context.createWsaTube(head);
         head = context.createClientMUTube(head);
         head = context.createValidationTube(head);
+        head = context.createRequestCoalescingTube(head);
+        head = context.createResponseCacheTube(head);
         return context.createHandlerTube(head);
     }
 